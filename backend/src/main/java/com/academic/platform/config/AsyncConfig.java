@@ -17,11 +17,17 @@ import java.util.concurrent.Executor;
 @Configuration
 public class AsyncConfig {
 
+    /**
+     * SMTP sends for the email outbox dispatcher. Sized to match
+     * mail.pool.size so each thread can hold one pooled SMTP connection; the
+     * dispatcher never hands it more than one batch (20) at a time, so the
+     * queue cannot overflow.
+     */
     @Bean(name = "emailExecutor")
     public Executor emailExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(4);
-        executor.setMaxPoolSize(10);
+        executor.setMaxPoolSize(4);
         executor.setQueueCapacity(50);
         executor.setThreadNamePrefix("email-async-");
         executor.setKeepAliveSeconds(60);
@@ -44,4 +50,36 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * Runs long file imports (e.g. gate attendance logs) off the request
+     * thread; progress is polled separately.
+     */
+    @Bean(name = "importExecutor")
+    public Executor importExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(5);
+        executor.setThreadNamePrefix("import-async-");
+        executor.setKeepAliveSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Writes live attendance events to SSE subscribers, so a slow client
+     * never holds up the request that recorded the mark.
+     */
+    @Bean(name = "feedExecutor")
+    public Executor feedExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("feed-async-");
+        executor.setKeepAliveSeconds(60);
+        executor.initialize();
+        return executor;
+    }
 }
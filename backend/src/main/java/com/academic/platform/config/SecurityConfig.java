@@ -37,6 +37,8 @@ public class SecurityConfig {
                         .requestMatchers("/api/leaves/parent-view/**").permitAll()
                         .requestMatchers("/api/leaves/parent-action/**").permitAll()
                         .requestMatchers("/error").permitAll()
+                        // SSE feeds complete on an async dispatch; the initial request was already authorised
+                        .dispatcherTypeMatchers(jakarta.servlet.DispatcherType.ASYNC).permitAll()
                         .requestMatchers(org.springframework.http.HttpMethod.OPTIONS, "/**").permitAll()
                         .anyRequest().authenticated())
                 .addFilterBefore(new FirebaseTokenFilter(userService, systemSettingService),
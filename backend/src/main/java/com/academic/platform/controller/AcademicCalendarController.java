@@ -0,0 +1,77 @@
+package com.academic.platform.controller;
+
+import com.academic.platform.model.AcademicCalendar;
+import com.academic.platform.model.Role;
+import com.academic.platform.service.AcademicCalendarService;
+import com.academic.platform.utils.SecurityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/academic-calendar")
+@CrossOrigin(origins = { "http://localhost:5173", "http://10.10.188.128:5173" }, allowCredentials = "true")
+public class AcademicCalendarController {
+
+    @Autowired
+    private AcademicCalendarService calendarService;
+
+    @Autowired
+    private SecurityUtils securityUtils;
+
+    // The calendar drives attendance percentages and the archival cutoff, so only admins and the COE edit it
+    private boolean canEditCalendar() {
+        return securityUtils.hasAnyRole(Role.ADMIN, Role.COE);
+    }
+
+    @GetMapping
+    public ResponseEntity<List<AcademicCalendar>> getAll() {
+        return ResponseEntity.ok(calendarService.getAll());
+    }
+
+    @GetMapping("/current")
+    public ResponseEntity<?> getCurrent() {
+        try {
+            return ResponseEntity.ok(calendarService.getCurrent());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @PostMapping
+    public ResponseEntity<?> save(@RequestBody AcademicCalendar calendar) {
+        if (!canEditCalendar()) {
+            return ResponseEntity.status(403).body(Map.of("message", "Only admins and the COE can edit the calendar"));
+        }
+        try {
+            return ResponseEntity.ok(calendarService.save(calendar));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @PutMapping("/{id}/holidays")
+    public ResponseEntity<?> setHolidays(@PathVariable Long id, @RequestBody Set<LocalDate> holidays) {
+        if (!canEditCalendar()) {
+            return ResponseEntity.status(403).body(Map.of("message", "Only admins and the COE can edit the calendar"));
+        }
+        try {
+            return ResponseEntity.ok(calendarService.setHolidays(id, holidays));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/working-days")
+    public ResponseEntity<Map<String, Object>> getWorkingDays(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(Map.of("from", from, "to", to, "workingDays", calendarService.getWorkingDays(from, to)));
+    }
+}
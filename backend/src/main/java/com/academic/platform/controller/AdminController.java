@@ -1,14 +1,23 @@
 package com.academic.platform.controller;
 
+import com.academic.platform.model.EmailOutbox;
+import com.academic.platform.model.Role;
 import com.academic.platform.service.AdminService;
+import com.academic.platform.service.EmailOutboxDispatcher;
+import com.academic.platform.utils.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.CrossOrigin;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -18,8 +27,71 @@ public class AdminController {
     @Autowired
     private AdminService adminService;
 
+    @Autowired
+    private EmailOutboxDispatcher emailOutboxDispatcher;
+
+    @Autowired
+    private SecurityUtils securityUtils;
+
     @GetMapping("/dashboard-stats")
     public ResponseEntity<Map<String, Object>> getDashboardStats() {
         return ResponseEntity.ok(adminService.getDashboardStats());
     }
+
+    /** Rebuilds the dashboard snapshot now instead of waiting for the schedule; admin only (campus-wide recompute). */
+    @PostMapping("/dashboard-stats/refresh")
+    public ResponseEntity<?> refreshDashboardStats() {
+        if (!securityUtils.hasAnyRole(Role.ADMIN)) {
+            return ResponseEntity.status(403).body("Admin access required");
+        }
+        return ResponseEntity.ok(adminService.refresh());
+    }
+
+    // Outbox rows hold parent-approval OTPs and can be re-sent, so these are admin only
+
+    /** Outbox backlog by status and delivery counters. */
+    @GetMapping("/email-outbox/stats")
+    public ResponseEntity<?> getEmailOutboxStats() {
+        if (!securityUtils.hasAnyRole(Role.ADMIN)) {
+            return ResponseEntity.status(403).body("Admin access required");
+        }
+        return ResponseEntity.ok(emailOutboxDispatcher.getStats());
+    }
+
+    /** Emails that used up their retries, newest first; bodies are left out. */
+    @GetMapping("/email-outbox/dead")
+    public ResponseEntity<?> getDeadLetterEmails(@RequestParam(defaultValue = "100") int limit) {
+        if (!securityUtils.hasAnyRole(Role.ADMIN)) {
+            return ResponseEntity.status(403).body("Admin access required");
+        }
+        return ResponseEntity.ok(emailOutboxDispatcher.getDeadLetters(limit).stream()
+                .map(AdminController::summary)
+                .collect(Collectors.toList()));
+    }
+
+    @PostMapping("/email-outbox/{id}/retry")
+    public ResponseEntity<?> retryEmail(@PathVariable Long id) {
+        if (!securityUtils.hasAnyRole(Role.ADMIN)) {
+            return ResponseEntity.status(403).body("Admin access required");
+        }
+        try {
+            return ResponseEntity.ok(summary(emailOutboxDispatcher.retry(id)));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> summary(EmailOutbox row) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("id", row.getId());
+        summary.put("recipients", row.getRecipients());
+        summary.put("subject", row.getSubject());
+        summary.put("category", row.getCategory());
+        summary.put("status", row.getStatus());
+        summary.put("attempts", row.getAttempts());
+        summary.put("lastError", row.getLastError());
+        summary.put("nextAttemptAt", row.getNextAttemptAt());
+        summary.put("createdAt", row.getCreatedAt());
+        return summary;
+    }
 }
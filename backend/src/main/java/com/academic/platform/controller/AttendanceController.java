@@ -1,11 +1,18 @@
 package com.academic.platform.controller;
 
 import com.academic.platform.model.Attendance;
+import com.academic.platform.model.Role;
+import com.academic.platform.service.AttendanceFeedService;
 import com.academic.platform.service.AttendanceService;
+import com.academic.platform.service.GateLogImportService;
+import com.academic.platform.utils.SecurityUtils;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -19,6 +26,15 @@ public class AttendanceController {
     @Autowired
     private AttendanceService attendanceService;
 
+    @Autowired
+    private AttendanceFeedService feedService;
+
+    @Autowired
+    private GateLogImportService gateLogImportService;
+
+    @Autowired
+    private SecurityUtils securityUtils;
+
     @PostMapping("/mark")
     public ResponseEntity<?> markAttendance(@RequestParam String studentUid) {
         try {
@@ -45,6 +61,55 @@ public class AttendanceController {
         return ResponseEntity.ok(attendanceService.getMenteesAttendance(mentorUid, date));
     }
 
+    /** Live check-ins of a mentor's mentees, pushed as Server-Sent Events; the mentor or an admin only. */
+    @GetMapping(value = "/mentor/{mentorUid}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamMenteesAttendance(@PathVariable String mentorUid) {
+        if (!mentorUid.equals(securityUtils.getCurrentUserUid()) && !securityUtils.hasAnyRole(Role.ADMIN)) {
+            return ResponseEntity.status(403).contentType(MediaType.TEXT_PLAIN)
+                    .body("Unauthorized: Only the mentor can follow their mentees' attendance.");
+        }
+        return ResponseEntity.ok(feedService.subscribe(AttendanceFeedService.mentorTopic(mentorUid)));
+    }
+
+    /** Starts a background import of a gate/biometric check-in dump; returns the job for progress polling. */
+    @PostMapping(value = "/import/gate-log", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importGateLog(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam String uploaderUid) {
+        try {
+            return ResponseEntity.accepted().body(gateLogImportService.startImport(file, uploaderUid));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Same import for dumps too large for the multipart limit: send the file
+     * as the raw body (Content-Type text/csv or application/octet-stream).
+     */
+    @PostMapping(value = "/import/gate-log", consumes = { "text/csv", MediaType.TEXT_PLAIN_VALUE,
+            MediaType.APPLICATION_OCTET_STREAM_VALUE })
+    public ResponseEntity<?> importGateLogStream(
+            HttpServletRequest request,
+            @RequestParam String uploaderUid,
+            @RequestParam(required = false) String fileName) {
+        try {
+            return ResponseEntity.accepted()
+                    .body(gateLogImportService.startImport(request.getInputStream(), fileName, uploaderUid));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<?> getImportProgress(@PathVariable String jobId) {
+        try {
+            return ResponseEntity.ok(gateLogImportService.getProgress(jobId));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/stats/{studentUid}")
     public ResponseEntity<Map<String, Object>> getStats(@PathVariable String studentUid) {
         return ResponseEntity.ok(attendanceService.getStudentStats(studentUid));
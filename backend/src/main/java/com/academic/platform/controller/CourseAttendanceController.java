@@ -2,12 +2,20 @@ package com.academic.platform.controller;
 
 import com.academic.platform.model.CourseAttendance;
 import com.academic.platform.model.CourseAttendanceSession;
+import com.academic.platform.model.AttendanceCounter;
+import com.academic.platform.service.AttendanceCounterService;
 import com.academic.platform.service.CourseAttendanceService;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.ByteArrayOutputStream;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -19,17 +27,57 @@ public class CourseAttendanceController {
     @Autowired
     private CourseAttendanceService attendanceService;
 
+    @Autowired
+    private AttendanceCounterService counterService;
+
+    /**
+     * mode=STATIC (default) issues a 6-digit OTP; mode=ROTATING issues a
+     * session whose code rotates every few seconds (see /sessions/{id}/code).
+     */
     @PostMapping("/sessions/generate/{sectionId}")
     public ResponseEntity<CourseAttendanceSession> generateOtp(
             @PathVariable Long sectionId,
-            @RequestParam String facultyUid) {
+            @RequestParam String facultyUid,
+            @RequestParam(defaultValue = "STATIC") String mode) {
         try {
-            return ResponseEntity.ok(attendanceService.generateOtp(sectionId, facultyUid));
+            return ResponseEntity.ok(attendanceService.generateOtp(sectionId, facultyUid,
+                    "ROTATING".equalsIgnoreCase(mode)));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(null);
         }
     }
 
+    @GetMapping("/sessions/{sessionId}/code")
+    public ResponseEntity<?> getRotatingCode(
+            @PathVariable Long sessionId,
+            @RequestParam String facultyUid) {
+        try {
+            return ResponseEntity.ok(attendanceService.getRotatingCode(sessionId, facultyUid));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /** Current rotating token rendered as a QR code PNG for the classroom display. */
+    @GetMapping(value = "/sessions/{sessionId}/qr", produces = MediaType.IMAGE_PNG_VALUE)
+    public ResponseEntity<byte[]> getRotatingQr(
+            @PathVariable Long sessionId,
+            @RequestParam String facultyUid,
+            @RequestParam(defaultValue = "320") int size) {
+        try {
+            String token = (String) attendanceService.getRotatingCode(sessionId, facultyUid).get("token");
+            int px = Math.max(128, Math.min(size, 1024));
+            BitMatrix matrix = new QRCodeWriter().encode(token, BarcodeFormat.QR_CODE, px, px);
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            MatrixToImageWriter.writeToStream(matrix, "PNG", png);
+            return ResponseEntity.ok()
+                    .header("Cache-Control", "no-store")
+                    .body(png.toByteArray());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PostMapping("/sessions/{sessionId}/deactivate")
     public ResponseEntity<CourseAttendanceSession> deactivateSession(
             @PathVariable Long sessionId,
@@ -58,6 +106,18 @@ public class CourseAttendanceController {
         return ResponseEntity.ok(attendanceService.getSessionsByDate(sectionId, date));
     }
 
+    /** Server-Sent Events stream of marks for a section while its sessions are live. */
+    @GetMapping(value = "/stream/section/{sectionId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamSection(
+            @PathVariable Long sectionId,
+            @RequestParam String facultyUid) {
+        try {
+            return ResponseEntity.ok(attendanceService.subscribeSectionFeed(sectionId, facultyUid));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+        }
+    }
+
     @GetMapping("/sessions/{sessionId}/attendances")
     public ResponseEntity<List<CourseAttendance>> getSessionAttendances(@PathVariable Long sessionId) {
         return ResponseEntity.ok(attendanceService.getSessionAttendances(sessionId));
@@ -88,6 +148,21 @@ public class CourseAttendanceController {
         }
     }
 
+    /** Course-wise attendance % and policy standing for a student, read from the counters. */
+    @GetMapping("/summary/student/{studentUid}")
+    public ResponseEntity<?> getStudentSummary(@PathVariable String studentUid) {
+        try {
+            return ResponseEntity.ok(counterService.getStudentSummary(studentUid));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/summary/section/{sectionId}")
+    public ResponseEntity<List<AttendanceCounter>> getSectionSummary(@PathVariable Long sectionId) {
+        return ResponseEntity.ok(counterService.getSectionCounters(sectionId));
+    }
+
     @GetMapping("/section/{sectionId}/student/{studentId}")
     public ResponseEntity<List<CourseAttendance>> getStudentAttendance(
             @PathVariable Long sectionId,
@@ -96,11 +171,15 @@ public class CourseAttendanceController {
     }
 
     @PostMapping("/sessions/bulk/{sectionId}")
-    public ResponseEntity<CourseAttendanceSession> saveBulkAttendance(
+    public ResponseEntity<?> saveBulkAttendance(
             @PathVariable Long sectionId,
             @RequestParam String facultyUid,
+            @RequestParam(defaultValue = "false") boolean diff,
             @RequestBody List<java.util.Map<String, String>> requestData) {
         try {
+            if (diff) {
+                return ResponseEntity.ok(attendanceService.saveBulkAttendance(sectionId, facultyUid, requestData, true));
+            }
             return ResponseEntity.ok(attendanceService.saveBulkAttendance(sectionId, facultyUid, requestData));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(null);
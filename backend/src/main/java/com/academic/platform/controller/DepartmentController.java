@@ -6,6 +6,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/department")
 public class DepartmentController {
@@ -16,11 +21,23 @@ public class DepartmentController {
     @Autowired
     private com.academic.platform.service.SystemSettingService systemSettingService;
 
+    @Autowired
+    private com.academic.platform.service.AttendanceShortageService attendanceShortageService;
+
+    @Autowired
+    private com.academic.platform.service.StudentMetricsCube studentMetricsCube;
+
     @GetMapping("/dashboard/{department}")
     public ResponseEntity<DepartmentDashboardDTO> getDashboardStats(@PathVariable String department) {
         return ResponseEntity.ok(departmentService.getDashboardStats(department));
     }
 
+    /** Latest nightly attendance-shortage snapshot for the HOD dashboard. */
+    @GetMapping("/attendance-shortages/{department}")
+    public ResponseEntity<?> getAttendanceShortages(@PathVariable String department) {
+        return ResponseEntity.ok(attendanceShortageService.getLatestForDepartment(department));
+    }
+
     @GetMapping("/analytics/{department}")
     public ResponseEntity<?> getAnalytics(
             @PathVariable String department) {
@@ -29,4 +46,57 @@ public class DepartmentController {
         }
         return ResponseEntity.ok(departmentService.getAnalytics(department));
     }
+
+    /** Month-by-month student registrations, e.g. ?from=2023-06&to=2025-05 */
+    @GetMapping("/trends/enrollment/{department}")
+    public ResponseEntity<?> getEnrollmentTrend(@PathVariable String department,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        try {
+            return ResponseEntity.ok(departmentService.getEnrollmentTrend(department, from, to));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Ad-hoc slice of the student metrics snapshot, e.g.
+     * ?groupBy=semester,quota&metrics=count,avg:gpa,sum:feesDue&department=CSE
+     * Any dimension may be passed as a comma-separated filter.
+     */
+    @GetMapping("/metrics/query")
+    public ResponseEntity<?> queryMetrics(
+            @RequestParam(required = false, defaultValue = "") String groupBy,
+            @RequestParam(required = false, defaultValue = "count,avg:gpa,avg:attendance") String metrics,
+            @RequestParam Map<String, String> params) {
+        if ("false".equalsIgnoreCase(systemSettingService.getSetting("feature.analytics.enabled"))) {
+            return ResponseEntity.status(403).body("Analytics module disabled.");
+        }
+        Map<String, List<String>> filters = new LinkedHashMap<>();
+        for (String dimension : com.academic.platform.service.StudentMetricsCube.DIMENSIONS) {
+            String value = params.get(dimension);
+            if (value != null && !value.isBlank()) {
+                filters.put(dimension, splitList(value));
+            }
+        }
+        try {
+            return ResponseEntity.ok(studentMetricsCube.query(splitList(groupBy), filters, splitList(metrics)));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/metrics/status")
+    public ResponseEntity<?> getMetricsStatus() {
+        return ResponseEntity.ok(studentMetricsCube.status());
+    }
+
+    @PostMapping("/metrics/rebuild")
+    public ResponseEntity<?> rebuildMetrics() {
+        return ResponseEntity.ok(studentMetricsCube.rebuild());
+    }
+
+    private static List<String> splitList(String value) {
+        return Arrays.stream(value.split(",")).map(String::trim).filter(v -> !v.isEmpty()).toList();
+    }
 }
@@ -81,6 +81,19 @@ public class FinanceController {
         return ResponseEntity.ok(financeService.getMonthlyCollectionData());
     }
 
+    /** GET /api/finance/collection-trend?department=&from=yyyy-MM&to=yyyy-MM — year-month series */
+    @GetMapping("/collection-trend")
+    public ResponseEntity<?> getCollectionTrend(
+            @RequestParam(required = false) String department,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        try {
+            return ResponseEntity.ok(financeService.getCollectionTrend(department, from, to));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     // ──────────────────── COLLEGE EXPENSES ────────────────────
 
     /** GET /api/finance/expenses — all college expenses */
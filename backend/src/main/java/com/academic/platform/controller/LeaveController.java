@@ -1,9 +1,13 @@
 package com.academic.platform.controller;
 
 import com.academic.platform.model.LeaveRequest;
+import com.academic.platform.model.Role;
+import com.academic.platform.service.AttendanceFeedService;
 import com.academic.platform.service.LeaveService;
 import com.academic.platform.service.SystemSettingService;
+import com.academic.platform.utils.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
@@ -19,6 +23,12 @@ public class LeaveController {
     @Autowired
     private SystemSettingService systemSettingService;
 
+    @Autowired
+    private AttendanceFeedService feedService;
+
+    @Autowired
+    private SecurityUtils securityUtils;
+
     private boolean isLeaveFeatureEnabled() {
         return Boolean.parseBoolean(systemSettingService.getSetting("feature.leave.enabled"));
     }
@@ -33,12 +43,31 @@ public class LeaveController {
         return ResponseEntity.ok(leaveService.applyLeave(studentUid, request));
     }
 
+    /** Newest first, {@code limit} per page; for the next page pass the last id seen as {@code before}. */
     @GetMapping("/pending/{mentorUid}")
-    public ResponseEntity<?> getPendingLeaves(@PathVariable String mentorUid) {
+    public ResponseEntity<?> getPendingLeaves(@PathVariable String mentorUid,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Integer limit) {
+        if (!isLeaveFeatureEnabled()) {
+            return ResponseEntity.status(403).body("Leave module disabled.");
+        }
+        return ResponseEntity.ok(leaveService.getPendingLeavesForMentor(mentorUid, before, limit));
+    }
+
+    @GetMapping("/pending/{mentorUid}/count")
+    public ResponseEntity<?> getPendingCount(@PathVariable String mentorUid) {
         if (!isLeaveFeatureEnabled()) {
             return ResponseEntity.status(403).body("Leave module disabled.");
         }
-        return ResponseEntity.ok(leaveService.getPendingLeavesForMentor(mentorUid));
+        return ResponseEntity.ok(Map.of("pending", leaveService.getPendingCountForMentor(mentorUid)));
+    }
+
+    @GetMapping("/student/{studentUid}/balance")
+    public ResponseEntity<?> getLeaveBalance(@PathVariable String studentUid) {
+        if (!isLeaveFeatureEnabled()) {
+            return ResponseEntity.status(403).body("Leave module disabled.");
+        }
+        return ResponseEntity.ok(leaveService.getLeaveBalance(studentUid));
     }
 
     @GetMapping("/student/{studentUid}")
@@ -161,6 +190,63 @@ public class LeaveController {
         return ResponseEntity.ok(leave);
     }
 
+    /** Who is outside campus right now (OUT or OVERDUE), earliest expected return first. */
+    @GetMapping("/security/outside")
+    public ResponseEntity<?> getStudentsOutside() {
+        if (!isLeaveFeatureEnabled()) {
+            return ResponseEntity.status(403).body("Leave module disabled.");
+        }
+        return ResponseEntity.ok(leaveService.getStudentsOutside());
+    }
+
+    /** Live "overdue" alerts for the gate dashboard, pushed as Server-Sent Events; gate security and admins only. */
+    @GetMapping(value = "/security/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamGateAlerts() {
+        if (!securityUtils.hasAnyRole(Role.GATE_SECURITY, Role.ADMIN)) {
+            return ResponseEntity.status(403).contentType(MediaType.TEXT_PLAIN)
+                    .body("Unauthorized: Only gate security can follow gate alerts.");
+        }
+        return ResponseEntity.ok(feedService.subscribe(AttendanceFeedService.gateTopic()));
+    }
+
+    /** Signed QR gate pass for the caller's own fully approved leave. */
+    @GetMapping("/{leaveId}/gate-pass")
+    public ResponseEntity<?> getGatePass(@PathVariable Long leaveId) {
+        if (!isLeaveFeatureEnabled()) {
+            return ResponseEntity.status(403).body("Leave module disabled.");
+        }
+        try {
+            return ResponseEntity.ok(leaveService.getGatePass(leaveId, securityUtils.getCurrentUserUid()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /** Public key for gate devices to verify passes offline; gate security and admins only. */
+    @GetMapping("/security/gate-pass-key")
+    public ResponseEntity<?> getGatePassKey() {
+        if (!securityUtils.hasAnyRole(Role.GATE_SECURITY, Role.ADMIN)) {
+            return ResponseEntity.status(403).body("Unauthorized: Only gate security can fetch the gate pass key.");
+        }
+        try {
+            return ResponseEntity.ok(leaveService.getGatePassKey());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /** Batch of exit / return events recorded offline; safe to resend. Gate security and admins only. */
+    @PostMapping("/security/sync")
+    public ResponseEntity<?> syncGateEvents(@RequestBody List<Map<String, Object>> events) {
+        if (!isLeaveFeatureEnabled()) {
+            return ResponseEntity.status(403).body("Leave module disabled.");
+        }
+        if (!securityUtils.hasAnyRole(Role.GATE_SECURITY, Role.ADMIN)) {
+            return ResponseEntity.status(403).body("Unauthorized: Only gate security can sync gate events.");
+        }
+        return ResponseEntity.ok(leaveService.syncGateEvents(events));
+    }
+
     @PostMapping("/security/{leaveId}/action")
     public ResponseEntity<?> securityAction(
             @PathVariable Long leaveId,
@@ -1,12 +1,16 @@
 package com.academic.platform.controller;
 
 import com.academic.platform.model.Result;
+import com.academic.platform.service.CohortStatisticsService;
 import com.academic.platform.service.ResultService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -19,6 +23,9 @@ public class ResultController {
     @Autowired
     private com.academic.platform.service.SystemSettingService systemSettingService;
 
+    @Autowired
+    private CohortStatisticsService cohortStatisticsService;
+
     @PostMapping("/publish-bulk")
     public ResponseEntity<List<String>> publishBulk(@RequestParam("file") MultipartFile file) {
         if ("false".equalsIgnoreCase(systemSettingService.getSetting("feature.result.enabled"))) {
@@ -31,21 +38,32 @@ public class ResultController {
         }
     }
 
+    /**
+     * Streams the result entry template straight to the response body.
+     * {@code format=xlsx} returns a spreadsheet; anything else returns CSV.
+     */
     @GetMapping("/template")
-    public ResponseEntity<?> downloadTemplate(
+    public void downloadTemplate(
             @RequestParam(required = false) String dept,
-            @RequestParam(required = false) Integer sem) {
+            @RequestParam(required = false) Integer sem,
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletResponse response) throws IOException {
 
         if ("false".equalsIgnoreCase(systemSettingService.getSetting("feature.result.enabled"))) {
-            return ResponseEntity.status(403).body("Result module disabled.".getBytes());
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            response.getOutputStream().write("Result module disabled.".getBytes(StandardCharsets.UTF_8));
+            return;
         }
 
-        byte[] csv = resultService.generateTemplate(dept, sem);
-
-        return ResponseEntity.ok()
-                .header("Content-Disposition", "attachment; filename=result_entry_template.csv")
-                .header("Content-Type", "text/csv")
-                .body(csv);
+        if ("xlsx".equalsIgnoreCase(format)) {
+            response.setHeader("Content-Disposition", "attachment; filename=result_entry_template.xlsx");
+            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            resultService.writeTemplateXlsx(dept, sem, response.getOutputStream());
+        } else {
+            response.setHeader("Content-Disposition", "attachment; filename=result_entry_template.csv");
+            response.setContentType("text/csv; charset=UTF-8");
+            resultService.writeTemplateCsv(dept, sem, response.getOutputStream());
+        }
     }
 
     @GetMapping("/student/{uid}")
@@ -71,4 +89,47 @@ public class ResultController {
         }
         return ResponseEntity.ok(resultService.getSGPAHistory(uid));
     }
+
+    // ──────────────────── COHORT ANALYTICS ────────────────────
+
+    /** GET /api/results/analytics/cohort — average, quartiles and grade histogram for one subject */
+    @GetMapping("/analytics/cohort")
+    public ResponseEntity<?> getCohortStats(
+            @RequestParam String subjectCode,
+            @RequestParam Integer semester,
+            @RequestParam(required = false) String department) {
+        if ("false".equalsIgnoreCase(systemSettingService.getSetting("feature.result.enabled"))) {
+            return ResponseEntity.status(403).body("Result module disabled.");
+        }
+        return ResponseEntity.ok(cohortStatisticsService.getCohortStats(subjectCode, semester, department));
+    }
+
+    /** GET /api/results/analytics/semester — cohort summaries for every subject of a semester */
+    @GetMapping("/analytics/semester")
+    public ResponseEntity<?> getSemesterStats(
+            @RequestParam Integer semester,
+            @RequestParam(required = false) String department) {
+        if ("false".equalsIgnoreCase(systemSettingService.getSetting("feature.result.enabled"))) {
+            return ResponseEntity.status(403).body("Result module disabled.");
+        }
+        return ResponseEntity.ok(cohortStatisticsService.getSemesterStats(semester, department));
+    }
+
+    /** GET /api/results/analytics/cohort/standing — a student's rank and percentile in a subject */
+    @GetMapping("/analytics/cohort/standing")
+    public ResponseEntity<?> getStudentStanding(
+            @RequestParam String subjectCode,
+            @RequestParam Integer semester,
+            @RequestParam(required = false) String department,
+            @RequestParam String studentUid) {
+        if ("false".equalsIgnoreCase(systemSettingService.getSetting("feature.result.enabled"))) {
+            return ResponseEntity.status(403).body("Result module disabled.");
+        }
+        try {
+            return ResponseEntity.ok(
+                    cohortStatisticsService.getStudentStanding(subjectCode, semester, department, studentUid));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,183 @@
+package com.academic.platform.dto;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Subject-level cohort summary for one (subjectCode, semester, department).
+ * Marks-based figures (average, quantiles) only cover results uploaded with
+ * raw marks; the grade histogram covers every result in the cohort.
+ */
+public class CohortStatsDTO {
+
+    public static class StudentStanding {
+        private Long studentId;
+        private Integer marks;
+        private String grade;
+        private Integer rank;
+        private Double percentile;
+        private int rankedOutOf;
+
+        public StudentStanding(Long studentId, Integer marks, String grade, Integer rank, Double percentile,
+                int rankedOutOf) {
+            this.studentId = studentId;
+            this.marks = marks;
+            this.grade = grade;
+            this.rank = rank;
+            this.percentile = percentile;
+            this.rankedOutOf = rankedOutOf;
+        }
+
+        public Long getStudentId() {
+            return studentId;
+        }
+
+        public Integer getMarks() {
+            return marks;
+        }
+
+        public String getGrade() {
+            return grade;
+        }
+
+        public Integer getRank() {
+            return rank;
+        }
+
+        public Double getPercentile() {
+            return percentile;
+        }
+
+        public int getRankedOutOf() {
+            return rankedOutOf;
+        }
+    }
+
+    private String subjectCode;
+    private Integer semester;
+    private String department; // null = all departments
+    private int studentCount;
+    private int scoredCount; // students with raw marks on record
+    private double average;
+    private int min;
+    private int max;
+    private int p25;
+    private int median;
+    private int p75;
+    private int p90;
+    private Map<String, Integer> gradeDistribution;
+    private LocalDateTime computedAt;
+
+    // Getters and Setters
+    public String getSubjectCode() {
+        return subjectCode;
+    }
+
+    public void setSubjectCode(String subjectCode) {
+        this.subjectCode = subjectCode;
+    }
+
+    public Integer getSemester() {
+        return semester;
+    }
+
+    public void setSemester(Integer semester) {
+        this.semester = semester;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(String department) {
+        this.department = department;
+    }
+
+    public int getStudentCount() {
+        return studentCount;
+    }
+
+    public void setStudentCount(int studentCount) {
+        this.studentCount = studentCount;
+    }
+
+    public int getScoredCount() {
+        return scoredCount;
+    }
+
+    public void setScoredCount(int scoredCount) {
+        this.scoredCount = scoredCount;
+    }
+
+    public double getAverage() {
+        return average;
+    }
+
+    public void setAverage(double average) {
+        this.average = average;
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public void setMin(int min) {
+        this.min = min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    public void setMax(int max) {
+        this.max = max;
+    }
+
+    public int getP25() {
+        return p25;
+    }
+
+    public void setP25(int p25) {
+        this.p25 = p25;
+    }
+
+    public int getMedian() {
+        return median;
+    }
+
+    public void setMedian(int median) {
+        this.median = median;
+    }
+
+    public int getP75() {
+        return p75;
+    }
+
+    public void setP75(int p75) {
+        this.p75 = p75;
+    }
+
+    public int getP90() {
+        return p90;
+    }
+
+    public void setP90(int p90) {
+        this.p90 = p90;
+    }
+
+    public Map<String, Integer> getGradeDistribution() {
+        return gradeDistribution;
+    }
+
+    public void setGradeDistribution(Map<String, Integer> gradeDistribution) {
+        this.gradeDistribution = gradeDistribution;
+    }
+
+    public LocalDateTime getComputedAt() {
+        return computedAt;
+    }
+
+    public void setComputedAt(LocalDateTime computedAt) {
+        this.computedAt = computedAt;
+    }
+}
@@ -0,0 +1,18 @@
+package com.academic.platform.dto;
+
+/**
+ * Lightweight roster projection used by the result entry template export.
+ * Only the columns written to the template are selected, so no User or
+ * StudentDetails entities are hydrated while streaming a large roster.
+ */
+public interface StudentRosterRow {
+    String getEmail();
+
+    String getRollNumber();
+
+    String getFullName();
+
+    String getDepartment();
+
+    Integer getSemester();
+}
@@ -7,6 +7,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
 
 @Entity
 @Table(name = "academic_calendar")
@@ -38,4 +40,11 @@ public class AcademicCalendar {
 
     @Column(nullable = false)
     private String status; // PLANNED, ACTIVE, COMPLETED, ARCHIVED
+
+    // Declared non-working weekdays within the term (weekends are always off)
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "academic_calendar_holidays", joinColumns = @JoinColumn(name = "calendar_id"))
+    @Column(name = "holiday_date")
+    @Builder.Default
+    private Set<LocalDate> holidays = new HashSet<>();
 }
@@ -0,0 +1,47 @@
+package com.academic.platform.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Daily check-ins from closed semesters, moved out of student_attendance by
+ * AttendanceArchivalService. Ids are carried over from the hot table.
+ */
+@Entity
+@Table(name = "student_attendance_archive", indexes = {
+        @Index(name = "idx_attendance_archive_student_date", columnList = "student_id,date")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AttendanceArchive {
+    @Id
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "student_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private User student;
+
+    @Column(nullable = false)
+    private LocalDate date;
+
+    private LocalTime checkInTime;
+
+    private String status;
+
+    public Attendance toAttendance() {
+        return Attendance.builder()
+                .id(id)
+                .student(student)
+                .date(date)
+                .checkInTime(checkInTime)
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,58 @@
+package com.academic.platform.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Running attendance totals per student per course section.
+ *
+ * Maintained incrementally by AttendanceCounterService (present on every mark,
+ * total on every session close) and rebuilt nightly from course_attendances,
+ * so course-wise percentages are single-row reads. The last-* dates make the
+ * increments idempotent per class day.
+ */
+@Entity
+@Table(name = "attendance_counters", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_att_counter_student_section", columnNames = { "student_id", "section_id" })
+}, indexes = {
+        @Index(name = "idx_att_counter_section", columnList = "section_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AttendanceCounter {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    @Column(name = "section_id", nullable = false)
+    private Long sectionId;
+
+    private int present;
+
+    private int total;
+
+    @Column(name = "last_present_date")
+    private LocalDate lastPresentDate;
+
+    @Column(name = "last_held_date")
+    private LocalDate lastHeldDate;
+
+    private LocalDateTime updatedAt;
+
+    public Double getPercentage() {
+        if (total <= 0)
+            return null;
+        // A mark can land before its session closes, so clamp to 100%
+        return Math.round(Math.min(present, total) * 1000.0 / total) / 10.0;
+    }
+}
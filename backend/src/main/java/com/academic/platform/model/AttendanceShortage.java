@@ -0,0 +1,53 @@
+package com.academic.platform.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDate;
+
+/**
+ * One student below the attendance threshold in a nightly shortage run.
+ * Names are copied in so the HOD dashboard renders without joins.
+ */
+@Entity
+@Table(name = "attendance_shortages", indexes = {
+        @Index(name = "idx_shortage_run_dept", columnList = "run_date,department"),
+        @Index(name = "idx_shortage_run_mentor", columnList = "run_date,mentor_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AttendanceShortage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_date", nullable = false)
+    private LocalDate runDate;
+
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    private String studentName;
+
+    @Column(length = 20)
+    private String rollNumber;
+
+    @Column(length = 50)
+    private String department;
+
+    @Column(name = "mentor_id")
+    private Long mentorId;
+
+    private int present;
+
+    private int total;
+
+    private double percentage;
+
+    @Column(length = 20)
+    private String standing; // SHORTAGE, DETAINED
+}
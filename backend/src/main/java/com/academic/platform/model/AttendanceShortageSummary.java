@@ -0,0 +1,40 @@
+package com.academic.platform.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDate;
+
+/** Per-department totals of a nightly shortage run, for the HOD dashboard. */
+@Entity
+@Table(name = "attendance_shortage_summaries", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_shortage_summary_run_dept", columnNames = { "run_date", "department" })
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AttendanceShortageSummary {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_date", nullable = false)
+    private LocalDate runDate;
+
+    @Column(length = 50)
+    private String department;
+
+    private int studentsEvaluated;
+
+    private int shortageCount;
+
+    private int detainedCount;
+
+    private double averagePercentage;
+
+    // Department average is below report.kpi.attendanceAlert
+    private boolean belowKpi;
+}
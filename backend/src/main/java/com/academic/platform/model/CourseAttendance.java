@@ -5,11 +5,16 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "course_attendances", uniqueConstraints = {
-        @UniqueConstraint(columnNames = { "session_id", "student_id" })
+        @UniqueConstraint(columnNames = { "session_id", "student_id" }),
+        // One row per student per section per day — the key used by the
+        // set-based upsert in CourseAttendanceService.saveBulkAttendance
+        @UniqueConstraint(name = "uk_course_att_section_student_date", columnNames = { "section_id", "student_id",
+                "attendance_date" })
 })
 @Data
 @NoArgsConstructor
@@ -32,12 +37,24 @@ public class CourseAttendance {
 
     private String status;
 
+    // Denormalised from the session / markedAt so (section, student, date) can be a unique key
+    @Column(name = "section_id")
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    private Long sectionId;
+
+    @Column(name = "attendance_date")
+    private LocalDate attendanceDate;
+
     @PrePersist
     protected void onCreate() {
         if (markedAt == null)
             markedAt = LocalDateTime.now();
         if (status == null)
             status = "PRESENT";
+        if (sectionId == null && session != null && session.getSection() != null)
+            sectionId = session.getSection().getId();
+        if (attendanceDate == null)
+            attendanceDate = markedAt.toLocalDate();
     }
 
     @com.fasterxml.jackson.annotation.JsonProperty("studentName")
@@ -0,0 +1,58 @@
+package com.academic.platform.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Course attendance rows from closed semesters, moved out of
+ * course_attendances by AttendanceArchivalService. Ids are carried over from
+ * the hot table; no foreign keys so the move stays a plain INSERT ... SELECT.
+ */
+@Entity
+@Table(name = "course_attendances_archive", indexes = {
+        @Index(name = "idx_caa_section_student", columnList = "section_id,student_id"),
+        @Index(name = "idx_caa_session", columnList = "session_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CourseAttendanceArchive {
+    @Id
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "session_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private CourseAttendanceSession session;
+
+    @ManyToOne
+    @JoinColumn(name = "student_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private User student;
+
+    @Column(name = "section_id")
+    private Long sectionId;
+
+    @Column(name = "attendance_date")
+    private LocalDate attendanceDate;
+
+    private LocalDateTime markedAt;
+
+    private String status;
+
+    public CourseAttendance toCourseAttendance() {
+        return CourseAttendance.builder()
+                .id(id)
+                .session(session)
+                .student(student)
+                .sectionId(sectionId)
+                .attendanceDate(attendanceDate)
+                .markedAt(markedAt)
+                .status(status)
+                .build();
+    }
+}
@@ -28,6 +28,15 @@ public class CourseAttendanceSession {
 
     private String otp;
 
+    // Rotating-code mode: codes are derived from this per-session secret
+    // instead of the static OTP. Never serialised to clients.
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    private boolean rotating;
+
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    @Column(length = 64)
+    private String secret;
+
     private LocalDateTime createdAt;
     private LocalDateTime expiresAt;
 
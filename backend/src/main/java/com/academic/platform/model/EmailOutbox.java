@@ -0,0 +1,83 @@
+package com.academic.platform.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDateTime;
+
+/**
+ * One outgoing email, written in the same transaction as the change that
+ * triggered it and delivered later by EmailOutboxDispatcher.
+ *
+ * Lifecycle: PENDING → SENDING (claimed by a dispatcher) → SENT, or back to
+ * PENDING with a later nextAttemptAt after a failure, or DEAD once the retry
+ * budget is spent. Dead rows stay for inspection and manual retry. Rows with
+ * a digestKey wait out the digest window and are then folded into one email
+ * per recipient and category; the folded rows become MERGED.
+ */
+@Entity
+@Table(name = "email_outbox", indexes = {
+        @Index(name = "idx_outbox_status_next", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_outbox_digest", columnList = "digest_key, status")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EmailOutbox {
+
+    public static final String PENDING = "PENDING";
+    public static final String SENDING = "SENDING";
+    public static final String SENT = "SENT";
+    public static final String DEAD = "DEAD";
+    public static final String MERGED = "MERGED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Comma-separated addresses */
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String recipients;
+
+    /** Recipients go in BCC instead of To (group mails) */
+    private boolean bcc;
+
+    @Column(length = 500)
+    private String subject;
+
+    @Column(columnDefinition = "MEDIUMTEXT")
+    private String body;
+
+    private boolean html;
+
+    /** OTP, LEAVE_STATUS, MEETING, GENERAL … */
+    @Column(length = 30)
+    private String category;
+
+    /** recipient|category for mails that may be coalesced; null for immediate mails */
+    @Column(name = "digest_key", length = 320)
+    private String digestKey;
+
+    /** For MERGED rows, the row whose digest carried this mail */
+    private Long mergedInto;
+
+    @Column(length = 10, nullable = false)
+    private String status;
+
+    private int attempts;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime claimedAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime sentAt;
+}
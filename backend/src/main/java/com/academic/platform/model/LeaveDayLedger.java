@@ -0,0 +1,44 @@
+package com.academic.platform.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDateTime;
+
+/**
+ * Leave days a student has pending and approved in one semester.
+ *
+ * Maintained incrementally by LeaveLedgerService as leaves are applied for,
+ * edited, decided and cancelled, and rebuilt nightly from leave_requests, so
+ * the policy.leave.maxDays check reads one row instead of the student's whole
+ * leave history. Semester 0 holds leaves of students with no semester set.
+ */
+@Entity
+@Table(name = "leave_day_ledgers", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_ledger_student_semester", columnNames = { "student_id", "semester" })
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LeaveDayLedger {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    @Column(nullable = false)
+    private int semester;
+
+    @Column(name = "pending_days")
+    private int pendingDays;
+
+    @Column(name = "approved_days")
+    private int approvedDays;
+
+    private LocalDateTime updatedAt;
+}
@@ -6,7 +6,14 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 @Entity
-@Table(name = "leave_requests")
+@Table(name = "leave_requests", indexes = {
+        // Students currently out: actual_return_time IS NULL AND actual_exit_time IS NOT NULL
+        @Index(name = "idx_leave_out", columnList = "actualReturnTime, actualExitTime"),
+        // Mentor queue: mentor_id = ? ... ORDER BY id DESC, paged by id
+        @Index(name = "idx_leave_mentor_queue", columnList = "mentor_id, id"),
+        // Overlap check: student_id = ? AND to_date >= ? AND from_date <= ?
+        @Index(name = "idx_leave_student_dates", columnList = "student_id, toDate")
+})
 public class LeaveRequest {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -16,6 +23,14 @@ public class LeaveRequest {
     @JoinColumn(name = "student_id", nullable = false)
     private User student;
 
+    // Copy of student.studentDetails.mentor.id so the mentor queue needs no join
+    @Column(name = "mentor_id")
+    private Long mentorId;
+
+    // Semester whose leave-day ledger this leave is charged to (student's semester when applied)
+    @Column(name = "ledger_semester")
+    private Integer ledgerSemester;
+
     private String leaveType; // Medical, Personal, etc.
     private LocalDate fromDate;
     private LocalDate toDate;
@@ -86,6 +101,22 @@ public class LeaveRequest {
         this.student = student;
     }
 
+    public Long getMentorId() {
+        return mentorId;
+    }
+
+    public void setMentorId(Long mentorId) {
+        this.mentorId = mentorId;
+    }
+
+    public Integer getLedgerSemester() {
+        return ledgerSemester;
+    }
+
+    public void setLedgerSemester(Integer ledgerSemester) {
+        this.ledgerSemester = ledgerSemester;
+    }
+
     public String getLeaveType() {
         return leaveType;
     }
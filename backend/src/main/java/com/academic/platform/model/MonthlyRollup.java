@@ -0,0 +1,52 @@
+package com.academic.platform.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDateTime;
+
+/**
+ * Per-month totals of a metric for one department, e.g. students enrolled or
+ * fees collected in March 2025 for CSE.
+ *
+ * Maintained incrementally by MonthlyRollupService as the underlying rows are
+ * written and rebuilt nightly from the source tables, so trend charts read a
+ * handful of rows per department-year whatever the history size. Rows without
+ * a department use an empty string so the unique key still applies.
+ */
+@Entity
+@Table(name = "monthly_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_rollup_metric_period_dept", columnNames = { "metric", "period_year",
+                "period_month", "department" })
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MonthlyRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** ENROLLMENT or FEE_COLLECTED */
+    @Column(length = 30, nullable = false)
+    private String metric;
+
+    @Column(name = "period_year", nullable = false)
+    private int periodYear;
+
+    @Column(name = "period_month", nullable = false)
+    private int periodMonth;
+
+    @Column(length = 50, nullable = false)
+    private String department;
+
+    @Column(name = "item_count")
+    private long itemCount;
+
+    private double amount;
+
+    private LocalDateTime updatedAt;
+}
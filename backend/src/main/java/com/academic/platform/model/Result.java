@@ -26,6 +26,7 @@ public class Result {
     private String subjectCode;
     private String subjectName;
     private String grade; // e.g. "A+", "O", "9.5"
+    private Integer marks; // raw marks from bulk upload, null for legacy rows
     private Integer credits;
     private Integer semester;
 
@@ -0,0 +1,64 @@
+package com.academic.platform.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One row per student who has an open approved leave — the leave the gate
+ * should act on next and where the student stands.
+ *
+ * Maintained by GateStateService whenever a leave is approved, rejected,
+ * exited or returned, so a gate scan is a single lookup by roll number and
+ * the "who is outside now" list is a single index range on state. Students
+ * with no open approved leave have no row.
+ */
+@Entity
+@Table(name = "student_gate_states", indexes = {
+        @Index(name = "idx_gate_state_roll", columnList = "roll_number"),
+        @Index(name = "idx_gate_state_state_return", columnList = "state, expected_return_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StudentGateState {
+
+    public static final String APPROVED = "APPROVED"; // approved, not yet exited
+    public static final String OUT = "OUT";
+    public static final String OVERDUE = "OVERDUE"; // out past the planned return
+
+    @Id
+    @Column(name = "student_id")
+    private Long studentId;
+
+    @Column(name = "roll_number", length = 20)
+    private String rollNumber;
+
+    @Column(length = 150)
+    private String studentName;
+
+    @Column(length = 50)
+    private String department;
+
+    @Column(name = "leave_id", nullable = false)
+    private Long leaveId;
+
+    @Column(length = 20, nullable = false)
+    private String state;
+
+    private LocalDate fromDate;
+
+    private LocalDate toDate;
+
+    private LocalDateTime exitedAt;
+
+    @Column(name = "expected_return_at")
+    private LocalDateTime expectedReturnAt;
+
+    private LocalDateTime updatedAt;
+}
@@ -4,9 +4,12 @@ import com.academic.platform.model.AcademicCalendar;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface AcademicCalendarRepository extends JpaRepository<AcademicCalendar, Long> {
     Optional<AcademicCalendar> findByIsCurrentTrue();
+
+    List<AcademicCalendar> findAllByOrderByStartDateAsc();
 }
@@ -0,0 +1,10 @@
+package com.academic.platform.repository;
+
+import com.academic.platform.model.AttendanceArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface AttendanceArchiveRepository extends JpaRepository<AttendanceArchive, Long> {
+    List<AttendanceArchive> findByStudentFirebaseUidOrderByDateDesc(String studentUid);
+}
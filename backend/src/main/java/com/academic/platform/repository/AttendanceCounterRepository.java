@@ -0,0 +1,20 @@
+package com.academic.platform.repository;
+
+import com.academic.platform.model.AttendanceCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface AttendanceCounterRepository extends JpaRepository<AttendanceCounter, Long> {
+    List<AttendanceCounter> findByStudentId(Long studentId);
+
+    List<AttendanceCounter> findBySectionId(Long sectionId);
+
+    /** Rows of [studentId, sum(present), sum(total)] across all sections of each student. */
+    @Query("SELECT c.studentId, SUM(c.present), SUM(c.total) FROM AttendanceCounter c "
+            + "WHERE c.studentId IN :studentIds GROUP BY c.studentId")
+    List<Object[]> sumByStudentIds(@Param("studentIds") Collection<Long> studentIds);
+}
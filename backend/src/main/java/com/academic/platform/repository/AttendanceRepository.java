@@ -21,7 +21,8 @@ public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
             @org.springframework.data.repository.query.Param("mentorUid") String mentorUid,
             @org.springframework.data.repository.query.Param("date") LocalDate date);
 
-    Optional<Attendance> findFirstByOrderByDateAsc();
+    long countByStudentFirebaseUidAndStatusInAndDateBetween(String studentUid, java.util.Collection<String> statuses,
+            LocalDate start, LocalDate end);
 
     @org.springframework.data.jpa.repository.Query("SELECT a.date, COUNT(a) FROM Attendance a WHERE a.date >= :startDate GROUP BY a.date ORDER BY a.date ASC")
     List<Object[]> findDailyAttendanceStats(
@@ -0,0 +1,25 @@
+package com.academic.platform.repository;
+
+import com.academic.platform.model.AttendanceShortage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface AttendanceShortageRepository extends JpaRepository<AttendanceShortage, Long> {
+    List<AttendanceShortage> findByRunDateAndDepartmentOrderByPercentageAsc(LocalDate runDate, String department);
+
+    List<AttendanceShortage> findByRunDateAndMentorIdOrderByPercentageAsc(LocalDate runDate, Long mentorId);
+
+    @Query("SELECT DISTINCT s.mentorId FROM AttendanceShortage s WHERE s.runDate = :runDate AND s.mentorId IS NOT NULL")
+    List<Long> findMentorIdsByRunDate(@Param("runDate") LocalDate runDate);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AttendanceShortage s WHERE s.runDate = :runDate OR s.runDate < :before")
+    int deleteRunOrOlder(@Param("runDate") LocalDate runDate, @Param("before") LocalDate before);
+}
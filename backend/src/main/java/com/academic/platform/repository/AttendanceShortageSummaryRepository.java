@@ -0,0 +1,20 @@
+package com.academic.platform.repository;
+
+import com.academic.platform.model.AttendanceShortageSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+public interface AttendanceShortageSummaryRepository extends JpaRepository<AttendanceShortageSummary, Long> {
+    Optional<AttendanceShortageSummary> findTopByDepartmentOrderByRunDateDesc(String department);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AttendanceShortageSummary s WHERE s.runDate = :runDate OR s.runDate < :before")
+    int deleteRunOrOlder(@Param("runDate") LocalDate runDate, @Param("before") LocalDate before);
+}
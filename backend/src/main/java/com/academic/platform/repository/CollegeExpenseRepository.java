@@ -2,8 +2,11 @@ package com.academic.platform.repository;
 
 import com.academic.platform.model.CollegeExpense;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Repository
@@ -14,4 +17,11 @@ public interface CollegeExpenseRepository extends JpaRepository<CollegeExpense,
     List<CollegeExpense> findByAcademicYear(String academicYear);
 
     List<CollegeExpense> findByExpenseType(String expenseType);
+
+    /** [year, month, totalSpent] for expenses since the given date, oldest first. */
+    @Query("SELECT YEAR(e.expenseDate), MONTH(e.expenseDate), SUM(e.amount) " +
+            "FROM CollegeExpense e WHERE e.expenseDate >= :from " +
+            "GROUP BY YEAR(e.expenseDate), MONTH(e.expenseDate) " +
+            "ORDER BY YEAR(e.expenseDate), MONTH(e.expenseDate)")
+    List<Object[]> getMonthlyExpenseTotalsSince(@Param("from") LocalDate from);
 }
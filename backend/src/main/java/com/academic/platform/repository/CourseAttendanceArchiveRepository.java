@@ -0,0 +1,14 @@
+package com.academic.platform.repository;
+
+import com.academic.platform.model.CourseAttendanceArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface CourseAttendanceArchiveRepository extends JpaRepository<CourseAttendanceArchive, Long> {
+    List<CourseAttendanceArchive> findBySessionId(Long sessionId);
+
+    List<CourseAttendanceArchive> findBySectionIdAndStudentId(Long sectionId, Long studentId);
+
+    boolean existsBySectionId(Long sectionId);
+}
@@ -2,6 +2,9 @@ package com.academic.platform.repository;
 
 import com.academic.platform.model.CourseAttendance;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface CourseAttendanceRepository extends JpaRepository<CourseAttendance, Long> {
@@ -12,4 +15,13 @@ public interface CourseAttendanceRepository extends JpaRepository<CourseAttendan
     boolean existsBySessionIdAndStudentId(Long sessionId, Long studentId);
 
     List<CourseAttendance> findBySessionSectionIdAndStudentId(Long sectionId, Long studentId);
+
+    // Served by the (section_id, student_id, attendance_date) unique key, no join to sessions
+    List<CourseAttendance> findBySectionIdAndStudentId(Long sectionId, Long studentId);
+
+    @Query("SELECT a.student.id FROM CourseAttendance a WHERE a.session.section.id = :sectionId "
+            + "AND a.markedAt BETWEEN :start AND :end")
+    List<Long> findStudentIdsMarkedForSectionBetween(@Param("sectionId") Long sectionId,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end);
 }
@@ -2,6 +2,9 @@ package com.academic.platform.repository;
 
 import com.academic.platform.model.CourseAttendanceSession;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.util.List;
 import java.util.Optional;
 import java.time.LocalDateTime;
@@ -16,4 +19,9 @@ public interface CourseAttendanceSessionRepository extends JpaRepository<CourseA
 
     List<CourseAttendanceSession> findBySectionIdAndCreatedAtBetweenOrderByCreatedAtDesc(Long sectionId,
             LocalDateTime start, LocalDateTime end);
+
+    /** Closes every active session of a section in one UPDATE. */
+    @Modifying
+    @Query("UPDATE CourseAttendanceSession s SET s.active = false WHERE s.section.id = :sectionId AND s.active = true")
+    int deactivateActiveSessions(@Param("sectionId") Long sectionId);
 }
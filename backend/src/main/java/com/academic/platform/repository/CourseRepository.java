@@ -12,4 +12,6 @@ public interface CourseRepository extends JpaRepository<Course, Long> {
     Optional<Course> findByCode(String code);
 
     List<Course> findByDepartment(String department);
+
+    long countByDepartment(String department);
 }
@@ -0,0 +1,17 @@
+package com.academic.platform.repository;
+
+import com.academic.platform.model.EmailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    List<EmailOutbox> findByStatusOrderByIdDesc(String status, Pageable page);
+
+    /** Rows of [status, count] */
+    @Query("SELECT o.status, COUNT(o) FROM EmailOutbox o GROUP BY o.status")
+    List<Object[]> countByStatus();
+}
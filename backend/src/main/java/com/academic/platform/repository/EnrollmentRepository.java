@@ -20,4 +20,8 @@ public interface EnrollmentRepository extends JpaRepository<Enrollment, Long> {
     List<Enrollment> findBySectionId(Long sectionId);
 
     Optional<Enrollment> findByStudentAndSection_Course(User student, com.academic.platform.model.Course course);
+
+    @org.springframework.data.jpa.repository.Query("SELECT e.student.id FROM Enrollment e WHERE e.section.id = :sectionId")
+    List<Long> findStudentIdsBySectionId(
+            @org.springframework.data.repository.query.Param("sectionId") Long sectionId);
 }
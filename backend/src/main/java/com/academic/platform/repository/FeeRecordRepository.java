@@ -27,4 +27,11 @@ public interface FeeRecordRepository extends JpaRepository<FeeRecord, Long> {
             "FROM FeeRecord f WHERE f.paymentStatus = 'Paid' AND f.paymentDate IS NOT NULL " +
             "GROUP BY MONTH(f.paymentDate) ORDER BY MONTH(f.paymentDate)")
     List<Object[]> getMonthlyCollectionTotals();
+
+    /** [year, month, totalCollected] for Paid fees since the given date, oldest first. */
+    @Query("SELECT YEAR(f.paymentDate), MONTH(f.paymentDate), SUM(f.totalAmount) " +
+            "FROM FeeRecord f WHERE f.paymentStatus = 'Paid' AND f.paymentDate >= :from " +
+            "GROUP BY YEAR(f.paymentDate), MONTH(f.paymentDate) " +
+            "ORDER BY YEAR(f.paymentDate), MONTH(f.paymentDate)")
+    List<Object[]> getMonthlyCollectionTotalsSince(@Param("from") java.time.LocalDate from);
 }
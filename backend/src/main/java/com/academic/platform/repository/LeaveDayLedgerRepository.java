@@ -0,0 +1,11 @@
+package com.academic.platform.repository;
+
+import com.academic.platform.model.LeaveDayLedger;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface LeaveDayLedgerRepository extends JpaRepository<LeaveDayLedger, Long> {
+
+    Optional<LeaveDayLedger> findByStudentIdAndSemester(Long studentId, int semester);
+}
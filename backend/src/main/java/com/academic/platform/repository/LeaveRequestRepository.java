@@ -11,9 +11,34 @@ import java.util.Optional;
 public interface LeaveRequestRepository extends JpaRepository<LeaveRequest, Long> {
         List<LeaveRequest> findByStudentFirebaseUid(String studentUid);
 
-        @org.springframework.data.jpa.repository.Query("SELECT l FROM LeaveRequest l WHERE l.student.studentDetails.mentor.firebaseUid = :mentorUid AND (l.parentStatus = 'APPROVED' OR l.parentStatus = 'PENDING')")
-        List<LeaveRequest> findByStudentMentorFirebaseUidAndParentStatus(
-                        @org.springframework.data.repository.query.Param("mentorUid") String mentorUid);
+        /** One page of a mentor's queue, newest first; pass the last id seen as beforeId. */
+        @org.springframework.data.jpa.repository.Query("SELECT l FROM LeaveRequest l WHERE l.mentorId = :mentorId "
+                        + "AND l.id < :beforeId AND (l.parentStatus = 'APPROVED' OR l.parentStatus = 'PENDING') "
+                        + "ORDER BY l.id DESC")
+        List<LeaveRequest> findMentorQueuePage(
+                        @org.springframework.data.repository.query.Param("mentorId") Long mentorId,
+                        @org.springframework.data.repository.query.Param("beforeId") Long beforeId,
+                        org.springframework.data.domain.Pageable page);
+
+        long countByMentorIdAndMentorStatus(Long mentorId, String mentorStatus);
+
+        @org.springframework.data.jpa.repository.Modifying
+        @org.springframework.transaction.annotation.Transactional
+        @org.springframework.data.jpa.repository.Query("UPDATE LeaveRequest l SET l.mentorId = :mentorId WHERE l.student.id = :studentId")
+        int updateMentorForStudent(
+                        @org.springframework.data.repository.query.Param("studentId") Long studentId,
+                        @org.springframework.data.repository.query.Param("mentorId") Long mentorId);
+
+        /** Ids of the student's pending or approved leaves intersecting [fromDate, toDate], other than excludeId. */
+        @org.springframework.data.jpa.repository.Query("SELECT l.id FROM LeaveRequest l WHERE l.student.id = :studentId "
+                        + "AND l.toDate >= :fromDate AND l.fromDate <= :toDate AND l.id <> :excludeId "
+                        + "AND (l.mentorStatus = 'PENDING' OR l.mentorStatus = 'APPROVED')")
+        List<Long> findOverlappingLeaveIds(
+                        @org.springframework.data.repository.query.Param("studentId") Long studentId,
+                        @org.springframework.data.repository.query.Param("excludeId") Long excludeId,
+                        @org.springframework.data.repository.query.Param("fromDate") LocalDate fromDate,
+                        @org.springframework.data.repository.query.Param("toDate") LocalDate toDate,
+                        org.springframework.data.domain.Pageable page);
 
         Optional<LeaveRequest> findByParentActionToken(String token);
 
@@ -21,6 +46,13 @@ public interface LeaveRequestRepository extends JpaRepository<LeaveRequest, Long
         List<LeaveRequest> findByStudentStudentDetails_DepartmentOrderByCreatedAtDesc(
                         @org.springframework.data.repository.query.Param("department") String department);
 
+        List<LeaveRequest> findTop5ByStudentStudentDetails_DepartmentOrderByCreatedAtDesc(String department);
+
+        @org.springframework.data.jpa.repository.Query("SELECT COUNT(l) FROM LeaveRequest l WHERE l.student.studentDetails.department = :department "
+                        + "AND (l.mentorStatus = 'PENDING' OR l.parentStatus = 'PENDING')")
+        long countPendingByDepartment(
+                        @org.springframework.data.repository.query.Param("department") String department);
+
         @org.springframework.data.jpa.repository.Query("SELECT l FROM LeaveRequest l WHERE l.student.studentDetails.rollNumber = :rollNumber")
         List<LeaveRequest> findByStudentStudentDetails_RollNumber(
                         @org.springframework.data.repository.query.Param("rollNumber") String rollNumber);
@@ -39,6 +71,41 @@ public interface LeaveRequestRepository extends JpaRepository<LeaveRequest, Long
         List<LeaveRequest> findApprovedLeavesByDate(
                         @org.springframework.data.repository.query.Param("date") LocalDate date);
 
+        /**
+         * APPROVED leaves of a student still open at the gate: exited and not
+         * returned, or not yet exited and not ended. Input to the gate state.
+         */
+        @org.springframework.data.jpa.repository.Query("SELECT l FROM LeaveRequest l WHERE l.student.id = :studentId "
+                        + "AND l.mentorStatus = 'APPROVED' AND l.actualReturnTime IS NULL "
+                        + "AND (l.actualExitTime IS NOT NULL OR l.toDate >= :today)")
+        List<LeaveRequest> findOpenApprovedLeavesByStudentId(
+                        @org.springframework.data.repository.query.Param("studentId") Long studentId,
+                        @org.springframework.data.repository.query.Param("today") LocalDate today);
+
+        @org.springframework.data.jpa.repository.Query("SELECT l FROM LeaveRequest l "
+                        + "WHERE l.mentorStatus = 'APPROVED' AND l.actualReturnTime IS NULL "
+                        + "AND (l.actualExitTime IS NOT NULL OR l.toDate >= :today)")
+        List<LeaveRequest> findOpenApprovedLeaves(
+                        @org.springframework.data.repository.query.Param("today") LocalDate today);
+
+        /** Approved leaves whose student has exited and not yet returned (uses idx_leave_out). */
+        @org.springframework.data.jpa.repository.Query("SELECT l FROM LeaveRequest l "
+                        + "WHERE l.actualReturnTime IS NULL AND l.actualExitTime IS NOT NULL "
+                        + "AND l.mentorStatus = 'APPROVED'")
+        List<LeaveRequest> findStudentsOutLeaves();
+
+        /**
+         * APPROVED leaves visible at the gate: not yet exited and not ended, currently
+         * out, or returned after the cutoff. Loads the gate search index.
+         */
+        @org.springframework.data.jpa.repository.Query("SELECT l FROM LeaveRequest l WHERE l.mentorStatus = 'APPROVED' AND ("
+                        + "(l.actualExitTime IS NULL AND l.actualReturnTime IS NULL AND l.toDate >= :today) "
+                        + "OR (l.actualExitTime IS NOT NULL AND l.actualReturnTime IS NULL) "
+                        + "OR l.actualReturnTime > :returnCutoff)")
+        List<LeaveRequest> findGateRelevantLeaves(
+                        @org.springframework.data.repository.query.Param("today") LocalDate today,
+                        @org.springframework.data.repository.query.Param("returnCutoff") java.time.LocalDateTime returnCutoff);
+
         /**
          * Search APPROVED leaves by roll number (partial, case-insensitive).
          */
@@ -0,0 +1,26 @@
+package com.academic.platform.repository;
+
+import com.academic.platform.model.MonthlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface MonthlyRollupRepository extends JpaRepository<MonthlyRollup, Long> {
+
+    /**
+     * Rows of [year, month, sum(itemCount), sum(amount)] for a metric between two
+     * periods encoded as year * 12 + (month - 1), inclusive. The year bounds let
+     * the (metric, year, ...) unique key narrow the scan. A null department sums
+     * every department.
+     */
+    @Query("SELECT r.periodYear, r.periodMonth, SUM(r.itemCount), SUM(r.amount) FROM MonthlyRollup r "
+            + "WHERE r.metric = :metric AND (:department IS NULL OR r.department = :department) "
+            + "AND r.periodYear BETWEEN :fromYear AND :toYear "
+            + "AND r.periodYear * 12 + r.periodMonth - 1 BETWEEN :fromPeriod AND :toPeriod "
+            + "GROUP BY r.periodYear, r.periodMonth ORDER BY r.periodYear, r.periodMonth")
+    List<Object[]> sumByPeriod(@Param("metric") String metric, @Param("department") String department,
+            @Param("fromYear") int fromYear, @Param("toYear") int toYear,
+            @Param("fromPeriod") int fromPeriod, @Param("toPeriod") int toPeriod);
+}
@@ -3,6 +3,8 @@ package com.academic.platform.repository;
 import com.academic.platform.model.Result;
 import com.academic.platform.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,4 +16,22 @@ public interface ResultRepository extends JpaRepository<Result, Long> {
     List<Result> findByStudentAndSemester(User student, Integer semester);
 
     List<Result> findTop50ByOrderByPublishedDateDesc();
+
+    /**
+     * Cohort rows for statistics — returns [studentId, marks, grade] ordered by
+     * student and newest result first, so the latest upload wins per student.
+     */
+    @Query("SELECT s.id, r.marks, r.grade FROM Result r JOIN r.student s LEFT JOIN s.studentDetails sd "
+            + "WHERE r.subjectCode = :subjectCode AND r.semester = :semester "
+            + "AND (:department IS NULL OR sd.department = :department) "
+            + "ORDER BY s.id ASC, r.id DESC")
+    List<Object[]> findCohortRows(@Param("subjectCode") String subjectCode,
+            @Param("semester") Integer semester,
+            @Param("department") String department);
+
+    @Query("SELECT DISTINCT r.subjectCode FROM Result r JOIN r.student s LEFT JOIN s.studentDetails sd "
+            + "WHERE r.semester = :semester AND (:department IS NULL OR sd.department = :department) "
+            + "ORDER BY r.subjectCode")
+    List<String> findDistinctSubjectCodes(@Param("semester") Integer semester,
+            @Param("department") String department);
 }
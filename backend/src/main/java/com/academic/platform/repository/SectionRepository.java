@@ -3,6 +3,8 @@ package com.academic.platform.repository;
 import com.academic.platform.model.Section;
 import com.academic.platform.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -17,4 +19,15 @@ public interface SectionRepository extends JpaRepository<Section, Long> {
             String semester, Integer year);
 
     List<Section> findBySemester(String semester);
+
+    /**
+     * Distinct course codes offered in a semester, optionally restricted to
+     * sections taught by faculty of the given department — resolved in one join.
+     */
+    @Query("SELECT DISTINCT c.code FROM Section s JOIN s.course c JOIN s.faculty f LEFT JOIN f.studentDetails fd "
+            + "WHERE s.semester = :semester "
+            + "AND (:department IS NULL OR LOWER(fd.department) = LOWER(:department)) "
+            + "ORDER BY c.code")
+    List<String> findDistinctCourseCodesBySemester(@Param("semester") String semester,
+            @Param("department") String department);
 }
@@ -0,0 +1,28 @@
+package com.academic.platform.repository;
+
+import com.academic.platform.model.StudentGateState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface StudentGateStateRepository extends JpaRepository<StudentGateState, Long> {
+
+    Optional<StudentGateState> findFirstByRollNumber(String rollNumber);
+
+    List<StudentGateState> findByStateInOrderByExpectedReturnAtAsc(Collection<String> states);
+
+    /** Flips one student still out on the given leave to OVERDUE (primary-key lookup). */
+    @Modifying
+    @Transactional
+    @Query("UPDATE StudentGateState g SET g.state = 'OVERDUE', g.updatedAt = :now "
+            + "WHERE g.studentId = :studentId AND g.leaveId = :leaveId AND g.state = 'OUT'")
+    int markOverdue(@Param("studentId") Long studentId, @Param("leaveId") Long leaveId,
+            @Param("now") LocalDateTime now);
+}
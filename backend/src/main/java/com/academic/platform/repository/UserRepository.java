@@ -2,9 +2,15 @@ package com.academic.platform.repository;
 
 import com.academic.platform.model.User;
 import com.academic.platform.model.Role;
+import com.academic.platform.dto.StudentRosterRow;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import java.util.Optional;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByFirebaseUid(String firebaseUid);
@@ -33,7 +39,32 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     long countByRole(Role role);
 
+    long countByStudentDetails_DepartmentAndRole(String department, Role role);
+
     long countByRoleIn(List<Role> roles);
 
     long countByRoleAndGender(Role role, String gender);
+
+    /**
+     * Streams the student roster as a scalar projection (no entity hydration).
+     * The MIN_VALUE fetch size makes MySQL Connector/J stream rows instead of
+     * buffering the whole result set, so a campus-wide export stays flat on
+     * memory. Must be consumed inside a read-only transaction.
+     */
+    @Query("SELECT u.email AS email, sd.rollNumber AS rollNumber, u.fullName AS fullName, "
+            + "sd.department AS department, sd.semester AS semester "
+            + "FROM User u JOIN u.studentDetails sd "
+            + "WHERE u.role = :role "
+            + "AND (:department IS NULL OR sd.department = :department) "
+            + "AND (:semester IS NULL OR sd.semester = :semester) "
+            + "ORDER BY sd.rollNumber")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "-2147483648"))
+    Stream<StudentRosterRow> streamRoster(@Param("role") Role role,
+            @Param("department") String department,
+            @Param("semester") Integer semester);
+
+    /** Rows of [rollNumber, userId] used to resolve gate device ids without per-line lookups. */
+    @Query("SELECT sd.rollNumber, u.id FROM User u JOIN u.studentDetails sd "
+            + "WHERE u.role = :role AND sd.rollNumber IS NOT NULL")
+    List<Object[]> findRollNumberIndex(@Param("role") Role role);
 }
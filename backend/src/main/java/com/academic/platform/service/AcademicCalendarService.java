@@ -0,0 +1,72 @@
+package com.academic.platform.service;
+
+import com.academic.platform.model.AcademicCalendar;
+import com.academic.platform.repository.AcademicCalendarRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Service
+public class AcademicCalendarService {
+
+    @Autowired
+    private AcademicCalendarRepository calendarRepository;
+
+    @Autowired
+    private WorkingDayCalendar workingDayCalendar;
+
+    public List<AcademicCalendar> getAll() {
+        return calendarRepository.findAllByOrderByStartDateAsc();
+    }
+
+    public AcademicCalendar getCurrent() {
+        return calendarRepository.findByIsCurrentTrue()
+                .orElseThrow(() -> new RuntimeException("No current semester is set"));
+    }
+
+    /** Creates or updates a term. Marking it current clears the flag on every other term. */
+    @Transactional
+    public AcademicCalendar save(AcademicCalendar calendar) {
+        if (calendar.getStartDate() == null || calendar.getEndDate() == null
+                || calendar.getEndDate().isBefore(calendar.getStartDate())) {
+            throw new RuntimeException("Semester start and end dates are required and must be in order");
+        }
+        if (calendar.getStatus() == null) {
+            calendar.setStatus("PLANNED");
+        }
+        if (calendar.getHolidays() == null) {
+            calendar.setHolidays(new HashSet<>());
+        }
+        if (calendar.isCurrent()) {
+            for (AcademicCalendar other : calendarRepository.findAll()) {
+                if (other.isCurrent() && !other.getId().equals(calendar.getId())) {
+                    other.setCurrent(false);
+                    calendarRepository.save(other);
+                }
+            }
+        }
+        AcademicCalendar saved = calendarRepository.save(calendar);
+        workingDayCalendar.invalidate();
+        return saved;
+    }
+
+    @Transactional
+    public AcademicCalendar setHolidays(Long calendarId, Set<LocalDate> holidays) {
+        AcademicCalendar calendar = calendarRepository.findById(calendarId)
+                .orElseThrow(() -> new RuntimeException("Academic calendar not found"));
+        calendar.getHolidays().clear();
+        calendar.getHolidays().addAll(holidays);
+        AcademicCalendar saved = calendarRepository.save(calendar);
+        workingDayCalendar.invalidate();
+        return saved;
+    }
+
+    public long getWorkingDays(LocalDate from, LocalDate to) {
+        return workingDayCalendar.workingDaysBetween(from, to);
+    }
+}
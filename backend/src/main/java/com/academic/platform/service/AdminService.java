@@ -2,26 +2,90 @@ package com.academic.platform.service;
 
 import com.academic.platform.model.Role;
 import com.academic.platform.repository.AttendanceRepository;
+import com.academic.platform.repository.CollegeExpenseRepository;
+import com.academic.platform.repository.FeeRecordRepository;
 import com.academic.platform.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
+/**
+ * Campus-wide admin dashboard.
+ *
+ * Scalability: the payload (user counts, gender split, 7-day attendance and
+ * monthly income / expense) is computed on a schedule rather than per page
+ * view. Each run builds a fresh immutable map and publishes it with one
+ * volatile write, so readers never see a half-built dashboard and an admin
+ * page load is a field read. {@link #refresh()} rebuilds on demand.
+ */
 @Service
 public class AdminService {
 
+    private static final Logger logger = Logger.getLogger(AdminService.class.getName());
+
+    private static final int EARNINGS_MONTHS = 7;
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
     private AttendanceRepository attendanceRepository;
 
+    @Autowired
+    private FeeRecordRepository feeRecordRepository;
+
+    @Autowired
+    private CollegeExpenseRepository collegeExpenseRepository;
+
+    private volatile Map<String, Object> dashboard;
+
     public Map<String, Object> getDashboardStats() {
+        Map<String, Object> current = dashboard;
+        if (current == null) {
+            // First page view before the scheduled build
+            synchronized (this) {
+                if (dashboard == null)
+                    refresh();
+                current = dashboard;
+            }
+        }
+        return current;
+    }
+
+    /** Every 5 minutes; the 7-day attendance chart and totals tolerate that lag. */
+    @Scheduled(initialDelay = 20000, fixedDelay = 300000)
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            logger.warning("Admin dashboard refresh failed: " + e.getMessage());
+        }
+    }
+
+    public synchronized Map<String, Object> refresh() {
+        long start = System.currentTimeMillis();
+        Map<String, Object> stats = computeDashboardStats();
+        stats.put("generatedAt", LocalDateTime.now());
+        stats.put("generationMillis", System.currentTimeMillis() - start);
+        dashboard = Collections.unmodifiableMap(stats);
+        return dashboard;
+    }
+
+    private Map<String, Object> computeDashboardStats() {
         Map<String, Object> stats = new HashMap<>();
 
         // 1. User Counts
@@ -78,16 +142,38 @@ public class AdminService {
 
         stats.put("attendanceData", attendanceChart);
 
-        // 4. Earnings (Mock - as this module likely doesn't exist)
-        stats.put("earningsData", List.of(
-                Map.of("name", "Jun", "income", 400, "expense", 240),
-                Map.of("name", "Jul", "income", 300, "expense", 139),
-                Map.of("name", "Aug", "income", 500, "expense", 280),
-                Map.of("name", "Sep", "income", 200, "expense", 390),
-                Map.of("name", "Oct", "income", 278, "expense", 190),
-                Map.of("name", "Nov", "income", 189, "expense", 480),
-                Map.of("name", "Dec", "income", 239, "expense", 380)));
+        // 4. Earnings: Paid fees vs recorded expenses per month
+        stats.put("earningsData", monthlyEarnings());
 
         return stats;
     }
+
+    private List<Map<String, Object>> monthlyEarnings() {
+        YearMonth first = YearMonth.now().minusMonths(EARNINGS_MONTHS - 1);
+        LocalDate from = first.atDay(1);
+        Map<YearMonth, Double> income = byMonth(feeRecordRepository.getMonthlyCollectionTotalsSince(from));
+        Map<YearMonth, Double> expense = byMonth(collegeExpenseRepository.getMonthlyExpenseTotalsSince(from));
+
+        List<Map<String, Object>> earnings = new ArrayList<>(EARNINGS_MONTHS);
+        for (int i = 0; i < EARNINGS_MONTHS; i++) {
+            YearMonth month = first.plusMonths(i);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("name", month.getMonth().getDisplayName(TextStyle.SHORT, Locale.ENGLISH));
+            row.put("income", Math.round(income.getOrDefault(month, 0.0)));
+            row.put("expense", Math.round(expense.getOrDefault(month, 0.0)));
+            earnings.add(row);
+        }
+        return earnings;
+    }
+
+    private static Map<YearMonth, Double> byMonth(List<Object[]> rows) {
+        Map<YearMonth, Double> totals = new HashMap<>();
+        for (Object[] row : rows) {
+            if (row[2] == null)
+                continue;
+            totals.put(YearMonth.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue()),
+                    ((Number) row[2]).doubleValue());
+        }
+        return totals;
+    }
 }
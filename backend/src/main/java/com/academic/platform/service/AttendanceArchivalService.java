@@ -0,0 +1,125 @@
+package com.academic.platform.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+/**
+ * Time-based retention for attendance history.
+ *
+ * Scalability: course_attendances and student_attendance only ever grow, so
+ * the hot tables are limited to the current semester. Rows dated before the
+ * current semester start (from the academic calendar, never later than
+ * today) are moved weekly into
+ * compressed *_archive tables in primary-key chunks, each chunk copied and
+ * deleted in one short transaction so live marking is never blocked for
+ * long. Hot-path queries and their indexes then cover a single semester;
+ * historical reads go through CourseAttendanceService / AttendanceService,
+ * which merge the archive transparently.
+ */
+@Service
+public class AttendanceArchivalService {
+
+    private static final Logger logger = Logger.getLogger(AttendanceArchivalService.class.getName());
+
+    private static final int CHUNK_SIZE = 5000;
+
+    private static final String COURSE_IDS_SQL = "SELECT id FROM course_attendances "
+            + "WHERE COALESCE(attendance_date, DATE(marked_at)) < ? AND id > ? ORDER BY id LIMIT " + CHUNK_SIZE;
+    private static final String COURSE_COPY_SQL = "INSERT IGNORE INTO course_attendances_archive "
+            + "(id, session_id, student_id, section_id, attendance_date, marked_at, status) "
+            + "SELECT id, session_id, student_id, section_id, COALESCE(attendance_date, DATE(marked_at)), marked_at, status "
+            + "FROM course_attendances WHERE id BETWEEN ? AND ? AND COALESCE(attendance_date, DATE(marked_at)) < ?";
+    private static final String COURSE_DELETE_SQL = "DELETE FROM course_attendances "
+            + "WHERE id BETWEEN ? AND ? AND COALESCE(attendance_date, DATE(marked_at)) < ?";
+
+    private static final String DAILY_IDS_SQL = "SELECT id FROM student_attendance "
+            + "WHERE date < ? AND id > ? ORDER BY id LIMIT " + CHUNK_SIZE;
+    private static final String DAILY_COPY_SQL = "INSERT IGNORE INTO student_attendance_archive "
+            + "(id, student_id, date, check_in_time, status) "
+            + "SELECT id, student_id, date, check_in_time, status "
+            + "FROM student_attendance WHERE id BETWEEN ? AND ? AND date < ?";
+    private static final String DAILY_DELETE_SQL = "DELETE FROM student_attendance "
+            + "WHERE id BETWEEN ? AND ? AND date < ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WorkingDayCalendar workingDayCalendar;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /** Sunday 04:00, after the nightly counter and shortage jobs. */
+    @Scheduled(cron = "0 0 4 * * SUN")
+    public void archiveClosedSemesters() {
+        try {
+            archive();
+        } catch (Exception e) {
+            logger.warning("Attendance archival failed: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> archive() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        Optional<LocalDate> semesterStart = workingDayCalendar.currentSemesterStart();
+        if (semesterStart.isEmpty()) {
+            // Without a recorded semester start there is no safe cutoff
+            logger.info("Attendance archival skipped: no current academic calendar");
+            result.put("skipped", "No current semester is set");
+            return result;
+        }
+
+        // A semester start in the future (mis-entered calendar, or the next term published early) gives
+        // no cutoff that is known to exclude the running semester, so skip rather than guess
+        LocalDate cutoffDate = semesterStart.get();
+        if (cutoffDate.isAfter(LocalDate.now())) {
+            logger.warning("Attendance archival skipped: current semester starts " + cutoffDate + ", after today");
+            result.put("skipped", "Current semester starts " + cutoffDate + ", after today");
+            return result;
+        }
+        Date cutoff = Date.valueOf(cutoffDate);
+        long start = System.currentTimeMillis();
+        int courseRows = moveChunked(COURSE_IDS_SQL, COURSE_COPY_SQL, COURSE_DELETE_SQL, cutoff);
+        int dailyRows = moveChunked(DAILY_IDS_SQL, DAILY_COPY_SQL, DAILY_DELETE_SQL, cutoff);
+        logger.info("Archived " + courseRows + " course attendance rows and " + dailyRows
+                + " daily attendance rows before " + cutoff + " in " + (System.currentTimeMillis() - start) + " ms");
+
+        result.put("cutoff", cutoffDate);
+        result.put("courseAttendanceArchived", courseRows);
+        result.put("dailyAttendanceArchived", dailyRows);
+        return result;
+    }
+
+    private int moveChunked(String idsSql, String copySql, String deleteSql, Date cutoff) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int moved = 0;
+        long lastId = 0;
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(idsSql, Long.class, cutoff, lastId);
+            if (ids.isEmpty())
+                break;
+            long lo = ids.get(0);
+            long hi = ids.get(ids.size() - 1);
+            Integer deleted = transactionTemplate.execute(status -> {
+                jdbcTemplate.update(copySql, lo, hi, cutoff);
+                return jdbcTemplate.update(deleteSql, lo, hi, cutoff);
+            });
+            moved += deleted != null ? deleted : 0;
+            lastId = hi;
+        }
+        return moved;
+    }
+}
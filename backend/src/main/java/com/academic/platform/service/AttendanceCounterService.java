@@ -0,0 +1,233 @@
+package com.academic.platform.service;
+
+import com.academic.platform.model.AttendanceCounter;
+import com.academic.platform.model.Section;
+import com.academic.platform.model.User;
+import com.academic.platform.repository.AttendanceCounterRepository;
+import com.academic.platform.repository.SectionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Course-wise attendance percentages backed by the attendance_counters table.
+ *
+ * Scalability: instead of counting course_attendances rows on every dashboard
+ * or detention check, each (student, section) keeps running present/total
+ * counters. A mark bumps one row, a closed session bumps every enrolled row in
+ * one INSERT ... SELECT, and reads are a single indexed lookup. Increments are
+ * guarded by last-present / last-held dates so retries and repeated sessions
+ * on the same day count once. A nightly job rebuilds all counters from the
+ * attendance rows to correct any drift (e.g. sessions that expired while the
+ * server was down).
+ */
+@Service
+public class AttendanceCounterService {
+
+    private static final Logger logger = Logger.getLogger(AttendanceCounterService.class.getName());
+
+    /** Statuses that count as attended; "L" (late) still attended the class. */
+    public static final Set<String> PRESENT_STATUSES = Set.of("P", "PRESENT", "L");
+
+    private static final String RECORD_PRESENT_SQL = "INSERT INTO attendance_counters "
+            + "(student_id, section_id, present, total, last_present_date, updated_at) VALUES (?, ?, 1, 0, ?, NOW()) "
+            + "ON DUPLICATE KEY UPDATE "
+            + "present = IF(last_present_date IS NULL OR last_present_date < VALUES(last_present_date), present + 1, present), "
+            + "last_present_date = GREATEST(COALESCE(last_present_date, VALUES(last_present_date)), VALUES(last_present_date)), "
+            + "updated_at = NOW()";
+
+    private static final String REVOKE_PRESENT_SQL = "UPDATE attendance_counters "
+            + "SET present = present - 1, last_present_date = NULL, updated_at = NOW() "
+            + "WHERE student_id = ? AND section_id = ? AND present > 0";
+
+    private static final String RECORD_HELD_SQL = "INSERT INTO attendance_counters "
+            + "(student_id, section_id, present, total, last_held_date, updated_at) "
+            + "SELECT e.student_id, e.section_id, 0, 1, ?, NOW() FROM enrollments e WHERE e.section_id = ? "
+            + "ON DUPLICATE KEY UPDATE "
+            + "total = IF(last_held_date IS NULL OR last_held_date < VALUES(last_held_date), total + 1, total), "
+            + "last_held_date = GREATEST(COALESCE(last_held_date, VALUES(last_held_date)), VALUES(last_held_date)), "
+            + "updated_at = NOW()";
+
+    private static final String RECONCILE_SQL = "INSERT INTO attendance_counters "
+            + "(student_id, section_id, present, total, last_present_date, last_held_date, updated_at) "
+            + "SELECT e.student_id, e.section_id, COALESCE(p.present, 0), COALESCE(h.total, 0), "
+            + "p.last_present, h.last_held, NOW() "
+            + "FROM enrollments e "
+            + "LEFT JOIN (SELECT section_id, student_id, COUNT(DISTINCT attendance_date) AS present, "
+            + "MAX(attendance_date) AS last_present FROM ("
+            + "SELECT section_id, student_id, attendance_date FROM course_attendances "
+            + "WHERE status IN ('P', 'PRESENT', 'L') AND attendance_date IS NOT NULL "
+            // Sections straddling the archival cutoff: count their archived rows too
+            + "UNION ALL SELECT a.section_id, a.student_id, a.attendance_date FROM course_attendances_archive a "
+            + "WHERE a.status IN ('P', 'PRESENT', 'L') "
+            + "AND EXISTS (SELECT 1 FROM course_attendances c WHERE c.section_id = a.section_id)) marks "
+            + "GROUP BY section_id, student_id) p ON p.section_id = e.section_id AND p.student_id = e.student_id "
+            + "LEFT JOIN (SELECT section_id, COUNT(DISTINCT DATE(created_at)) AS total, "
+            + "MAX(DATE(created_at)) AS last_held FROM course_attendance_sessions "
+            + "WHERE active = false OR expires_at < NOW() GROUP BY section_id) h ON h.section_id = e.section_id "
+            // Fully archived sections are frozen: none of their rows are hot, so there is nothing new to count
+            + "WHERE NOT EXISTS (SELECT 1 FROM course_attendances_archive a WHERE a.section_id = e.section_id) "
+            + "OR EXISTS (SELECT 1 FROM course_attendances c WHERE c.section_id = e.section_id) "
+            + "ON DUPLICATE KEY UPDATE present = VALUES(present), total = VALUES(total), "
+            + "last_present_date = VALUES(last_present_date), last_held_date = VALUES(last_held_date), "
+            + "updated_at = VALUES(updated_at)";
+
+    // Keeps the legacy StudentDetails.attendance field (shown on profiles) in step with the counters
+    private static final String SYNC_PROFILE_SQL = "UPDATE student_details sd "
+            + "JOIN (SELECT student_id, SUM(present) AS p, SUM(total) AS t FROM attendance_counters "
+            + "GROUP BY student_id) c ON c.student_id = sd.user_id "
+            + "SET sd.attendance = ROUND(LEAST(c.p, c.t) * 100.0 / c.t, 1) WHERE c.t > 0";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AttendanceCounterRepository counterRepo;
+
+    @Autowired
+    private SectionRepository sectionRepo;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private SystemSettingService settingService;
+
+    public static boolean isPresent(String status) {
+        return status != null && PRESENT_STATUSES.contains(status.toUpperCase());
+    }
+
+    /**
+     * Counts a batch of marks as present. Each row is
+     * {studentId, sectionId, java.sql.Date attendanceDate}; written as one JDBC batch.
+     */
+    public void recordPresent(List<Object[]> studentSectionDates) {
+        if (studentSectionDates.isEmpty())
+            return;
+        jdbcTemplate.batchUpdate(RECORD_PRESENT_SQL, studentSectionDates);
+    }
+
+    public void recordPresent(Long sectionId, Collection<Long> studentIds, LocalDate date) {
+        Date day = Date.valueOf(date);
+        List<Object[]> rows = new ArrayList<>(studentIds.size());
+        for (Long studentId : studentIds) {
+            rows.add(new Object[] { studentId, sectionId, day });
+        }
+        recordPresent(rows);
+    }
+
+    /** Reverses a present count, e.g. when a register corrects P to A. */
+    public void revokePresent(Long sectionId, Collection<Long> studentIds) {
+        if (studentIds.isEmpty())
+            return;
+        List<Object[]> rows = new ArrayList<>(studentIds.size());
+        for (Long studentId : studentIds) {
+            rows.add(new Object[] { studentId, sectionId });
+        }
+        jdbcTemplate.batchUpdate(REVOKE_PRESENT_SQL, rows);
+    }
+
+    /** Counts a closed session as one held class for every enrolled student. */
+    public void recordClassHeld(Long sectionId, LocalDate date) {
+        jdbcTemplate.update(RECORD_HELD_SQL, Date.valueOf(date), sectionId);
+    }
+
+    /** Nightly rebuild of every counter from the attendance rows. */
+    @Scheduled(cron = "0 30 2 * * *")
+    public void reconcile() {
+        try {
+            long start = System.currentTimeMillis();
+            int rows = jdbcTemplate.update(RECONCILE_SQL);
+            jdbcTemplate.update(SYNC_PROFILE_SQL);
+            logger.info("Attendance counters reconciled (" + rows + " rows) in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+            logger.warning("Attendance counter reconciliation failed: " + e.getMessage());
+        }
+    }
+
+    /** Overall attendance % per student across all sections; students without held classes are absent. */
+    public Map<Long, Double> overallPercentages(Collection<Long> studentIds) {
+        Map<Long, Double> result = new HashMap<>();
+        if (studentIds.isEmpty())
+            return result;
+        for (Object[] row : counterRepo.sumByStudentIds(studentIds)) {
+            long present = ((Number) row[1]).longValue();
+            long total = ((Number) row[2]).longValue();
+            if (total > 0) {
+                result.put((Long) row[0], Math.round(Math.min(present, total) * 1000.0 / total) / 10.0);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Course-wise percentages for a student with the standing under the
+     * attendance policy: OK, SHORTAGE (below policy.attendance.threshold) or
+     * DETAINED (below policy.attendance.detain).
+     */
+    public List<Map<String, Object>> getStudentSummary(String studentUid) {
+        User student = userService.getUserByFirebaseUid(studentUid)
+                .orElseThrow(() -> new RuntimeException("Student not found"));
+        List<AttendanceCounter> counters = counterRepo.findByStudentId(student.getId());
+        Map<Long, Section> sections = sectionRepo
+                .findAllById(counters.stream().map(AttendanceCounter::getSectionId).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Section::getId, Function.identity()));
+
+        double threshold = policyPercent("policy.attendance.threshold", 75);
+        double detain = policyPercent("policy.attendance.detain", 65);
+
+        List<Map<String, Object>> summary = new ArrayList<>();
+        for (AttendanceCounter c : counters) {
+            Section section = sections.get(c.getSectionId());
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("sectionId", c.getSectionId());
+            row.put("courseCode", section != null ? section.getCourse().getCode() : null);
+            row.put("courseName", section != null ? section.getCourse().getName() : null);
+            row.put("present", c.getPresent());
+            row.put("total", c.getTotal());
+            row.put("percentage", c.getPercentage());
+            row.put("standing", standing(c.getPercentage(), threshold, detain));
+            summary.add(row);
+        }
+        return summary;
+    }
+
+    /** Per-student counters for a section, e.g. for the faculty shortage list. */
+    public List<AttendanceCounter> getSectionCounters(Long sectionId) {
+        return counterRepo.findBySectionId(sectionId);
+    }
+
+    public String standing(Double percentage) {
+        return standing(percentage, policyPercent("policy.attendance.threshold", 75),
+                policyPercent("policy.attendance.detain", 65));
+    }
+
+    private static String standing(Double percentage, double threshold, double detain) {
+        if (percentage == null || percentage >= threshold)
+            return "OK";
+        return percentage < detain ? "DETAINED" : "SHORTAGE";
+    }
+
+    private double policyPercent(String key, double fallback) {
+        try {
+            return Double.parseDouble(settingService.getSetting(key));
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.academic.platform.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Live attendance feed over Server-Sent Events.
+ *
+ * Scalability: mentor and faculty screens subscribe once instead of polling
+ * the attendance lists, and marks are pushed as they are recorded. Each
+ * subscriber has a bounded buffer drained by the feed executor, so
+ * publishing never blocks the marking request. A subscriber that falls
+ * {@link #BUFFER_SIZE} events behind gets a single "resync" event (refetch
+ * once) instead of an unbounded backlog. Heartbeats keep idle connections
+ * open through proxies and detect closed clients. Events published inside a
+ * transaction are held until it commits, so subscribers never see a change
+ * that is later rolled back.
+ */
+@Service
+public class AttendanceFeedService {
+
+    private static final Logger logger = Logger.getLogger(AttendanceFeedService.class.getName());
+
+    private static final long TIMEOUT_MS = 30 * 60 * 1000L;
+    private static final int BUFFER_SIZE = 256;
+
+    @Autowired
+    @Qualifier("feedExecutor")
+    private Executor feedExecutor;
+
+    private final Map<String, Set<Subscriber>> topics = new ConcurrentHashMap<>();
+
+    public static String sectionTopic(Long sectionId) {
+        return "section:" + sectionId;
+    }
+
+    public static String mentorTopic(String mentorUid) {
+        return "mentor:" + mentorUid;
+    }
+
+    /** Gate security dashboard (overdue returns). */
+    public static String gateTopic() {
+        return "gate";
+    }
+
+    private static final class Event {
+        final String name;
+        final Object data;
+
+        Event(String name, Object data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    private static final Event HEARTBEAT = new Event(null, null);
+    private static final Event RESYNC = new Event("resync", Map.of("reason", "buffer overflow"));
+
+    private final class Subscriber {
+        final String topic;
+        final SseEmitter emitter = new SseEmitter(TIMEOUT_MS);
+        final ArrayBlockingQueue<Event> buffer = new ArrayBlockingQueue<>(BUFFER_SIZE);
+        final AtomicBoolean draining = new AtomicBoolean();
+        volatile boolean overflowed;
+
+        Subscriber(String topic) {
+            this.topic = topic;
+        }
+
+        void offer(Event event) {
+            if (!buffer.offer(event)) {
+                // Too far behind: drop the backlog and tell the client to refetch once
+                buffer.clear();
+                overflowed = true;
+            }
+            scheduleDrain();
+        }
+
+        void scheduleDrain() {
+            if (!draining.compareAndSet(false, true))
+                return;
+            try {
+                feedExecutor.execute(this::drain);
+            } catch (RuntimeException e) {
+                // Executor saturated; the next publish or heartbeat retries
+                draining.set(false);
+            }
+        }
+
+        void drain() {
+            try {
+                if (overflowed) {
+                    overflowed = false;
+                    send(RESYNC);
+                }
+                Event event;
+                while ((event = buffer.poll()) != null) {
+                    send(event);
+                }
+            } catch (Exception e) {
+                remove(this);
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            if (!buffer.isEmpty() || overflowed) {
+                scheduleDrain();
+            }
+        }
+
+        private void send(Event event) throws java.io.IOException {
+            if (event == HEARTBEAT) {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            } else {
+                emitter.send(SseEmitter.event().name(event.name).data(event.data));
+            }
+        }
+    }
+
+    public SseEmitter subscribe(String topic) {
+        Subscriber subscriber = new Subscriber(topic);
+        topics.computeIfAbsent(topic, t -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        subscriber.emitter.onCompletion(() -> remove(subscriber));
+        subscriber.emitter.onTimeout(() -> remove(subscriber));
+        subscriber.emitter.onError(e -> remove(subscriber));
+        subscriber.offer(new Event("subscribed", Map.of("topic", topic)));
+        return subscriber.emitter;
+    }
+
+    /**
+     * Queues an event for every subscriber of the topic; never blocks on the
+     * network. Called inside a transaction, the event goes out after commit
+     * and is dropped on rollback.
+     */
+    public void publish(String topic, String eventName, Object data) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deliver(topic, eventName, data);
+                }
+            });
+        } else {
+            deliver(topic, eventName, data);
+        }
+    }
+
+    private void deliver(String topic, String eventName, Object data) {
+        Set<Subscriber> subscribers = topics.get(topic);
+        if (subscribers == null || subscribers.isEmpty())
+            return;
+        Event event = new Event(eventName, data);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    @Scheduled(fixedRate = 15000)
+    public void heartbeat() {
+        for (Set<Subscriber> subscribers : topics.values()) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(HEARTBEAT);
+            }
+        }
+    }
+
+    public int subscriberCount() {
+        return topics.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void remove(Subscriber subscriber) {
+        topics.computeIfPresent(subscriber.topic, (t, subs) -> {
+            subs.remove(subscriber);
+            return subs.isEmpty() ? null : subs;
+        });
+        logger.fine("Feed subscriber left " + subscriber.topic);
+    }
+}
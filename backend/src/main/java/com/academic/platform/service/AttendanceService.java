@@ -1,20 +1,20 @@
 package com.academic.platform.service;
 
 import com.academic.platform.model.Attendance;
+import com.academic.platform.model.AttendanceArchive;
+import com.academic.platform.repository.AttendanceArchiveRepository;
 import com.academic.platform.model.User;
 import com.academic.platform.repository.AttendanceRepository;
 import com.academic.platform.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 @Service
 public class AttendanceService {
@@ -25,6 +25,15 @@ public class AttendanceService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private WorkingDayCalendar workingDayCalendar;
+
+    @Autowired
+    private AttendanceFeedService feedService;
+
+    @Autowired
+    private AttendanceArchiveRepository attendanceArchiveRepository;
+
     public Attendance markAttendance(String studentUid) {
         User student = userRepository.findByFirebaseUid(studentUid)
                 .orElseThrow(() -> new RuntimeException("Student not found"));
@@ -37,18 +46,43 @@ public class AttendanceService {
         attendance.setStudent(student);
         attendance.setDate(LocalDate.now());
         attendance.setCheckInTime(LocalTime.now());
-        // Simple logic: Late if after 10:00 AM
-        if (LocalTime.now().isAfter(LocalTime.of(10, 0))) {
-            attendance.setStatus("LATE");
-        } else {
-            attendance.setStatus("PRESENT");
-        }
+        attendance.setStatus(statusFor(attendance.getCheckInTime()));
 
-        return attendanceRepository.save(attendance);
+        Attendance saved = attendanceRepository.save(attendance);
+        publishToMentor(student, saved);
+        return saved;
     }
 
+    private void publishToMentor(User student, Attendance attendance) {
+        if (student.getStudentDetails() == null || student.getStudentDetails().getMentor() == null)
+            return;
+        Map<String, Object> event = new HashMap<>();
+        event.put("id", attendance.getId());
+        event.put("date", attendance.getDate());
+        event.put("checkInTime", attendance.getCheckInTime());
+        event.put("status", attendance.getStatus());
+        event.put("studentUid", student.getFirebaseUid());
+        event.put("studentName", student.getFullName());
+        event.put("rollNumber", student.getStudentDetails().getRollNumber());
+        feedService.publish(AttendanceFeedService.mentorTopic(student.getStudentDetails().getMentor().getFirebaseUid()),
+                "mark", event);
+    }
+
+    // Simple logic: Late if after 10:00 AM
+    public static final LocalTime LATE_AFTER = LocalTime.of(10, 0);
+
+    /** Daily status for a check-in time; shared with the gate log importer. */
+    public static String statusFor(LocalTime checkInTime) {
+        return checkInTime.isAfter(LATE_AFTER) ? "LATE" : "PRESENT";
+    }
+
+    /** Newest first: the current semester from the hot table, then archived semesters. */
     public List<Attendance> getStudentAttendance(String studentUid) {
-        return attendanceRepository.findByStudentFirebaseUidOrderByDateDesc(studentUid);
+        List<Attendance> history = new ArrayList<>(attendanceRepository.findByStudentFirebaseUidOrderByDateDesc(studentUid));
+        for (AttendanceArchive archived : attendanceArchiveRepository.findByStudentFirebaseUidOrderByDateDesc(studentUid)) {
+            history.add(archived.toAttendance());
+        }
+        return history;
     }
 
     public boolean isAttendanceMarkedToday(String studentUid) {
@@ -62,29 +96,31 @@ public class AttendanceService {
                 date != null ? date : LocalDate.now());
     }
 
+    /**
+     * Present days over working days since the semester start.
+     *
+     * Scalability: the semester start comes from the current academic
+     * calendar rather than a MIN over the whole attendance table, present
+     * days are a single COUNT, and working days are an O(1) lookup in
+     * {@link WorkingDayCalendar}.
+     */
     public Map<String, Object> getStudentStats(String studentUid) {
         User student = userRepository.findByFirebaseUid(studentUid)
                 .orElseThrow(() -> new RuntimeException("Student not found"));
 
-        List<Attendance> history = attendanceRepository.findByStudentFirebaseUidOrderByDateDesc(studentUid);
-        int presentDays = history.size(); // assuming each record is a "Present" day (checking status if needed)
-        // If status can be ABSENT, filter by PRESENT/LATE
-        presentDays = (int) history.stream()
-                .filter(a -> "PRESENT".equalsIgnoreCase(a.getStatus()) || "LATE".equalsIgnoreCase(a.getStatus()))
-                .count();
+        LocalDate today = LocalDate.now();
+        // Without a current calendar, fall back to the student's own first record
+        LocalDate startDate = workingDayCalendar.currentSemesterStart()
+                .orElseGet(() -> {
+                    List<Attendance> history = attendanceRepository
+                            .findByStudentFirebaseUidOrderByDateDesc(studentUid);
+                    return history.isEmpty() ? today : history.get(history.size() - 1).getDate();
+                });
 
-        // Determine Total Working Days
-        // Option 1: From the very first attendance record in the entire system
-        // (Semester Start heuristic)
-        Optional<Attendance> firstEver = attendanceRepository.findFirstByOrderByDateAsc();
-        LocalDate startDate = firstEver.map(Attendance::getDate).orElse(LocalDate.now());
+        int presentDays = (int) attendanceRepository.countByStudentFirebaseUidAndStatusInAndDateBetween(
+                studentUid, List.of("PRESENT", "LATE"), startDate, today);
 
-        // Option 2: Fallback to student's first attendance if system start is too far
-        // back?
-        // Ideally should be Fixed Date. But let's stick to system start heuristic.
-
-        LocalDate today = LocalDate.now();
-        long workingDays = calculateWorkingDays(startDate, today);
+        long workingDays = workingDayCalendar.workingDaysBetween(startDate, today);
 
         if (workingDays == 0)
             workingDays = 1; // avoid div/0
@@ -97,21 +133,8 @@ public class AttendanceService {
         stats.put("present", presentDays);
         stats.put("total", workingDays);
         stats.put("percentage", Math.round(percentage * 10.0) / 10.0);
+        stats.put("semesterStart", startDate);
 
         return stats;
     }
-
-    private long calculateWorkingDays(LocalDate start, LocalDate end) {
-        if (start.isAfter(end))
-            return 0;
-        long days = ChronoUnit.DAYS.between(start, end) + 1;
-        long workingDays = 0;
-        for (int i = 0; i < days; i++) {
-            LocalDate d = start.plusDays(i);
-            if (d.getDayOfWeek() != DayOfWeek.SATURDAY && d.getDayOfWeek() != DayOfWeek.SUNDAY) {
-                workingDays++;
-            }
-        }
-        return workingDays;
-    }
 }
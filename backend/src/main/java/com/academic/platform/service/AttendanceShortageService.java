@@ -0,0 +1,207 @@
+package com.academic.platform.service;
+
+import com.academic.platform.model.AttendanceShortage;
+import com.academic.platform.model.AttendanceShortageSummary;
+import com.academic.platform.model.User;
+import com.academic.platform.repository.AttendanceShortageRepository;
+import com.academic.platform.repository.AttendanceShortageSummaryRepository;
+import com.academic.platform.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Nightly attendance-shortage detection.
+ *
+ * Scalability: one aggregate query over attendance_counters yields every
+ * student's overall percentage and is streamed row by row (MySQL streaming
+ * fetch), so the whole campus is handled in one pass. Only per-department
+ * accumulators and a 500-row insert buffer are held in memory. Digests are
+ * sent after the stream closes — one email per mentor listing all of their
+ * mentees in shortage, read back per mentor from the stored snapshot.
+ */
+@Service
+public class AttendanceShortageService {
+
+    private static final Logger logger = Logger.getLogger(AttendanceShortageService.class.getName());
+
+    private static final int INSERT_BATCH = 500;
+
+    private static final String STUDENT_PERCENTAGES_SQL = "SELECT c.student_id, u.full_name, sd.roll_number, "
+            + "sd.department, sd.mentor_id, SUM(c.present) AS present, SUM(c.total) AS total "
+            + "FROM attendance_counters c "
+            + "JOIN users u ON u.id = c.student_id "
+            + "JOIN student_details sd ON sd.user_id = u.id "
+            + "GROUP BY c.student_id, u.full_name, sd.roll_number, sd.department, sd.mentor_id "
+            + "HAVING SUM(c.total) > 0";
+
+    private static final String INSERT_SQL = "INSERT INTO attendance_shortages "
+            + "(run_date, student_id, student_name, roll_number, department, mentor_id, present, total, percentage, standing) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AttendanceShortageRepository shortageRepo;
+
+    @Autowired
+    private AttendanceShortageSummaryRepository summaryRepo;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private SystemSettingService settingService;
+
+    private static final class DepartmentTally {
+        int evaluated;
+        int shortage;
+        int detained;
+        double percentageSum;
+    }
+
+    /** Runs after the 02:30 counter reconciliation so percentages are exact. */
+    @Scheduled(cron = "0 0 3 * * *")
+    public void runNightly() {
+        try {
+            run(LocalDate.now());
+        } catch (Exception e) {
+            logger.warning("Attendance shortage job failed: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> run(LocalDate runDate) {
+        long start = System.currentTimeMillis();
+        double threshold = setting("policy.attendance.threshold", 75);
+        double detain = setting("policy.attendance.detain", 65);
+        double kpiAlert = setting("report.kpi.attendanceAlert", 70);
+        int retentionDays = (int) setting("policy.dataRetention", 365);
+
+        // Re-running a day replaces it; runs past retention are dropped
+        LocalDate cutoff = runDate.minusDays(retentionDays);
+        shortageRepo.deleteRunOrOlder(runDate, cutoff);
+        summaryRepo.deleteRunOrOlder(runDate, cutoff);
+
+        Map<String, DepartmentTally> tallies = new HashMap<>();
+        List<Object[]> buffer = new ArrayList<>(INSERT_BATCH);
+        int[] shortageTotal = { 0 };
+        Date day = Date.valueOf(runDate);
+
+        JdbcTemplate streaming = new JdbcTemplate(dataSource);
+        streaming.setFetchSize(Integer.MIN_VALUE);
+        streaming.query(STUDENT_PERCENTAGES_SQL, rs -> {
+            long present = rs.getLong("present");
+            long total = rs.getLong("total");
+            double percentage = Math.round(Math.min(present, total) * 1000.0 / total) / 10.0;
+            String department = rs.getString("department");
+
+            DepartmentTally tally = tallies.computeIfAbsent(department, d -> new DepartmentTally());
+            tally.evaluated++;
+            tally.percentageSum += percentage;
+            if (percentage >= threshold)
+                return;
+
+            String standing = percentage < detain ? "DETAINED" : "SHORTAGE";
+            tally.shortage++;
+            if ("DETAINED".equals(standing))
+                tally.detained++;
+            long mentorValue = rs.getLong("mentor_id");
+            Long mentorId = rs.wasNull() ? null : mentorValue;
+            buffer.add(new Object[] { day, rs.getLong("student_id"), rs.getString("full_name"),
+                    rs.getString("roll_number"), department, mentorId,
+                    present, total, percentage, standing });
+            shortageTotal[0]++;
+            if (buffer.size() == INSERT_BATCH) {
+                // Separate pooled connection; the streaming one is busy until the result set closes
+                jdbcTemplate.batchUpdate(INSERT_SQL, buffer);
+                buffer.clear();
+            }
+        });
+        if (!buffer.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, buffer);
+        }
+
+        List<AttendanceShortageSummary> summaries = new ArrayList<>();
+        tallies.forEach((department, t) -> {
+            double average = Math.round(t.percentageSum / t.evaluated * 10.0) / 10.0;
+            summaries.add(AttendanceShortageSummary.builder()
+                    .runDate(runDate)
+                    .department(department)
+                    .studentsEvaluated(t.evaluated)
+                    .shortageCount(t.shortage)
+                    .detainedCount(t.detained)
+                    .averagePercentage(average)
+                    .belowKpi(average < kpiAlert)
+                    .build());
+        });
+        summaryRepo.saveAll(summaries);
+
+        int digests = sendMentorDigests(runDate, threshold);
+
+        logger.info("Attendance shortage run " + runDate + ": " + shortageTotal[0] + " students in shortage across "
+                + tallies.size() + " departments, " + digests + " mentor digests, "
+                + (System.currentTimeMillis() - start) + " ms");
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("runDate", runDate);
+        result.put("departments", tallies.size());
+        result.put("shortage", shortageTotal[0]);
+        result.put("digests", digests);
+        return result;
+    }
+
+    private int sendMentorDigests(LocalDate runDate, double threshold) {
+        int sent = 0;
+        for (Long mentorId : shortageRepo.findMentorIdsByRunDate(runDate)) {
+            try {
+                User mentor = userRepository.findById(mentorId).orElse(null);
+                if (mentor == null || mentor.getEmail() == null)
+                    continue;
+                List<AttendanceShortage> mentees = shortageRepo.findByRunDateAndMentorIdOrderByPercentageAsc(runDate,
+                        mentorId);
+                emailService.sendAttendanceShortageDigest(mentor.getEmail(), mentor.getFullName(), mentees, threshold);
+                sent++;
+            } catch (Exception e) {
+                logger.warning("Shortage digest to mentor " + mentorId + " failed: " + e.getMessage());
+            }
+        }
+        return sent;
+    }
+
+    /** Latest snapshot for a department: the summary plus students in shortage. */
+    public Map<String, Object> getLatestForDepartment(String department) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        AttendanceShortageSummary summary = summaryRepo.findTopByDepartmentOrderByRunDateDesc(department)
+                .orElse(null);
+        result.put("summary", summary);
+        result.put("students", summary == null ? List.of()
+                : shortageRepo.findByRunDateAndDepartmentOrderByPercentageAsc(summary.getRunDate(), department));
+        return result;
+    }
+
+    private double setting(String key, double fallback) {
+        try {
+            return Double.parseDouble(settingService.getSetting(key));
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
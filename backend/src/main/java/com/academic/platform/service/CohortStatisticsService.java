@@ -0,0 +1,264 @@
+package com.academic.platform.service;
+
+import com.academic.platform.dto.CohortStatsDTO;
+import com.academic.platform.model.User;
+import com.academic.platform.repository.ResultRepository;
+import com.academic.platform.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cohort statistics engine — class average, rank, percentile and grade
+ * histogram per (subjectCode, semester, department).
+ *
+ * Scalability: each cohort is computed in a single pass over a scalar
+ * projection into primitive arrays. Marks are bounded integers (0-100), so a
+ * 101-bucket histogram is an exact quantile sketch: rank, percentile and
+ * quartiles become O(1) lookups on its prefix sums, with no sorting. Snapshots
+ * are cached in a bounded Caffeine cache ({@link #MAX_COHORTS} entries, expiring
+ * after {@link #EXPIRE_AFTER_MINUTES} minutes) and evicted when results for the
+ * subject are published. The cache holds a future per cohort and the query runs
+ * off the map lock, so a slow cohort never blocks lookups of other cohorts and
+ * concurrent requests for the same cohort share one query.
+ */
+@Service
+public class CohortStatisticsService {
+
+    private static final int MAX_MARK = 100;
+    private static final List<String> GRADE_ORDER = List.of("O", "A+", "A", "B+", "B", "RA", "AB");
+    private static final long MAX_COHORTS = 2_000;
+    private static final long EXPIRE_AFTER_MINUTES = 30;
+
+    @Autowired
+    private ResultRepository resultRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // Keys come straight from request parameters, so the cache must stay bounded
+    private final AsyncCache<CohortKey, Snapshot> cache = Caffeine.newBuilder()
+            .maximumSize(MAX_COHORTS)
+            .expireAfterWrite(EXPIRE_AFTER_MINUTES, TimeUnit.MINUTES)
+            .buildAsync();
+
+    public CohortStatsDTO getCohortStats(String subjectCode, Integer semester, String department) {
+        return snapshot(subjectCode, semester, department).summary;
+    }
+
+    public List<CohortStatsDTO> getSemesterStats(Integer semester, String department) {
+        List<CohortStatsDTO> stats = new ArrayList<>();
+        for (String code : resultRepository.findDistinctSubjectCodes(semester, department)) {
+            stats.add(snapshot(code, semester, department).summary);
+        }
+        return stats;
+    }
+
+    public CohortStatsDTO.StudentStanding getStudentStanding(String subjectCode, Integer semester,
+            String department, String studentUid) {
+        User student = userRepository.findByFirebaseUid(studentUid)
+                .orElseThrow(() -> new RuntimeException("Student not found"));
+        return snapshot(subjectCode, semester, department).standingOf(student.getId());
+    }
+
+    /**
+     * Drops cached cohorts for the given subjects. When called inside a
+     * transaction (e.g. a bulk publish) eviction is deferred until commit, so a
+     * concurrent reader cannot re-cache the pre-publish numbers.
+     */
+    public void invalidateSubjects(Collection<String> subjectCodes) {
+        Set<String> codes = new HashSet<>(subjectCodes);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.synchronous().asMap().keySet().removeIf(k -> codes.contains(k.subjectCode));
+                }
+            });
+        } else {
+            cache.synchronous().asMap().keySet().removeIf(k -> codes.contains(k.subjectCode));
+        }
+    }
+
+    private Snapshot snapshot(String subjectCode, Integer semester, String department) {
+        CohortKey key = new CohortKey(subjectCode, semester, department);
+        try {
+            // The loader runs on Caffeine's executor once the future is in place, outside the map lock
+            return cache.get(key, k -> compute(subjectCode, semester, department)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private Snapshot compute(String subjectCode, Integer semester, String department) {
+        // Rows are ordered by student, newest result first — re-uploads leave
+        // older rows behind, so only the first row per student is counted.
+        List<Object[]> rows = resultRepository.findCohortRows(subjectCode, semester, department);
+
+        int size = rows.size();
+        long[] studentIds = new long[size];
+        int[] marks = new int[size];
+        String[] grades = new String[size];
+        int[] histogram = new int[MAX_MARK + 1];
+        Map<String, Integer> gradeCounts = new LinkedHashMap<>();
+        for (String g : GRADE_ORDER) {
+            gradeCounts.put(g, 0);
+        }
+
+        int n = 0;
+        int scored = 0;
+        long sum = 0;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        long previousId = Long.MIN_VALUE;
+
+        for (Object[] row : rows) {
+            long studentId = ((Number) row[0]).longValue();
+            if (studentId == previousId) {
+                continue;
+            }
+            previousId = studentId;
+
+            int mark = row[1] != null ? Math.max(0, Math.min(MAX_MARK, ((Number) row[1]).intValue())) : -1;
+            String grade = row[2] != null ? (String) row[2] : "AB";
+
+            studentIds[n] = studentId;
+            marks[n] = mark;
+            grades[n] = grade;
+            n++;
+
+            gradeCounts.merge(grade, 1, Integer::sum);
+            if (mark >= 0) {
+                histogram[mark]++;
+                sum += mark;
+                scored++;
+                if (mark < min)
+                    min = mark;
+                if (mark > max)
+                    max = mark;
+            }
+        }
+
+        // below[m] = number of scored students with marks strictly below m
+        int[] below = new int[MAX_MARK + 2];
+        for (int m = 0; m <= MAX_MARK; m++) {
+            below[m + 1] = below[m] + histogram[m];
+        }
+
+        CohortStatsDTO summary = new CohortStatsDTO();
+        summary.setSubjectCode(subjectCode);
+        summary.setSemester(semester);
+        summary.setDepartment(department);
+        summary.setStudentCount(n);
+        summary.setScoredCount(scored);
+        summary.setAverage(scored > 0 ? Math.round((double) sum / scored * 100.0) / 100.0 : 0.0);
+        summary.setMin(scored > 0 ? min : 0);
+        summary.setMax(scored > 0 ? max : 0);
+        summary.setP25(quantile(below, scored, 0.25));
+        summary.setMedian(quantile(below, scored, 0.50));
+        summary.setP75(quantile(below, scored, 0.75));
+        summary.setP90(quantile(below, scored, 0.90));
+        summary.setGradeDistribution(gradeCounts);
+        summary.setComputedAt(LocalDateTime.now());
+
+        return new Snapshot(summary, Arrays.copyOf(studentIds, n), Arrays.copyOf(marks, n),
+                Arrays.copyOf(grades, n), histogram, below, scored);
+    }
+
+    /** Smallest mark m such that at least q of the scored cohort is at or below m. */
+    private static int quantile(int[] below, int scored, double q) {
+        if (scored == 0)
+            return 0;
+        int target = (int) Math.ceil(q * scored);
+        for (int m = 0; m <= MAX_MARK; m++) {
+            if (below[m + 1] >= target)
+                return m;
+        }
+        return MAX_MARK;
+    }
+
+    private static final class Snapshot {
+        final CohortStatsDTO summary;
+        final long[] studentIds; // ascending, aligned with marks/grades
+        final int[] marks; // -1 when no raw marks were uploaded
+        final String[] grades;
+        final int[] histogram;
+        final int[] below;
+        final int scored;
+
+        Snapshot(CohortStatsDTO summary, long[] studentIds, int[] marks, String[] grades, int[] histogram,
+                int[] below, int scored) {
+            this.summary = summary;
+            this.studentIds = studentIds;
+            this.marks = marks;
+            this.grades = grades;
+            this.histogram = histogram;
+            this.below = below;
+            this.scored = scored;
+        }
+
+        CohortStatsDTO.StudentStanding standingOf(long studentId) {
+            int idx = Arrays.binarySearch(studentIds, studentId);
+            if (idx < 0) {
+                throw new RuntimeException("No result found for this student in the cohort");
+            }
+            int mark = marks[idx];
+            if (mark < 0) {
+                return new CohortStatsDTO.StudentStanding(studentId, null, grades[idx], null, null, scored);
+            }
+            // Competition ranking: 1 + number of students scoring strictly higher
+            int rank = 1 + (scored - below[mark + 1]);
+            // Percentile rank: share below plus half of the ties
+            double percentile = (below[mark] + 0.5 * histogram[mark]) / scored * 100.0;
+            return new CohortStatsDTO.StudentStanding(studentId, mark, grades[idx], rank,
+                    Math.round(percentile * 10.0) / 10.0, scored);
+        }
+    }
+
+    private static final class CohortKey {
+        final String subjectCode;
+        final Integer semester;
+        final String department;
+
+        CohortKey(String subjectCode, Integer semester, String department) {
+            this.subjectCode = subjectCode;
+            this.semester = semester;
+            this.department = department;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof CohortKey))
+                return false;
+            CohortKey other = (CohortKey) o;
+            return Objects.equals(subjectCode, other.subjectCode)
+                    && Objects.equals(semester, other.semester)
+                    && Objects.equals(department, other.department);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(subjectCode, semester, department);
+        }
+    }
+}
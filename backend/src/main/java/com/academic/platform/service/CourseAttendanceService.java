@@ -4,6 +4,8 @@ import com.academic.platform.model.CourseAttendance;
 import com.academic.platform.model.CourseAttendanceSession;
 import com.academic.platform.model.Section;
 import com.academic.platform.model.User;
+import com.academic.platform.model.CourseAttendanceArchive;
+import com.academic.platform.repository.CourseAttendanceArchiveRepository;
 import com.academic.platform.repository.CourseAttendanceRepository;
 import com.academic.platform.repository.CourseAttendanceSessionRepository;
 import com.academic.platform.repository.SectionRepository;
@@ -11,8 +13,11 @@ import com.academic.platform.repository.UserRepository;
 import com.academic.platform.repository.EnrollmentRepository;
 import com.academic.platform.repository.AcademicScheduleRepository;
 import com.academic.platform.model.AcademicSchedule;
+import com.academic.platform.utils.RotatingCodeGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -41,9 +46,38 @@ public class CourseAttendanceService {
     @Autowired
     private AcademicScheduleRepository scheduleRepo;
 
+    @Autowired
+    private CourseAttendanceSessionRegistry sessionRegistry;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private RotatingCodeGenerator codeGenerator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AttendanceCounterService counterService;
+
+    @Autowired
+    private AttendanceFeedService feedService;
+
+    @Autowired
+    private CourseAttendanceArchiveRepository archiveRepo;
+
     private static final int OTP_VALIDITY_MINUTES = 2;
+    // Rotating codes change every few seconds, so the session itself can stay
+    // open for the whole roll call without the code being shareable.
+    private static final int ROTATING_SESSION_MINUTES = 10;
 
     public CourseAttendanceSession generateOtp(Long sectionId, String facultyUid) {
+        return generateOtp(sectionId, facultyUid, false);
+    }
+
+    @Transactional
+    public CourseAttendanceSession generateOtp(Long sectionId, String facultyUid, boolean rotating) {
         Section section = sectionRepo.findById(sectionId)
                 .orElseThrow(() -> new RuntimeException("Section not found"));
 
@@ -52,16 +86,13 @@ public class CourseAttendanceService {
         }
 
         // Deactivate existing active sessions for this section
-        List<CourseAttendanceSession> history = sessionRepo.findBySectionIdOrderByCreatedAtDesc(sectionId);
-        for (CourseAttendanceSession s : history) {
-            if (s.isActive()) {
-                s.setActive(false);
-                sessionRepo.save(s);
-            }
-        }
+        sessionRepo.deactivateActiveSessions(sectionId);
+        sessionRegistry.evictSection(sectionId);
 
-        // Generate 6-digit OTP
-        String otp = String.format("%06d", new Random().nextInt(999999));
+        // Generate 6-digit OTP (static mode) or a per-session HMAC secret (rotating mode)
+        String otp = rotating ? "ROTATING" : newStaticOtp();
+        String secret = rotating ? codeGenerator.newSecret() : null;
+        int validityMinutes = rotating ? ROTATING_SESSION_MINUTES : OTP_VALIDITY_MINUTES;
 
         // Auto-match timetable schedule for today and the section course name
         AcademicSchedule matchedSchedule = scheduleRepo
@@ -72,12 +103,30 @@ public class CourseAttendanceService {
                 .section(section)
                 .schedule(matchedSchedule)
                 .otp(otp)
+                .rotating(rotating)
+                .secret(secret)
                 .createdAt(LocalDateTime.now())
-                .expiresAt(LocalDateTime.now().plusMinutes(OTP_VALIDITY_MINUTES))
+                .expiresAt(LocalDateTime.now().plusMinutes(validityMinutes))
                 .active(true)
                 .build();
 
-        return sessionRepo.save(newSession);
+        CourseAttendanceSession saved = sessionRepo.save(newSession);
+        sessionRegistry.register(saved);
+        return saved;
+    }
+
+    /** A 6-digit OTP no other live session is using; students enter it without a section. */
+    private String newStaticOtp() {
+        Random random = new Random();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 20; i++) {
+            String otp = String.format("%06d", random.nextInt(1000000));
+            if (!sessionRegistry.isOtpInUse(otp) && sessionRepo.findFirstByOtpAndActiveTrue(otp)
+                    .filter(s -> s.getExpiresAt().isAfter(now)).isEmpty()) {
+                return otp;
+            }
+        }
+        throw new RuntimeException("Could not allocate a free OTP, please try again");
     }
 
     public CourseAttendanceSession deactivateSession(Long sessionId, String facultyUid) {
@@ -89,52 +138,151 @@ public class CourseAttendanceService {
         }
 
         session.setActive(false);
+        sessionRegistry.evict(session);
+        sessionRegistry.flush();
+        sessionRegistry.closeSession(session);
+        feedService.publish(AttendanceFeedService.sectionTopic(session.getSection().getId()), "closed",
+                java.util.Map.of("sessionId", session.getId()));
         return sessionRepo.save(session);
     }
 
+    /**
+     * Marks a student present against a live OTP.
+     *
+     * Scalability: the session, its enrolment bitset and the already-marked set
+     * are resolved from {@link CourseAttendanceSessionRegistry}, and the
+     * student from the user cache — a burst of 200 students causes no per-call
+     * queries. The row itself is written behind in a batch by the registry.
+     */
     public CourseAttendance markAttendance(String otp, String studentUid) {
-        CourseAttendanceSession session = sessionRepo.findFirstByOtpAndActiveTrue(otp)
-                .orElseThrow(() -> new RuntimeException("Invalid or inactive OTP"));
+        CourseAttendanceSessionRegistry.LiveSession live = codeGenerator.isRotatingToken(otp)
+                ? resolveRotatingSession(otp)
+                : resolveStaticSession(otp);
 
-        if (LocalDateTime.now().isAfter(session.getExpiresAt())) {
+        CourseAttendanceSession session = live.getSession();
+        LocalDateTime now = LocalDateTime.now();
+
+        if (live.isExpired(now)) {
+            sessionRegistry.evict(session);
+            sessionRegistry.closeSession(session);
             session.setActive(false);
             sessionRepo.save(session);
             throw new RuntimeException("OTP has expired");
         }
 
-        User student = userRepo.findByFirebaseUid(studentUid)
+        User student = userService.getUserByFirebaseUid(studentUid)
                 .orElseThrow(() -> new RuntimeException("Student not found"));
 
-        // Check if student is enrolled in this section
-        boolean isEnrolled = enrollmentRepo.findByStudent(student).stream()
-                .anyMatch(e -> e.getSection().getId().equals(session.getSection().getId()));
-
-        if (!isEnrolled) {
+        if (!live.isEnrolled(student.getId())) {
             throw new RuntimeException("Student is not enrolled in this course section");
         }
 
-        LocalDateTime todayStart = LocalDateTime.now().with(java.time.LocalTime.MIN);
-        LocalDateTime todayEnd = LocalDateTime.now().with(java.time.LocalTime.MAX);
-        boolean alreadyMarkedToday = attendanceRepo
-                .findBySessionSectionIdAndStudentId(session.getSection().getId(), student.getId()).stream()
-                .anyMatch(a -> a.getMarkedAt().isAfter(todayStart) && a.getMarkedAt().isBefore(todayEnd));
-
-        if (alreadyMarkedToday) {
+        if (!live.tryMark(student.getId())) {
             throw new RuntimeException("Attendance already marked for today");
         }
 
-        CourseAttendance attendance = CourseAttendance.builder()
+        sessionRegistry.enqueue(session, student.getId(), now, "P");
+
+        java.util.Map<String, Object> event = new java.util.HashMap<>();
+        event.put("sessionId", session.getId());
+        event.put("studentId", student.getId());
+        event.put("studentName", student.getFullName());
+        event.put("studentRollNumber",
+                student.getStudentDetails() != null ? student.getStudentDetails().getRollNumber() : null);
+        event.put("status", "P");
+        event.put("markedAt", now);
+        feedService.publish(AttendanceFeedService.sectionTopic(session.getSection().getId()), "mark", event);
+
+        return CourseAttendance.builder()
                 .session(session)
                 .student(student)
-                .markedAt(LocalDateTime.now())
+                .markedAt(now)
                 .status("P")
                 .build();
+    }
+
+    private CourseAttendanceSessionRegistry.LiveSession resolveStaticSession(String otp) {
+        CourseAttendanceSessionRegistry.LiveSession live = sessionRegistry.get(otp);
+        if (live == null) {
+            // Not in memory (e.g. after a restart) — recover from the DB once
+            CourseAttendanceSession stored = sessionRepo.findFirstByOtpAndActiveTrue(otp)
+                    .filter(s -> !s.isRotating())
+                    .orElseThrow(() -> new RuntimeException("Invalid or inactive OTP"));
+            live = sessionRegistry.register(stored);
+        }
+        return live;
+    }
 
-        return attendanceRepo.save(attendance);
+    /**
+     * Rotating tokens carry their session id, and the code is checked by
+     * recomputing the HMAC — no query is needed while the session is live.
+     */
+    private CourseAttendanceSessionRegistry.LiveSession resolveRotatingSession(String token) {
+        Long sessionId = codeGenerator.parseSessionId(token);
+        if (sessionId == null) {
+            throw new RuntimeException("Invalid attendance code");
+        }
+        CourseAttendanceSessionRegistry.LiveSession live = sessionRegistry.getById(sessionId);
+        if (live == null) {
+            CourseAttendanceSession stored = sessionRepo.findById(sessionId)
+                    .filter(s -> s.isActive() && s.isRotating())
+                    .orElseThrow(() -> new RuntimeException("Invalid or inactive OTP"));
+            live = sessionRegistry.register(stored);
+        }
+        if (!live.getSession().isRotating() || !codeGenerator.verify(token, live.getSession().getSecret())) {
+            throw new RuntimeException("Invalid or expired attendance code");
+        }
+        return live;
+    }
+
+    /**
+     * Current rotating token for the faculty display. Served from memory;
+     * clients refresh it every {@link RotatingCodeGenerator#STEP_SECONDS} seconds.
+     */
+    public java.util.Map<String, Object> getRotatingCode(Long sessionId, String facultyUid) {
+        CourseAttendanceSessionRegistry.LiveSession live = sessionRegistry.getById(sessionId);
+        if (live == null) {
+            CourseAttendanceSession stored = sessionRepo.findById(sessionId)
+                    .filter(CourseAttendanceSession::isActive)
+                    .orElseThrow(() -> new RuntimeException("Session not found or inactive"));
+            live = sessionRegistry.register(stored);
+        }
+
+        CourseAttendanceSession session = live.getSession();
+        if (!session.getSection().getFaculty().getFirebaseUid().equals(facultyUid)) {
+            throw new RuntimeException("Unauthorized: Only the faculty of this section can view the code.");
+        }
+        if (!session.isRotating()) {
+            throw new RuntimeException("Session does not use rotating codes");
+        }
+        if (live.isExpired(LocalDateTime.now())) {
+            throw new RuntimeException("Session has expired");
+        }
+
+        java.util.Map<String, Object> code = new java.util.HashMap<>();
+        code.put("token", codeGenerator.currentToken(sessionId, session.getSecret()));
+        code.put("stepSeconds", RotatingCodeGenerator.STEP_SECONDS);
+        code.put("refreshInSeconds", codeGenerator.secondsUntilNextStep());
+        code.put("sessionExpiresAt", session.getExpiresAt());
+        return code;
+    }
+
+    /** Live mark feed for the faculty of a section (replaces polling the session list). */
+    public org.springframework.web.servlet.mvc.method.annotation.SseEmitter subscribeSectionFeed(Long sectionId,
+            String facultyUid) {
+        Section section = sectionRepo.findById(sectionId)
+                .orElseThrow(() -> new RuntimeException("Section not found"));
+        if (!section.getFaculty().getFirebaseUid().equals(facultyUid)) {
+            throw new RuntimeException("Unauthorized: Only the faculty of this section can follow its attendance.");
+        }
+        return feedService.subscribe(AttendanceFeedService.sectionTopic(sectionId));
     }
 
     public List<CourseAttendance> getSessionAttendances(Long sessionId) {
-        return attendanceRepo.findBySessionId(sessionId);
+        sessionRegistry.flush();
+        List<CourseAttendance> hot = attendanceRepo.findBySessionId(sessionId);
+        // A session's rows are archived together, so only fall back when the hot table has none
+        return hot.isEmpty() ? fromArchive(archiveRepo.findBySessionId(sessionId)) : hot;
     }
 
     public List<CourseAttendanceSession> getSectionSessions(Long sectionId) {
@@ -149,8 +297,17 @@ public class CourseAttendanceService {
                 .orElse(null);
     }
 
+    /** Current-semester rows from the hot table followed by any archived history. */
     public List<CourseAttendance> getStudentAttendanceForSection(Long sectionId, Long studentId) {
-        return attendanceRepo.findBySessionSectionIdAndStudentId(sectionId, studentId);
+        sessionRegistry.flush();
+        List<CourseAttendance> rows = new java.util.ArrayList<>(
+                attendanceRepo.findBySectionIdAndStudentId(sectionId, studentId));
+        rows.addAll(fromArchive(archiveRepo.findBySectionIdAndStudentId(sectionId, studentId)));
+        return rows;
+    }
+
+    private static List<CourseAttendance> fromArchive(List<CourseAttendanceArchive> archived) {
+        return archived.stream().map(CourseAttendanceArchive::toCourseAttendance).toList();
     }
 
     public List<CourseAttendanceSession> getSessionsByDate(Long sectionId, LocalDate date) {
@@ -160,11 +317,35 @@ public class CourseAttendanceService {
     }
 
     public List<CourseAttendance> getPresentStudentsForSession(Long sessionId) {
-        return attendanceRepo.findBySessionId(sessionId);
+        return getSessionAttendances(sessionId);
     }
 
+    private static final String UPSERT_SQL = "INSERT INTO course_attendances "
+            + "(session_id, section_id, student_id, attendance_date, marked_at, status) VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE session_id = VALUES(session_id), marked_at = VALUES(marked_at), "
+            + "status = VALUES(status)";
+
+    @Transactional
     public CourseAttendanceSession saveBulkAttendance(Long sectionId, String facultyUid,
             java.util.List<java.util.Map<String, String>> attendanceList) {
+        return (CourseAttendanceSession) saveBulkAttendance(sectionId, facultyUid, attendanceList, false)
+                .get("session");
+    }
+
+    /**
+     * Saves a manual attendance register for today as one set-based upsert.
+     *
+     * Scalability: rows are keyed on (section, student, date), so the whole
+     * class is written with a single batched INSERT ... ON DUPLICATE KEY
+     * UPDATE (rewritten into one multi-row statement by the driver) instead of
+     * a lookup + history scan + save per student. Enrolment is validated with
+     * one projection query. The register is compared against today's existing
+     * rows (one more query) to adjust the attendance counters; with
+     * {@code includeDiff} the changes are also returned.
+     */
+    @Transactional
+    public java.util.Map<String, Object> saveBulkAttendance(Long sectionId, String facultyUid,
+            java.util.List<java.util.Map<String, String>> attendanceList, boolean includeDiff) {
         Section section = sectionRepo.findById(sectionId)
                 .orElseThrow(() -> new RuntimeException("Section not found"));
 
@@ -172,14 +353,11 @@ public class CourseAttendanceService {
             throw new RuntimeException("Unauthorized: Only the faculty of this section can save attendance.");
         }
 
-        // Deactivate existing active sessions
-        List<CourseAttendanceSession> history = sessionRepo.findBySectionIdOrderByCreatedAtDesc(sectionId);
-        for (CourseAttendanceSession s : history) {
-            if (s.isActive()) {
-                s.setActive(false);
-                sessionRepo.save(s);
-            }
-        }
+        // Push out pending OTP marks before deactivating the sessions: the flush inserts in its own
+        // transaction, and its session_id FK check would wait on the row locks the UPDATE takes here
+        sessionRegistry.evictSection(sectionId);
+        sessionRegistry.flush();
+        sessionRepo.deactivateActiveSessions(sectionId);
 
         // Auto-match timetable schedule for today and the section course name
         AcademicSchedule matchedSchedule = scheduleRepo
@@ -197,38 +375,88 @@ public class CourseAttendanceService {
                 .build();
         newSession = sessionRepo.save(newSession);
 
-        LocalDateTime todayStart = LocalDateTime.now().with(java.time.LocalTime.MIN);
-        LocalDateTime todayEnd = LocalDateTime.now().with(java.time.LocalTime.MAX);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        java.util.Set<Long> enrolled = new java.util.HashSet<>(enrollmentRepo.findStudentIdsBySectionId(sectionId));
 
+        // Last entry wins if the payload repeats a student
+        java.util.Map<Long, String> register = new java.util.LinkedHashMap<>();
+        List<Long> skipped = new java.util.ArrayList<>();
         for (java.util.Map<String, String> entry : attendanceList) {
             Long studentId = Long.parseLong(entry.get("studentId"));
-            String status = entry.get("status");
-
-            User student = userRepo.findById(studentId).orElse(null);
-            if (student != null) {
-                CourseAttendance existingToday = attendanceRepo.findBySessionSectionIdAndStudentId(sectionId, studentId)
-                        .stream()
-                        .filter(a -> a.getMarkedAt().isAfter(todayStart) && a.getMarkedAt().isBefore(todayEnd))
-                        .findFirst()
-                        .orElse(null);
-
-                if (existingToday != null) {
-                    existingToday.setStatus(status);
-                    existingToday.setSession(newSession);
-                    existingToday.setMarkedAt(LocalDateTime.now());
-                    attendanceRepo.save(existingToday);
+            if (enrolled.contains(studentId)) {
+                register.put(studentId, entry.get("status"));
+            } else {
+                skipped.add(studentId);
+            }
+        }
+
+        java.util.Map<Long, String> previous = loadStatusesForDay(sectionId, today);
+
+        final Long sessionId = newSession.getId();
+        List<java.util.Map.Entry<Long, String>> rows = new java.util.ArrayList<>(register.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, sessionId);
+            ps.setLong(2, sectionId);
+            ps.setLong(3, row.getKey());
+            ps.setDate(4, java.sql.Date.valueOf(today));
+            ps.setTimestamp(5, java.sql.Timestamp.valueOf(now));
+            ps.setString(6, row.getValue());
+        });
+
+        // Keep the per-student counters in step with the register
+        List<Long> nowPresent = new java.util.ArrayList<>();
+        List<Long> noLongerPresent = new java.util.ArrayList<>();
+        for (java.util.Map.Entry<Long, String> row : register.entrySet()) {
+            boolean was = AttendanceCounterService.isPresent(previous.get(row.getKey()));
+            boolean is = AttendanceCounterService.isPresent(row.getValue());
+            if (is && !was) {
+                nowPresent.add(row.getKey());
+            } else if (was && !is) {
+                noLongerPresent.add(row.getKey());
+            }
+        }
+        counterService.recordPresent(sectionId, nowPresent, today);
+        counterService.revokePresent(sectionId, noLongerPresent);
+        counterService.recordClassHeld(sectionId, today);
+
+        feedService.publish(AttendanceFeedService.sectionTopic(sectionId), "register",
+                java.util.Map.of("sessionId", sessionId, "saved", register.size()));
+
+        java.util.Map<String, Object> result = new java.util.HashMap<>();
+        result.put("session", newSession);
+        result.put("saved", register.size());
+        if (includeDiff) {
+            List<Long> added = new java.util.ArrayList<>();
+            List<java.util.Map<String, Object>> changed = new java.util.ArrayList<>();
+            int unchanged = 0;
+            for (java.util.Map.Entry<Long, String> row : register.entrySet()) {
+                String before = previous.get(row.getKey());
+                if (before == null) {
+                    added.add(row.getKey());
+                } else if (!before.equals(row.getValue())) {
+                    changed.add(java.util.Map.of("studentId", row.getKey(), "from", before, "to",
+                            String.valueOf(row.getValue())));
                 } else {
-                    CourseAttendance attendance = CourseAttendance.builder()
-                            .session(newSession)
-                            .student(student)
-                            .markedAt(LocalDateTime.now())
-                            .status(status)
-                            .build();
-                    attendanceRepo.save(attendance);
+                    unchanged++;
                 }
             }
+            java.util.Map<String, Object> diff = new java.util.HashMap<>();
+            diff.put("added", added);
+            diff.put("changed", changed);
+            diff.put("unchanged", unchanged);
+            diff.put("skipped", skipped);
+            result.put("diff", diff);
         }
+        return result;
+    }
 
-        return newSession;
+    private java.util.Map<Long, String> loadStatusesForDay(Long sectionId, LocalDate date) {
+        java.util.Map<Long, String> statuses = new java.util.HashMap<>();
+        jdbcTemplate.query("SELECT student_id, status FROM course_attendances WHERE section_id = ? AND attendance_date = ?",
+                rs -> {
+                    statuses.put(rs.getLong(1), rs.getString(2));
+                }, sectionId, java.sql.Date.valueOf(date));
+        return statuses;
     }
 }
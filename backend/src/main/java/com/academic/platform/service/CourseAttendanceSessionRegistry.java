@@ -0,0 +1,359 @@
+package com.academic.platform.service;
+
+import com.academic.platform.model.CourseAttendanceSession;
+import com.academic.platform.repository.CourseAttendanceRepository;
+import com.academic.platform.repository.EnrollmentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * In-memory registry of live OTP attendance sessions.
+ *
+ * Scalability: when a teacher shows an OTP, the whole class marks within a
+ * couple of minutes. Each live session is held here by OTP and by session id
+ * (rotating-code sessions are only reachable by id) with a precomputed
+ * bitset of enrolled student ids and a set of students already marked
+ * today, so validating a mark is pure memory work. Accepted marks are
+ * queued and written behind by a scheduled flusher as one batched
+ * INSERT IGNORE, turning a class-wide burst into a handful of statements.
+ * Each flushed batch commits in its own transaction, so a service method that
+ * flushes and then rolls back cannot take other sections' queued marks with it.
+ * The flusher runs on its own thread rather than the shared @Scheduled
+ * scheduler, so a long report rebuild or SMTP batch can never delay
+ * persisting marks that students have already been told were accepted.
+ */
+@Component
+public class CourseAttendanceSessionRegistry {
+
+    private static final Logger logger = Logger.getLogger(CourseAttendanceSessionRegistry.class.getName());
+
+    private static final String INSERT_SQL = "INSERT IGNORE INTO course_attendances "
+            + "(session_id, section_id, student_id, attendance_date, marked_at, status) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final int FLUSH_BATCH_SIZE = 500;
+    private static final long FLUSH_INTERVAL_MS = 1000;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepo;
+
+    @Autowired
+    private CourseAttendanceRepository attendanceRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AttendanceCounterService counterService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Flushes are called from @Transactional service methods; never join the caller's transaction
+    private TransactionTemplate ownTransaction;
+
+    private ScheduledExecutorService flusher;
+
+    private final Map<String, LiveSession> sessionsByOtp = new ConcurrentHashMap<>();
+    private final Map<Long, LiveSession> sessionsById = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<PendingMark> pending = new ConcurrentLinkedQueue<>();
+
+    public static final class LiveSession {
+        private final CourseAttendanceSession session;
+        private final BitSet enrolledStudents;
+        private final Set<Long> markedStudents;
+
+        LiveSession(CourseAttendanceSession session, BitSet enrolledStudents, Set<Long> markedStudents) {
+            this.session = session;
+            this.enrolledStudents = enrolledStudents;
+            this.markedStudents = markedStudents;
+        }
+
+        public CourseAttendanceSession getSession() {
+            return session;
+        }
+
+        public boolean isExpired(LocalDateTime now) {
+            return now.isAfter(session.getExpiresAt());
+        }
+
+        public boolean isEnrolled(long studentId) {
+            return studentId >= 0 && studentId <= Integer.MAX_VALUE && enrolledStudents.get((int) studentId);
+        }
+
+        /** Returns false if the student was already marked for this section today. */
+        public boolean tryMark(long studentId) {
+            return markedStudents.add(studentId);
+        }
+    }
+
+    private static final class PendingMark {
+        final long sessionId;
+        final long sectionId;
+        final long studentId;
+        final LocalDateTime markedAt;
+        final String status;
+
+        PendingMark(long sessionId, long sectionId, long studentId, LocalDateTime markedAt, String status) {
+            this.sessionId = sessionId;
+            this.sectionId = sectionId;
+            this.studentId = studentId;
+            this.markedAt = markedAt;
+            this.status = status;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        ownTransaction = new TransactionTemplate(transactionManager);
+        ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "attendance-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                // An exception would cancel the schedule; log and try again next tick
+                logger.warning("Attendance flush failed: " + e.getMessage());
+            }
+        }, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Loads a freshly generated (or recovered) session into memory: one
+     * projection query for the enrolled student ids and one for students
+     * already marked today in this section.
+     */
+    public LiveSession register(CourseAttendanceSession session) {
+        Long sectionId = session.getSection().getId();
+
+        BitSet enrolled = new BitSet();
+        for (Long id : enrollmentRepo.findStudentIdsBySectionId(sectionId)) {
+            enrolled.set(id.intValue());
+        }
+
+        Set<Long> marked = ConcurrentHashMap.newKeySet();
+        LocalDate today = LocalDate.now();
+        marked.addAll(attendanceRepo.findStudentIdsMarkedForSectionBetween(sectionId,
+                today.atStartOfDay(), today.atTime(LocalTime.MAX)));
+
+        LiveSession live = new LiveSession(session, enrolled, marked);
+        if (!session.isRotating()) {
+            // Rotating sessions are resolved by the session id carried in the token. Students type
+            // only the OTP, so two live sections must never share one.
+            LocalDateTime now = LocalDateTime.now();
+            LiveSession holder = sessionsByOtp.compute(session.getOtp(),
+                    (otp, current) -> current == null || current.isExpired(now)
+                            || current.getSession().getId().equals(session.getId()) ? live : current);
+            if (holder != live) {
+                throw new RuntimeException("OTP " + session.getOtp() + " is already in use, please regenerate");
+            }
+        }
+        sessionsById.put(session.getId(), live);
+        return live;
+    }
+
+    /** Whether a live, unexpired session already holds this OTP. */
+    public boolean isOtpInUse(String otp) {
+        LiveSession live = sessionsByOtp.get(otp);
+        return live != null && !live.isExpired(LocalDateTime.now());
+    }
+
+    public LiveSession get(String otp) {
+        return sessionsByOtp.get(otp);
+    }
+
+    public LiveSession getById(Long sessionId) {
+        return sessionsById.get(sessionId);
+    }
+
+    public void evict(CourseAttendanceSession session) {
+        sessionsById.remove(session.getId());
+        if (!session.isRotating() && session.getOtp() != null) {
+            // Only drop the entry if it is still this session's; the OTP may since belong to another section
+            sessionsByOtp.computeIfPresent(session.getOtp(),
+                    (otp, current) -> current.getSession().getId().equals(session.getId()) ? null : current);
+        }
+    }
+
+    public void evictSection(Long sectionId) {
+        sessionsByOtp.values().removeIf(s -> s.getSession().getSection().getId().equals(sectionId));
+        sessionsById.values().removeIf(s -> s.getSession().getSection().getId().equals(sectionId));
+    }
+
+    public void enqueue(CourseAttendanceSession session, long studentId, LocalDateTime markedAt, String status) {
+        pending.add(new PendingMark(session.getId(), session.getSection().getId(), studentId, markedAt, status));
+    }
+
+    /**
+     * Write-behind flusher. Drains the queue in chunks and writes each chunk
+     * as a single JDBC batch (rewritten into a multi-row INSERT by the
+     * driver). Every chunk commits in a new transaction, independent of any
+     * transaction the caller holds.
+     *
+     * If a batch fails, its marks are retried one by one so a single bad row
+     * (e.g. a foreign-key violation after the session was deleted) cannot hold
+     * back the rest. A mark that fails on its own with a non-transient error
+     * is dropped and logged, and its student is released so they can mark
+     * again. A transient failure (database unreachable) re-queues everything
+     * for the next run.
+     */
+    public synchronized void flush() {
+        while (!pending.isEmpty()) {
+            List<PendingMark> batch = new ArrayList<>(FLUSH_BATCH_SIZE);
+            PendingMark m;
+            while (batch.size() < FLUSH_BATCH_SIZE && (m = pending.poll()) != null) {
+                batch.add(m);
+            }
+            List<PendingMark> written;
+            try {
+                ownTransaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, batch,
+                        batch.size(), (ps, mark) -> {
+                            ps.setLong(1, mark.sessionId);
+                            ps.setLong(2, mark.sectionId);
+                            ps.setLong(3, mark.studentId);
+                            ps.setDate(4, java.sql.Date.valueOf(mark.markedAt.toLocalDate()));
+                            ps.setTimestamp(5, Timestamp.valueOf(mark.markedAt));
+                            ps.setString(6, mark.status);
+                        }));
+                written = batch;
+            } catch (Exception e) {
+                if (!isPermanent(e)) {
+                    logger.warning("Attendance flush failed, re-queueing " + batch.size() + " marks: " + e.getMessage());
+                    pending.addAll(batch);
+                    return;
+                }
+                logger.warning("Attendance batch of " + batch.size() + " rejected, writing marks one by one: "
+                        + e.getMessage());
+                written = writeIndividually(batch);
+                if (written == null)
+                    return;
+            }
+            recordCounters(written);
+        }
+    }
+
+    /**
+     * Writes marks one at a time, dropping those the database rejects. Returns
+     * the marks written, or null if a transient failure re-queued the rest.
+     */
+    private List<PendingMark> writeIndividually(List<PendingMark> batch) {
+        List<PendingMark> written = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            PendingMark mark = batch.get(i);
+            try {
+                ownTransaction.executeWithoutResult(status -> jdbcTemplate.update(INSERT_SQL, mark.sessionId,
+                        mark.sectionId, mark.studentId, java.sql.Date.valueOf(mark.markedAt.toLocalDate()),
+                        Timestamp.valueOf(mark.markedAt), mark.status));
+                written.add(mark);
+            } catch (Exception e) {
+                if (!isPermanent(e)) {
+                    logger.warning("Attendance flush failed, re-queueing " + (batch.size() - i) + " marks: "
+                            + e.getMessage());
+                    pending.addAll(batch.subList(i, batch.size()));
+                    recordCounters(written);
+                    return null;
+                }
+                deadLetter(mark, e);
+            }
+        }
+        return written;
+    }
+
+    /** Constraint violations, bad SQL and the like: retrying the same row can never succeed. */
+    private static boolean isPermanent(Exception e) {
+        return e instanceof NonTransientDataAccessException && !(e instanceof NonTransientDataAccessResourceException);
+    }
+
+    private void deadLetter(PendingMark mark, Exception e) {
+        logger.severe("Dropping attendance mark session=" + mark.sessionId + " section=" + mark.sectionId
+                + " student=" + mark.studentId + " at " + mark.markedAt + ": " + e.getMessage());
+        LiveSession live = sessionsById.get(mark.sessionId);
+        if (live != null)
+            live.markedStudents.remove(mark.studentId);
+    }
+
+    private void recordCounters(List<PendingMark> written) {
+        if (written.isEmpty())
+            return;
+        try {
+            List<Object[]> counted = new ArrayList<>(written.size());
+            for (PendingMark mark : written) {
+                if (AttendanceCounterService.isPresent(mark.status)) {
+                    counted.add(new Object[] { mark.studentId, mark.sectionId,
+                            java.sql.Date.valueOf(mark.markedAt.toLocalDate()) });
+                }
+            }
+            ownTransaction.executeWithoutResult(status -> counterService.recordPresent(counted));
+        } catch (Exception e) {
+            // Rows are already written; the nightly reconciliation will catch the counters up
+            logger.warning("Attendance counter update failed for " + written.size() + " marks: " + e.getMessage());
+        }
+    }
+
+    /** Drops live sessions whose OTP window has passed and counts them as held classes. */
+    @Scheduled(fixedDelay = 30000)
+    public void evictExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        sessionsByOtp.values().removeIf(s -> s.isExpired(now));
+        List<CourseAttendanceSession> closed = new ArrayList<>();
+        sessionsById.values().removeIf(s -> {
+            if (s.isExpired(now)) {
+                closed.add(s.getSession());
+                return true;
+            }
+            return false;
+        });
+        for (CourseAttendanceSession session : closed) {
+            closeSession(session);
+        }
+    }
+
+    /** Counts a closed session towards every enrolled student's total. */
+    public void closeSession(CourseAttendanceSession session) {
+        try {
+            counterService.recordClassHeld(session.getSection().getId(), session.getCreatedAt().toLocalDate());
+        } catch (Exception e) {
+            logger.warning("Attendance counter update failed for session " + session.getId() + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
@@ -3,22 +3,64 @@ package com.academic.platform.service;
 import com.academic.platform.dto.DepartmentAnalyticsDTO;
 import com.academic.platform.dto.DepartmentDashboardDTO;
 import com.academic.platform.model.Role;
-import com.academic.platform.model.User;
-import com.academic.platform.model.LeaveRequest;
 import com.academic.platform.repository.CourseRepository;
 import com.academic.platform.repository.LeaveRequestRepository;
 import com.academic.platform.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
-import java.time.format.DateTimeFormatter;
+import java.time.YearMonth;
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
-
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HOD dashboard and department analytics.
+ *
+ * Scalability: every figure is computed in the database — counts, averages,
+ * GPA buckets, the per-year breakdown and the top-5 list are aggregate
+ * queries over users / student_details joined to the attendance counters,
+ * so no student entity is loaded. Results are cached per department with
+ * stale-while-revalidate: after {@link #REFRESH_AFTER_SECONDS} the next read
+ * still returns the cached value while a reload runs in the background, and
+ * an entry untouched for {@link #EXPIRE_AFTER_MINUTES} is dropped.
+ */
 @Service
 public class DepartmentService {
 
+        private static final long REFRESH_AFTER_SECONDS = 60;
+        private static final long EXPIRE_AFTER_MINUTES = 30;
+        private static final int MAX_DEPARTMENTS = 200;
+
+        // Live course-wise counters; students with no held classes yet fall back to the profile value
+        private static final String ATTENDANCE = "COALESCE(ac.pct, sd.attendance, 0)";
+        private static final String GPA = "COALESCE(sd.gpa, 0)";
+
+        private static final String STUDENTS_FROM = " FROM users u "
+                        + "JOIN student_details sd ON sd.user_id = u.id "
+                        + "LEFT JOIN (SELECT c.student_id, "
+                        + "ROUND(LEAST(SUM(c.present), SUM(c.total)) * 100.0 / SUM(c.total), 1) AS pct "
+                        + "FROM attendance_counters c JOIN student_details d ON d.user_id = c.student_id "
+                        + "WHERE d.department = ? GROUP BY c.student_id HAVING SUM(c.total) > 0) ac "
+                        + "ON ac.student_id = u.id "
+                        + "WHERE sd.department = ? AND u.role = 'STUDENT'";
+
+        private static final String KPI_SQL = "SELECT COUNT(*), AVG(" + ATTENDANCE + "), AVG(" + GPA + "), "
+                        + "SUM(CASE WHEN " + GPA + " >= 8.5 THEN 1 ELSE 0 END), "
+                        + "SUM(CASE WHEN " + GPA + " >= 7.0 AND " + GPA + " < 8.5 THEN 1 ELSE 0 END), "
+                        + "SUM(CASE WHEN " + GPA + " >= 5.0 AND " + GPA + " < 7.0 THEN 1 ELSE 0 END), "
+                        + "SUM(CASE WHEN " + GPA + " < 5.0 THEN 1 ELSE 0 END)"
+                        + STUDENTS_FROM;
+
+        // Semesters 1,2 -> Year 1
+        private static final String ATTENDANCE_BY_YEAR_SQL = "SELECT (sd.semester + 1) DIV 2 AS yr, AVG("
+                        + ATTENDANCE + ")" + STUDENTS_FROM + " AND sd.semester IS NOT NULL GROUP BY yr ORDER BY yr";
+
+        private static final String TOP_STUDENTS_SQL = "SELECT u.full_name, sd.roll_number, " + ATTENDANCE + ", "
+                        + GPA + " AS g" + STUDENTS_FROM + " ORDER BY g DESC LIMIT 5";
+
         @Autowired
         private UserRepository userRepository;
 
@@ -28,134 +70,95 @@ public class DepartmentService {
         @Autowired
         private LeaveRequestRepository leaveRepository;
 
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private MonthlyRollupService monthlyRollupService;
+
+        private final LoadingCache<String, DepartmentDashboardDTO> dashboardCache = Caffeine.newBuilder()
+                        .maximumSize(MAX_DEPARTMENTS)
+                        .refreshAfterWrite(REFRESH_AFTER_SECONDS, TimeUnit.SECONDS)
+                        .expireAfterWrite(EXPIRE_AFTER_MINUTES, TimeUnit.MINUTES)
+                        .build(this::loadDashboardStats);
+
+        private final LoadingCache<String, DepartmentAnalyticsDTO> analyticsCache = Caffeine.newBuilder()
+                        .maximumSize(MAX_DEPARTMENTS)
+                        .refreshAfterWrite(REFRESH_AFTER_SECONDS, TimeUnit.SECONDS)
+                        .expireAfterWrite(EXPIRE_AFTER_MINUTES, TimeUnit.MINUTES)
+                        .build(this::loadAnalytics);
+
         public DepartmentDashboardDTO getDashboardStats(String department) {
-                DepartmentDashboardDTO dto = new DepartmentDashboardDTO();
+                return dashboardCache.get(department);
+        }
 
-                // 1. Faculty Count
-                dto.setTotalFaculty(
-                                userRepository.findByStudentDetails_DepartmentAndRoleIn(department,
-                                                Collections.singletonList(Role.TEACHER)).size());
+        public DepartmentAnalyticsDTO getAnalytics(String department) {
+                return analyticsCache.get(department);
+        }
 
-                // 2. Student Count
-                dto.setTotalStudents(
-                                userRepository.findByStudentDetails_DepartmentAndRoleIn(department,
-                                                Collections.singletonList(Role.STUDENT)).size());
+        /** Year-month series of new student registrations; months as yyyy-MM, default last 12. */
+        public List<Map<String, Object>> getEnrollmentTrend(String department, String from, String to) {
+                YearMonth end = MonthlyRollupService.parseMonth(to, YearMonth.now());
+                YearMonth start = MonthlyRollupService.parseMonth(from, MonthlyRollupService.defaultFrom(end));
+                return monthlyRollupService.getSeries(MonthlyRollupService.ENROLLMENT, department, start, end);
+        }
 
-                // 3. Course Count
-                dto.setTotalCourses(courseRepository.findByDepartment(department).size());
+        private DepartmentDashboardDTO loadDashboardStats(String department) {
+                DepartmentDashboardDTO dto = new DepartmentDashboardDTO();
 
-                // 4. Recent Leaves
-                List<LeaveRequest> allLeaves = leaveRepository
-                                .findByStudentStudentDetails_DepartmentOrderByCreatedAtDesc(department);
-                dto.setRecentActivities(allLeaves.stream().limit(5).toList());
+                // 1. Faculty / Student / Course counts
+                dto.setTotalFaculty(userRepository.countByStudentDetails_DepartmentAndRole(department, Role.TEACHER));
+                dto.setTotalStudents(userRepository.countByStudentDetails_DepartmentAndRole(department, Role.STUDENT));
+                dto.setTotalCourses(courseRepository.countByDepartment(department));
 
-                dto.setPendingLeaves(allLeaves.stream()
-                                .filter(l -> "PENDING".equals(l.getMentorStatus())
-                                                || "PENDING".equals(l.getParentStatus()))
-                                .count());
+                // 2. Recent Leaves
+                dto.setRecentActivities(
+                                leaveRepository.findTop5ByStudentStudentDetails_DepartmentOrderByCreatedAtDesc(department));
+                dto.setPendingLeaves(leaveRepository.countPendingByDepartment(department));
 
                 return dto;
         }
 
-        public DepartmentAnalyticsDTO getAnalytics(String department) {
+        private DepartmentAnalyticsDTO loadAnalytics(String department) {
                 DepartmentAnalyticsDTO dto = new DepartmentAnalyticsDTO();
 
-                List<User> students = userRepository.findByStudentDetails_DepartmentAndRoleIn(department,
-                                Collections.singletonList(Role.STUDENT));
-
-                // 1. KPIs
-                dto.setActiveStudents(students.size());
-                dto.setActiveCourses(courseRepository.findByDepartment(department).size());
-
-                double avgAttendance = students.stream()
-                                .mapToDouble(u -> u.getStudentDetails().getAttendance() != null
-                                                ? u.getStudentDetails().getAttendance()
-                                                : 0.0)
-                                .average().orElse(0.0);
-                dto.setCurrentAvgAttendance(Math.round(avgAttendance * 10.0) / 10.0);
-
-                double avgGPA = students.stream()
-                                .mapToDouble(u -> u.getStudentDetails().getGpa() != null
-                                                ? u.getStudentDetails().getGpa()
-                                                : 0.0)
-                                .average().orElse(0.0);
-                dto.setDeptCGPA(Math.round(avgGPA * 100.0) / 100.0);
-
-                // 2. Enrollment Trends (Group by Month - Last 6 months or all)
-                // Taking simplistic approach: formatting createdAt to "MMM"
-                // Note: Real world would need handling years, etc.
-                Map<String, Long> enrollmentMap = students.stream()
-                                .filter(u -> u.getCreatedAt() != null)
-                                .collect(Collectors.groupingBy(
-                                                u -> u.getCreatedAt().format(DateTimeFormatter.ofPattern("MMM")),
-                                                Collectors.counting()));
-
-                // Hardcoding a mock list if empty or filling gaps would be better, but let's
-                // just map present data
-                // To make it look like a trend, we might need to sort by date.
-                // For simplicity, let's just return what we have or some basic logic.
-                // If data is scarce, this chart might look empty.
-                // Let's rely on the fact that we might have seeded data or just show what's
-                // there.
-                List<DepartmentAnalyticsDTO.EnrollmentTrend> trends = new ArrayList<>();
-                enrollmentMap.forEach(
-                                (k, v) -> trends.add(new DepartmentAnalyticsDTO.EnrollmentTrend(k, v.intValue())));
-                dto.setEnrollmentTrends(trends);
+                // 1. KPIs and performance distribution in one pass
+                Object[] kpi = jdbcTemplate.queryForObject(KPI_SQL, (rs, i) -> new Object[] {
+                                rs.getInt(1), rs.getDouble(2), rs.getDouble(3),
+                                rs.getInt(4), rs.getInt(5), rs.getInt(6), rs.getInt(7) },
+                                department, department);
+
+                dto.setActiveStudents((Integer) kpi[0]);
+                dto.setActiveCourses((int) courseRepository.countByDepartment(department));
+                dto.setCurrentAvgAttendance(Math.round((Double) kpi[1] * 10.0) / 10.0);
+                dto.setDeptCGPA(Math.round((Double) kpi[2] * 100.0) / 100.0);
 
-                // 3. Attendance by Year
-                Map<Integer, Double> attendanceByYearMap = students.stream()
-                                .filter(u -> u.getStudentDetails().getSemester() != null)
-                                .collect(Collectors.groupingBy(
-                                                u -> (u.getStudentDetails().getSemester() + 1) / 2, // Sem 1,2 -> Year 1
-                                                Collectors.averagingDouble(
-                                                                u -> u.getStudentDetails().getAttendance() != null
-                                                                                ? u.getStudentDetails().getAttendance()
-                                                                                : 0.0)));
-
-                List<DepartmentAnalyticsDTO.AttendanceStats> attStats = new ArrayList<>();
-                attendanceByYearMap.forEach(
-                                (year, att) -> attStats.add(new DepartmentAnalyticsDTO.AttendanceStats("Year " + year,
-                                                Math.round(att * 10.0) / 10.0)));
-                dto.setAttendanceByYear(attStats);
-
-                // 4. Performance Distribution
-                int distinction = 0, first = 0, second = 0, fail = 0;
-                for (User s : students) {
-                        double g = s.getStudentDetails().getGpa() != null ? s.getStudentDetails().getGpa() : 0.0;
-                        if (g >= 8.5)
-                                distinction++;
-                        else if (g >= 7.0)
-                                first++;
-                        else if (g >= 5.0)
-                                second++;
-                        else
-                                fail++;
-                }
                 List<DepartmentAnalyticsDTO.PerformanceDistribution> perfDist = new ArrayList<>();
-                perfDist.add(new DepartmentAnalyticsDTO.PerformanceDistribution("Distinction", distinction));
-                perfDist.add(new DepartmentAnalyticsDTO.PerformanceDistribution("First Class", first));
-                perfDist.add(new DepartmentAnalyticsDTO.PerformanceDistribution("Second Class", second));
-                perfDist.add(new DepartmentAnalyticsDTO.PerformanceDistribution("Fail", fail));
+                perfDist.add(new DepartmentAnalyticsDTO.PerformanceDistribution("Distinction", (Integer) kpi[3]));
+                perfDist.add(new DepartmentAnalyticsDTO.PerformanceDistribution("First Class", (Integer) kpi[4]));
+                perfDist.add(new DepartmentAnalyticsDTO.PerformanceDistribution("Second Class", (Integer) kpi[5]));
+                perfDist.add(new DepartmentAnalyticsDTO.PerformanceDistribution("Fail", (Integer) kpi[6]));
                 dto.setPerformanceDistribution(perfDist);
 
-                // 5. Top Students
-                List<DepartmentAnalyticsDTO.TopStudent> top = students.stream()
-                                .sorted(Comparator
-                                                .comparingDouble((User u) -> u.getStudentDetails().getGpa() != null
-                                                                ? u.getStudentDetails().getGpa()
-                                                                : 0.0)
-                                                .reversed())
-                                .limit(5)
-                                .map(u -> new DepartmentAnalyticsDTO.TopStudent(
-                                                u.getFullName(),
-                                                u.getStudentDetails().getRollNumber(),
-                                                u.getStudentDetails().getAttendance() != null
-                                                                ? u.getStudentDetails().getAttendance()
-                                                                : 0.0,
-                                                u.getStudentDetails().getGpa() != null ? u.getStudentDetails().getGpa()
-                                                                : 0.0))
-                                .collect(Collectors.toList());
-                dto.setTopStudents(top);
+                // 2. Enrollment Trends (last 12 months, from the year-month rollup)
+                List<DepartmentAnalyticsDTO.EnrollmentTrend> trends = new ArrayList<>();
+                for (Map<String, Object> point : getEnrollmentTrend(department, null, null)) {
+                        trends.add(new DepartmentAnalyticsDTO.EnrollmentTrend((String) point.get("label"),
+                                        ((Number) point.get("count")).intValue()));
+                }
+                dto.setEnrollmentTrends(trends);
+
+                // 3. Attendance by Year
+                dto.setAttendanceByYear(jdbcTemplate.query(ATTENDANCE_BY_YEAR_SQL,
+                                (rs, i) -> new DepartmentAnalyticsDTO.AttendanceStats("Year " + rs.getInt(1),
+                                                Math.round(rs.getDouble(2) * 10.0) / 10.0),
+                                department, department));
+
+                // 4. Top Students
+                dto.setTopStudents(jdbcTemplate.query(TOP_STUDENTS_SQL,
+                                (rs, i) -> new DepartmentAnalyticsDTO.TopStudent(
+                                                rs.getString(1), rs.getString(2), rs.getDouble(3), rs.getDouble(4)),
+                                department, department));
 
                 return dto;
         }
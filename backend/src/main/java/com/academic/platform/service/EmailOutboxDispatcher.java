@@ -0,0 +1,385 @@
+package com.academic.platform.service;
+
+import com.academic.platform.model.EmailOutbox;
+import com.academic.platform.repository.EmailOutboxRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers the email outbox.
+ *
+ * Scalability: every couple of seconds the dispatcher — on its own thread,
+ * so waiting on SMTP never holds up the shared @Scheduled jobs — claims up to
+ * {@link #BATCH_SIZE} due rows with SELECT ... FOR UPDATE SKIP LOCKED (so
+ * several instances never claim the same row), marks them SENDING, and sends
+ * them on the emailExecutor, whose fixed pool bounds SMTP concurrency. The
+ * next batch is claimed only after the current one finishes, so the executor
+ * queue can never overflow. A failed send is retried with exponential backoff
+ * (30s, 1m, 2m … capped at 1h, with jitter) and moved to DEAD after
+ * {@link #MAX_ATTEMPTS} attempts. Rows stuck in SENDING by a crash are put
+ * back after {@link #STALE_CLAIM_MINUTES} minutes — delivery is at least once.
+ *
+ * Digests: rows with a digestKey were enqueued with their due time pushed out
+ * by the digest window. When one of them is claimed, every other PENDING row
+ * with the same key (same recipient and category, due or not) is locked in
+ * the same transaction and folded into the oldest claimed row, which is sent
+ * as a single "N updates" email; the folded rows become MERGED. A burst of
+ * status changes for one person therefore costs one SMTP send instead of one
+ * per change.
+ */
+@Service
+public class EmailOutboxDispatcher {
+
+    private static final Logger logger = Logger.getLogger(EmailOutboxDispatcher.class.getName());
+
+    private static final int BATCH_SIZE = 20;
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_DELAY_SECONDS = 30;
+    private static final long MAX_DELAY_SECONDS = 3600;
+    private static final long STALE_CLAIM_MINUTES = 10;
+    private static final int KEEP_SENT_DAYS = 7;
+    private static final long POLL_INTERVAL_MS = 2000;
+    private static final long INITIAL_DELAY_MS = 10000;
+
+    private static final String CLAIM_SQL = "SELECT id FROM email_outbox "
+            + "WHERE status = 'PENDING' AND next_attempt_at <= ? ORDER BY next_attempt_at LIMIT ? "
+            + "FOR UPDATE SKIP LOCKED";
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private SmtpTransportPool transportPool;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("emailExecutor")
+    private Executor emailExecutor;
+
+    private final long startedAt = System.currentTimeMillis();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private volatile long lastBatchSize;
+    private volatile long lastBatchMillis;
+    private volatile LocalDateTime lastBatchAt;
+
+    private ScheduledExecutorService poller;
+
+    @PostConstruct
+    public void start() {
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "email-outbox-dispatch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::dispatch, INITIAL_DELAY_MS, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Rows left SENDING by an interrupted batch are put back by releaseStaleClaims
+        poller.shutdown();
+        try {
+            poller.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void dispatch() {
+        try {
+            // Drain while full batches keep coming, so a burst clears without waiting between polls
+            int claimed;
+            do {
+                claimed = dispatchBatch();
+            } while (claimed == BATCH_SIZE);
+        } catch (Exception e) {
+            logger.warning("Email outbox dispatch failed: " + e.getMessage());
+        }
+    }
+
+    /** Claims and sends one batch; returns how many rows were claimed. */
+    int dispatchBatch() {
+        List<Long> ids = claim();
+        if (ids.isEmpty())
+            return 0;
+
+        long start = System.currentTimeMillis();
+        List<EmailOutbox> rows = outboxRepository.findAllById(ids);
+        List<CompletableFuture<Void>> sends = new ArrayList<>(rows.size());
+        for (EmailOutbox row : rows) {
+            sends.add(CompletableFuture.runAsync(() -> send(row), emailExecutor));
+        }
+        CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).join();
+
+        lastBatchSize = rows.size();
+        lastBatchMillis = System.currentTimeMillis() - start;
+        lastBatchAt = LocalDateTime.now();
+        return ids.size();
+    }
+
+    private List<Long> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = new TransactionTemplate(transactionManager).execute(status -> {
+            List<Long> claimed = jdbcTemplate.queryForList(CLAIM_SQL, Long.class, Timestamp.valueOf(now),
+                    BATCH_SIZE);
+            if (claimed.isEmpty())
+                return claimed;
+            String in = claimed.stream().map(String::valueOf).collect(Collectors.joining(","));
+            jdbcTemplate.update("UPDATE email_outbox SET status = 'SENDING', claimed_at = ? WHERE id IN (" + in + ")",
+                    Timestamp.valueOf(now));
+            return coalesce(claimed);
+        });
+        return ids != null ? ids : Collections.emptyList();
+    }
+
+    /**
+     * Folds pending rows that share a digest key with a claimed row into that
+     * row. Runs inside the claim transaction; returns the claimed ids that are
+     * still to be sent.
+     */
+    private List<Long> coalesce(List<Long> claimed) {
+        String in = claimed.stream().map(String::valueOf).collect(Collectors.joining(","));
+        Map<String, List<Long>> groups = new LinkedHashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList("SELECT id, digest_key FROM email_outbox "
+                + "WHERE id IN (" + in + ") AND digest_key IS NOT NULL ORDER BY id")) {
+            groups.computeIfAbsent((String) row.get("digest_key"), k -> new ArrayList<>())
+                    .add(((Number) row.get("id")).longValue());
+        }
+        if (groups.isEmpty())
+            return claimed;
+
+        Set<Long> merged = new HashSet<>();
+        for (Map.Entry<String, List<Long>> group : groups.entrySet()) {
+            List<Long> members = new ArrayList<>(group.getValue());
+            Long leader = members.get(0);
+            members.addAll(jdbcTemplate.queryForList("SELECT id FROM email_outbox "
+                    + "WHERE digest_key = ? AND status = 'PENDING' FOR UPDATE SKIP LOCKED", Long.class,
+                    group.getKey()));
+            if (members.size() < 2)
+                continue;
+
+            String memberIds = members.stream().map(String::valueOf).collect(Collectors.joining(","));
+            List<Map<String, Object>> items = jdbcTemplate.queryForList("SELECT subject, body, html FROM email_outbox "
+                    + "WHERE id IN (" + memberIds + ") ORDER BY id");
+            // digest_key is cleared so a digest that fails and is retried is never folded into another one
+            jdbcTemplate.update("UPDATE email_outbox SET subject = ?, body = ?, html = 1, digest_key = NULL "
+                    + "WHERE id = ?", digestSubject(items), digestBody(items), leader);
+
+            List<Long> others = members.subList(1, members.size());
+            jdbcTemplate.update("UPDATE email_outbox SET status = 'MERGED', merged_into = ?, claimed_at = NULL "
+                    + "WHERE id IN (" + others.stream().map(String::valueOf).collect(Collectors.joining(",")) + ")",
+                    leader);
+            merged.addAll(others);
+            coalesced.addAndGet(others.size());
+        }
+        if (merged.isEmpty())
+            return claimed;
+        return claimed.stream().filter(id -> !merged.contains(id)).collect(Collectors.toList());
+    }
+
+    private static String digestSubject(List<Map<String, Object>> items) {
+        String first = String.valueOf(items.get(0).get("subject"));
+        String subject = first + " (+" + (items.size() - 1) + " more update" + (items.size() > 2 ? "s" : "") + ")";
+        return subject.length() > 500 ? subject.substring(0, 500) : subject;
+    }
+
+    private static String digestBody(List<Map<String, Object>> items) {
+        StringBuilder out = new StringBuilder(4096);
+        out.append("<html><body style='font-family: Arial, sans-serif;'><h2>You have ").append(items.size())
+                .append(" updates</h2>");
+        for (Map<String, Object> item : items) {
+            out.append("<hr/><h3>");
+            EmailTemplateService.escapeInto(out, String.valueOf(item.get("subject")));
+            out.append("</h3>");
+            String body = item.get("body") == null ? "" : (String) item.get("body");
+            Object html = item.get("html");
+            boolean isHtml = html instanceof Boolean ? (Boolean) html
+                    : html instanceof Number && ((Number) html).intValue() != 0;
+            if (isHtml) {
+                out.append(innerBody(body));
+            } else {
+                out.append("<pre style='font-family: inherit; white-space: pre-wrap;'>");
+                EmailTemplateService.escapeInto(out, body);
+                out.append("</pre>");
+            }
+        }
+        return out.append("</body></html>").toString();
+    }
+
+    /** The content between <body> and </body>, or the whole fragment when there is no body element. */
+    private static String innerBody(String html) {
+        String lower = html.toLowerCase();
+        int open = lower.indexOf("<body");
+        int start = open < 0 ? -1 : lower.indexOf('>', open);
+        int end = lower.lastIndexOf("</body>");
+        if (start < 0 || end <= start)
+            return html;
+        return html.substring(start + 1, end);
+    }
+
+    private void send(EmailOutbox row) {
+        try {
+            emailService.deliver(row);
+            jdbcTemplate.update("UPDATE email_outbox SET status = 'SENT', sent_at = ?, last_error = NULL WHERE id = ?",
+                    Timestamp.valueOf(LocalDateTime.now()), row.getId());
+            sent.incrementAndGet();
+        } catch (Exception e) {
+            failedAttempts.incrementAndGet();
+            int attempts = row.getAttempts() + 1;
+            String error = truncate(e.getMessage());
+            if (attempts >= MAX_ATTEMPTS) {
+                jdbcTemplate.update("UPDATE email_outbox SET status = 'DEAD', attempts = ?, last_error = ? WHERE id = ?",
+                        attempts, error, row.getId());
+                deadLettered.incrementAndGet();
+                logger.warning("Email " + row.getId() + " to " + row.getRecipients() + " dead after " + attempts
+                        + " attempts: " + error);
+            } else {
+                jdbcTemplate.update("UPDATE email_outbox SET status = 'PENDING', attempts = ?, last_error = ?, "
+                        + "next_attempt_at = ? WHERE id = ?",
+                        attempts, error, Timestamp.valueOf(LocalDateTime.now().plus(backoff(attempts))), row.getId());
+            }
+        }
+    }
+
+    /** 30s, 1m, 2m, 4m … capped at an hour, each with ±20% jitter so retries of a burst spread out. */
+    static Duration backoff(int attempts) {
+        long seconds = Math.min(MAX_DELAY_SECONDS, BASE_DELAY_SECONDS << Math.min(attempts - 1, 20));
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return Duration.ofSeconds(Math.max(1, (long) (seconds * jitter)));
+    }
+
+    /** Puts back rows whose dispatcher died mid-send. */
+    @Scheduled(fixedDelay = 300000)
+    public void releaseStaleClaims() {
+        try {
+            int released = jdbcTemplate.update("UPDATE email_outbox SET status = 'PENDING' "
+                    + "WHERE status = 'SENDING' AND claimed_at < ?",
+                    Timestamp.valueOf(LocalDateTime.now().minusMinutes(STALE_CLAIM_MINUTES)));
+            if (released > 0)
+                logger.warning("Released " + released + " stale email outbox claims");
+        } catch (Exception e) {
+            logger.warning("Email outbox stale-claim release failed: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "0 40 3 * * *")
+    public void purgeSent() {
+        try {
+            int purged = jdbcTemplate.update("DELETE FROM email_outbox WHERE status = 'SENT' AND sent_at < ?",
+                    Timestamp.valueOf(LocalDateTime.now().minusDays(KEEP_SENT_DAYS)));
+            logger.info("Purged " + purged + " sent emails from the outbox");
+        } catch (Exception e) {
+            logger.warning("Email outbox purge failed: " + e.getMessage());
+        }
+    }
+
+    /** Backlog by status, age of the oldest due row, and send counters since startup. */
+    public Map<String, Object> getStats() {
+        Map<String, Long> backlog = new LinkedHashMap<>();
+        for (String status : new String[] { EmailOutbox.PENDING, EmailOutbox.SENDING, EmailOutbox.SENT,
+                EmailOutbox.DEAD, EmailOutbox.MERGED }) {
+            backlog.put(status, 0L);
+        }
+        for (Object[] row : outboxRepository.countByStatus()) {
+            backlog.put((String) row[0], ((Number) row[1]).longValue());
+        }
+        Timestamp oldestDue = jdbcTemplate.queryForObject("SELECT MIN(next_attempt_at) FROM email_outbox "
+                + "WHERE status = 'PENDING' AND next_attempt_at <= NOW()", Timestamp.class);
+
+        double uptimeMinutes = Math.max(1, (System.currentTimeMillis() - startedAt) / 60000.0);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backlog", backlog);
+        stats.put("oldestDueSeconds", oldestDue == null ? 0
+                : Math.max(0, (System.currentTimeMillis() - oldestDue.getTime()) / 1000));
+        stats.put("sentSinceStart", sent.get());
+        stats.put("failedAttemptsSinceStart", failedAttempts.get());
+        stats.put("deadLetteredSinceStart", deadLettered.get());
+        stats.put("coalescedSinceStart", coalesced.get());
+        stats.put("sentPerMinute", Math.round(sent.get() / uptimeMinutes * 10.0) / 10.0);
+        stats.put("lastBatchSize", lastBatchSize);
+        stats.put("lastBatchMillis", lastBatchMillis);
+        stats.put("lastBatchAt", lastBatchAt);
+        stats.put("smtp", transportPool.getStats());
+        return stats;
+    }
+
+    public List<EmailOutbox> getDeadLetters(int limit) {
+        return outboxRepository.findByStatusOrderByIdDesc(EmailOutbox.DEAD,
+                PageRequest.of(0, Math.min(Math.max(limit, 1), 500)));
+    }
+
+    /** Sends a dead (or pending) email again on the next poll with a fresh retry budget. */
+    public EmailOutbox retry(Long id) {
+        EmailOutbox row = outboxRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Outbox email not found"));
+        if (EmailOutbox.SENT.equals(row.getStatus()) || EmailOutbox.SENDING.equals(row.getStatus())) {
+            throw new RuntimeException("Email is already " + row.getStatus().toLowerCase());
+        }
+        if (EmailOutbox.MERGED.equals(row.getStatus())) {
+            throw new RuntimeException("Email was merged into digest " + row.getMergedInto());
+        }
+        row.setStatus(EmailOutbox.PENDING);
+        row.setAttempts(0);
+        row.setNextAttemptAt(LocalDateTime.now());
+        return outboxRepository.save(row);
+    }
+
+    /** Logs a one-line summary every 5 minutes while there is traffic or backlog. */
+    @Scheduled(fixedDelay = 300000, initialDelay = 300000)
+    public void logStats() {
+        try {
+            Map<String, Object> stats = getStats();
+            @SuppressWarnings("unchecked")
+            Map<String, Long> backlog = (Map<String, Long>) stats.get("backlog");
+            if (sent.get() > 0 || backlog.get(EmailOutbox.PENDING) > 0 || backlog.get(EmailOutbox.DEAD) > 0)
+                logger.info("Email outbox: " + stats);
+        } catch (Exception e) {
+            logger.warning("Email outbox stats failed: " + e.getMessage());
+        }
+    }
+
+    private static String truncate(String message) {
+        if (message == null)
+            return "unknown error";
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
@@ -1,220 +1,220 @@
 package com.academic.platform.service;
 
+import com.academic.platform.model.EmailOutbox;
+import com.academic.platform.repository.EmailOutboxRepository;
+import jakarta.mail.internet.MimeMessage;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
 /**
- * EmailService — all send methods are @Async.
+ * EmailService — builds emails and queues them in the email outbox.
  *
  * Scalability: Email sending is a slow I/O operation (100-3000ms SMTP round trip).
- * Making every send method async means the HTTP response returns immediately
- * while the email is dispatched in the background 'emailExecutor' thread pool.
- * This prevents a slow/unavailable mail server from degrading the entire platform.
+ * Send methods only insert an email_outbox row, inside the caller's transaction
+ * when there is one, so the HTTP response returns immediately, a burst can
+ * never be rejected by a full executor queue, and a restart loses nothing.
+ * EmailOutboxDispatcher delivers the rows in batches via {@link #deliver},
+ * over SmtpTransportPool's long-lived connections. Group mails are split into
+ * rows of at most {@link #MAX_BCC_PER_MESSAGE} recipients to stay under
+ * provider per-message recipient limits and spread over the pool.
+ *
+ * Mails in a category listed in mail.digest.categories are held for
+ * mail.digest.window-minutes and carry a recipient|category digest key; the
+ * dispatcher folds everything queued for that key into one digest. Other
+ * categories, OTPs above all, go out on the next poll.
  */
 @Service
 public class EmailService {
 
+    public static final String CATEGORY_OTP = "OTP";
+    public static final String CATEGORY_LEAVE_STATUS = "LEAVE_STATUS";
+    public static final String CATEGORY_MEETING = "MEETING";
+    public static final String CATEGORY_ATTENDANCE = "ATTENDANCE";
+    public static final String CATEGORY_GENERAL = "GENERAL";
+
+    private static final int MAX_BCC_PER_MESSAGE = 50;
+
+    @Value("${mail.digest.window-minutes:10}")
+    private long digestWindowMinutes;
+
+    @Value("${mail.digest.categories:LEAVE_STATUS,MEETING}")
+    private Set<String> digestCategories;
+
     @Autowired
     private JavaMailSender mailSender;
 
     @Autowired
     private SystemSettingService systemSettingService;
 
-    @Async("emailExecutor")
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private SmtpTransportPool transportPool;
+
+    @Autowired
+    private EmailTemplateService templateService;
+
     public void sendHtmlEmail(String to, String subject, String htmlBody) {
+        sendHtmlEmail(to, subject, htmlBody, CATEGORY_GENERAL);
+    }
+
+    public void sendHtmlEmail(String to, String subject, String htmlBody, String category) {
+        enqueue(to, false, subject, htmlBody, true, category);
+    }
+
+    private void enqueue(String recipients, boolean bcc, String subject, String body, boolean html,
+            String category) {
         if ("false".equalsIgnoreCase(systemSettingService.getSetting("emailNotifications"))) {
-            System.out.println("Email notifications are disabled. Skipping email to: " + to);
+            System.out.println("Email notifications are disabled. Skipping email to: " + recipients);
+            return;
+        }
+        if (recipients == null || recipients.isBlank()) {
             return;
         }
+        LocalDateTime now = LocalDateTime.now();
+        // Only single-recipient mails are coalesced; group (BCC) mails are already one message per event
+        boolean digest = !bcc && digestWindowMinutes > 0 && digestCategories.contains(category);
+        List<EmailOutbox> rows = new ArrayList<>();
+        for (String chunk : bcc ? chunk(recipients) : List.of(recipients)) {
+            rows.add(EmailOutbox.builder()
+                    .recipients(chunk)
+                    .bcc(bcc)
+                    .subject(subject)
+                    .body(body)
+                    .html(html)
+                    .category(category)
+                    .digestKey(digest ? chunk.trim().toLowerCase() + "|" + category : null)
+                    .status(EmailOutbox.PENDING)
+                    .nextAttemptAt(digest ? now.plusMinutes(digestWindowMinutes) : now)
+                    .createdAt(now)
+                    .build());
+        }
+        outboxRepository.saveAll(rows);
+    }
 
-        try {
-            jakarta.mail.internet.MimeMessage message = mailSender.createMimeMessage();
-            org.springframework.mail.javamail.MimeMessageHelper helper = new org.springframework.mail.javamail.MimeMessageHelper(
-                    message, true, "UTF-8");
-
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(htmlBody, true); // true = isHtml
-
-            mailSender.send(message);
-            System.out.println("Email sent successfully to: " + to);
-        } catch (Exception e) {
-            System.err.println("Failed to send HTML email to " + to + ": " + e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException("Failed to send email: " + e.getMessage());
+    private static List<String> chunk(String recipients) {
+        String[] all = recipients.split(",");
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < all.length; i += MAX_BCC_PER_MESSAGE) {
+            chunks.add(String.join(",", Arrays.copyOfRange(all, i, Math.min(all.length, i + MAX_BCC_PER_MESSAGE))));
         }
+        return chunks;
+    }
+
+    /** Sends one outbox row over a pooled SMTP connection; throws on failure so the dispatcher can retry. */
+    public void deliver(EmailOutbox email) throws Exception {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, email.isHtml(), "UTF-8");
+        String[] recipients = email.getRecipients().split(",");
+        if (email.isBcc()) {
+            helper.setBcc(recipients);
+        } else {
+            helper.setTo(recipients);
+        }
+        helper.setSubject(email.getSubject());
+        helper.setText(email.getBody(), email.isHtml());
+        transportPool.send(message);
     }
 
-    @Async("emailExecutor")
     public void sendMeetingNotification(String to, String mentorName, String title, String time, String location) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(to);
-        message.setSubject("New Mentorship Meeting Scheduled: " + title);
-        message.setText("Dear Student,\n\n" +
+        enqueue(to, false, "New Mentorship Meeting Scheduled: " + title, "Dear Student,\n\n" +
                 "A new mentorship meeting has been scheduled by " + mentorName + ".\n\n" +
                 "Title: " + title + "\n" +
                 "Time: " + time + "\n" +
                 "Location: " + location + "\n\n" +
                 "Please be on time.\n\n" +
                 "Best Regards,\n" +
-                "Academic Platform Team");
-
-        try {
-            mailSender.send(message);
-        } catch (Exception e) {
-            System.err.println("Failed to send email: " + e.getMessage());
-        }
+                "Academic Platform Team", false, CATEGORY_MEETING);
     }
 
-    @Async("emailExecutor")
     public void sendBulkMeetingNotification(String[] bcc, String mentorName, String title, String time,
             String location) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setBcc(bcc); // Use BCC for privacy
-        message.setSubject("Group Mentorship Meeting: " + title);
-        message.setText("Dear Students,\n\n" +
+        // Use BCC for privacy
+        enqueue(String.join(",", bcc), true, "Group Mentorship Meeting: " + title, "Dear Students,\n\n" +
                 "You are invited to a group mentorship meeting by " + mentorName + ".\n\n" +
                 "Title: " + title + "\n" +
                 "Time: " + time + "\n" +
                 "Location: " + location + "\n\n" +
                 "Please make sure to attend.\n\n" +
                 "Best Regards,\n" +
-                "Academic Platform Team");
-
-        try {
-            mailSender.send(message);
-        } catch (Exception e) {
-            System.err.println("Failed to send bulk email: " + e.getMessage());
-        }
+                "Academic Platform Team", false, CATEGORY_MEETING);
     }
 
     // --- Leave Workflow Emails ---
 
-    @Async("emailExecutor")
     public void sendParentApprovalRequest(String parentEmail, String studentName, String leaveReason, String from,
             String to, String approvalLink, String otp) {
-        String html = "<!DOCTYPE html><html><head><meta charset='UTF-8'></head>"
-                + "<body style='font-family: sans-serif; background-color: #121212; margin: 0; padding: 0;'>"
-                + "  <div style='max-width: 400px; margin: 20px auto; background-color: #1a1a1a; border-radius: 12px; overflow: hidden; box-shadow: 0 4px 6px rgba(0,0,0,0.3); color: #ffffff;'>"
-                + "    <div style='background-color: #1e3a8a; padding: 30px 20px; text-align: center;'>"
-                + "      <h1 style='margin: 0; font-size: 20px; font-weight: 700; color: #ffffff; text-transform: uppercase; letter-spacing: 1px;'>ACADEMIC PORTAL</h1>"
-                + "      <p style='margin: 5px 0 0; font-size: 12px; color: #bfdbfe; font-weight: 500;'>Leave Authorization</p>"
-                + "    </div>"
-                + "    <div style='padding: 30px 20px; text-align: center;'>"
-                + "      <h2 style='font-size: 16px; margin: 0 0 10px; font-weight: 600; color: #ffffff;'>Verify Leave Request</h2>"
-                + "      <p style='font-size: 14px; color: #9ca3af; margin: 0 0 20px;'>Your child <strong>"
-                + studentName + "</strong> has requested leave.</p>"
-                + "      <div style='background-color: #262626; border-radius: 8px; padding: 15px; text-align: left; margin: 15px 0; font-size: 13px; color: #d1d5db;'>"
-                + "        <p style='margin: 5px 0;'><strong>Date:</strong> " + from + " to " + to + "</p>"
-                + "        <p style='margin: 5px 0;'><strong>Reason:</strong> " + leaveReason + "</p>"
-                + "      </div>"
-                + "      <p style='font-size: 12px; margin-top: 20px; color: #9ca3af;'>To authorize this request, please share the code below with the mentor:</p>"
-                + "      <div style='background-color: #0f1c13; border: 1px solid #14532d; border-radius: 8px; padding: 15px; margin: 20px 0; display: inline-block; width: 80%;'>"
-                + "        <p style='color: #22c55e; font-size: 32px; font-weight: 700; letter-spacing: 5px; margin: 0; font-family: monospace;'>"
-                + otp + "</p>"
-                + "      </div>"
-                + "      <p style='color: #ffffff; margin-bottom: 5px; font-weight: 600; font-size: 12px;'>Valid for 7 days.</p>"
-                + "      <p style='font-size: 12px; color: #6b7280; margin-top: 20px;'>Do not share this OTP with anyone other than the mentor.</p>"
-                + "    </div>"
-                + "    <div style='background-color: #171717; padding: 15px; text-align: center; font-size: 10px; color: #525252; border-top: 1px solid #262626;'>"
-                + "      &copy; 2026 Academic Platform System. All rights reserved."
-                + "    </div>"
-                + "  </div>"
-                + "</body></html>";
-
-        sendHtmlEmail(parentEmail, "Leave Authorization Code for " + studentName, html);
+        String html = templateService.render("parent-approval", EmailTemplateService.values(
+                "studentName", studentName,
+                "from", from,
+                "to", to,
+                "leaveReason", leaveReason,
+                "otp", otp));
+
+        sendHtmlEmail(parentEmail, "Leave Authorization Code for " + studentName, html, CATEGORY_OTP);
     }
 
-    @Async("emailExecutor")
     public void sendStudentLeaveStatus(String studentEmail, String status, String comments) {
-        String color = "APPROVED".equals(status) ? "#10b981" : "#ef4444";
-        String html = "<html><body>"
-                + "<h2>Leave Request Update</h2>"
-                + "<p>Dear Student,</p>"
-                + "<p>Your leave request has been <strong style='color:" + color + "'>" + status + "</strong>.</p>"
-                + (comments != null ? "<p><strong>Comments:</strong> " + comments + "</p>" : "")
-                + "<p>Regards,<br>Academic Team</p>"
-                + "</body></html>";
-
-        sendHtmlEmail(studentEmail, "Leave Request " + status, html);
+        // Comments are free text from the mentor or parent, so they go through the escaping template
+        String html = templateService.render("leave-status", EmailTemplateService.values(
+                "color", "APPROVED".equals(status) ? "#10b981" : "#ef4444",
+                "status", status,
+                "comments", comments != null && !comments.isBlank() ? comments : "None"));
+
+        sendHtmlEmail(studentEmail, "Leave Request " + status, html, CATEGORY_LEAVE_STATUS);
     }
 
-    @Async("emailExecutor")
     public void sendActionOtp(String to, String otp, String actionDescription) {
-        String html = "<!DOCTYPE html>"
-                + "<html>"
-                + "<head>"
-                + "<meta charset='UTF-8'>"
-                + "<style>"
-                + "  body { font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif; background-color: #121212; margin: 0; padding: 0; }"
-                + "  .container { max-width: 400px; margin: 20px auto; background-color: #1a1a1a; border-radius: 12px; overflow: hidden; box-shadow: 0 4px 6px rgba(0,0,0,0.3); color: #ffffff; }"
-                + "  .header { background-color: #1e3a8a; padding: 30px 20px; text-align: center; }"
-                + "  .header h1 { margin: 0; font-size: 20px; font-weight: 700; color: #ffffff; text-transform: uppercase; letter-spacing: 1px; }"
-                + "  .header p { margin: 5px 0 0; font-size: 12px; color: #bfdbfe; font-weight: 500; }"
-                + "  .content { padding: 30px 20px; text-align: center; }"
-                + "  .content h2 { font-size: 16px; margin: 0 0 10px; font-weight: 600; color: #ffffff; }"
-                + "  .content p { font-size: 14px; color: #9ca3af; margin: 0 0 20px; }"
-                + "  .otp-box { background-color: #0f1c13; border: 1px solid #14532d; border-radius: 8px; padding: 15px; margin: 20px 0; display: inline-block; width: 80%; }"
-                + "  .otp-code { color: #22c55e; font-size: 32px; font-weight: 700; letter-spacing: 5px; margin: 0; font-family: monospace; }"
-                + "  .warning { font-size: 12px; color: #6b7280; margin-top: 20px; }"
-                + "  .footer { background-color: #171717; padding: 15px; text-align: center; font-size: 10px; color: #525252; border-top: 1px solid #262626; }"
-                + "</style>"
-                + "</head>"
-                + "<body>"
-                + "  <div class='container'>"
-                + "    <div class='header'>"
-                + "      <h1>ACADEMIC PORTAL</h1>"
-                + "      <p>Secure Action Verification</p>"
-                + "    </div>"
-                + "    <div class='content'>"
-                + "      <h2>OTP Verification</h2>"
-                + "      <p>You are attempting to: <strong>" + actionDescription
-                + "</strong>. Use the One Time Password below to verify this action.</p>"
-                + "      <div class='otp-box'>"
-                + "        <p class='otp-code'>" + otp + "</p>"
-                + "      </div>"
-                + "      <p style='color: #ffffff; margin-bottom: 5px; font-weight: 600;'>Valid for 5 minutes.</p>"
-                + "      <p class='warning'>Do not share this OTP with anyone. If you didn't request this, please ignore this email.</p>"
-                + "    </div>"
-                + "    <div class='footer'>"
-                + "      &copy; 2026 Academic Platform System. All rights reserved."
-                + "    </div>"
-                + "  </div>"
-                + "</body>"
-                + "</html>";
-
-        sendHtmlEmail(to, "Verification OTP: " + otp, html);
+        String html = templateService.render("action-otp", EmailTemplateService.values(
+                "actionDescription", actionDescription,
+                "otp", otp));
+
+        sendHtmlEmail(to, "Verification OTP: " + otp, html, CATEGORY_OTP);
     }
 
-    @Async("emailExecutor")
     public void sendParentOtpCode(String parentEmail, String studentName, String otp) {
-        String html = "<!DOCTYPE html><html><head><meta charset='UTF-8'></head>"
-                + "<body style='font-family: sans-serif; background-color: #121212; margin: 0; padding: 0;'>"
-                + "  <div style='max-width: 400px; margin: 20px auto; background-color: #1a1a1a; border-radius: 12px; overflow: hidden; box-shadow: 0 4px 6px rgba(0,0,0,0.3); color: #ffffff;'>"
-                + "    <div style='background-color: #1e3a8a; padding: 30px 20px; text-align: center;'>"
-                + "      <h1 style='margin: 0; font-size: 20px; font-weight: 700; color: #ffffff; text-transform: uppercase; letter-spacing: 1px;'>ACADEMIC PORTAL</h1>"
-                + "      <p style='margin: 5px 0 0; font-size: 12px; color: #bfdbfe; font-weight: 500;'>Security Verification</p>"
-                + "    </div>"
-                + "    <div style='padding: 30px 20px; text-align: center;'>"
-                + "      <h2 style='font-size: 16px; margin: 0 0 10px; font-weight: 600; color: #ffffff;'>Leave Approval OTP</h2>"
-                + "      <p style='font-size: 14px; color: #9ca3af; margin: 0 0 20px;'>You have approved the leave for <strong>"
-                + studentName + "</strong>.</p>"
-                + "      <p style='font-size: 12px; color: #9ca3af;'>Provide this code to the mentor to finalize the process:</p>"
-                + "      <div style='background-color: #0f1c13; border: 1px solid #14532d; border-radius: 8px; padding: 15px; margin: 20px 0; display: inline-block; width: 80%;'>"
-                + "        <p style='color: #22c55e; font-size: 32px; font-weight: 700; letter-spacing: 5px; margin: 0; font-family: monospace;'>"
-                + otp + "</p>"
-                + "      </div>"
-                + "      <p style='color: #ffffff; margin-bottom: 5px; font-weight: 600; font-size: 12px;'>Valid for 7 days.</p>"
-                + "    </div>"
-                + "    <div style='background-color: #171717; padding: 15px; text-align: center; font-size: 10px; color: #525252; border-top: 1px solid #262626;'>"
-                + "      &copy; 2026 Academic Platform System. All rights reserved."
-                + "    </div>"
-                + "  </div>"
-                + "</body></html>";
-
-        sendHtmlEmail(parentEmail, "Action Required: OTP for Leave Approval", html);
+        String html = templateService.render("parent-otp", EmailTemplateService.values(
+                "studentName", studentName,
+                "otp", otp));
+
+        sendHtmlEmail(parentEmail, "Action Required: OTP for Leave Approval", html, CATEGORY_OTP);
+    }
+
+    // --- Attendance Alerts ---
+
+    /**
+     * One digest per mentor listing every mentee below the attendance
+     * threshold, queued in the outbox like every other email.
+     */
+    public void sendAttendanceShortageDigest(String mentorEmail, String mentorName,
+            java.util.List<com.academic.platform.model.AttendanceShortage> mentees, double threshold) {
+        // Names come from user profiles, so every value goes through the escaping template
+        java.util.List<java.util.Map<String, Object>> rows = new java.util.ArrayList<>(mentees.size());
+        for (com.academic.platform.model.AttendanceShortage s : mentees) {
+            rows.add(EmailTemplateService.values(
+                    "rollNumber", s.getRollNumber(),
+                    "studentName", s.getStudentName(),
+                    "percentage", s.getPercentage(),
+                    "present", s.getPresent(),
+                    "total", s.getTotal(),
+                    "color", "DETAINED".equals(s.getStanding()) ? "#ef4444" : "#f59e0b",
+                    "standing", s.getStanding()));
+        }
+        String html = templateService.renderList("attendance-shortage", EmailTemplateService.values(
+                "mentorName", mentorName != null ? mentorName : "Mentor",
+                "threshold", threshold), "rows", "attendance-shortage-row", rows);
+
+        sendHtmlEmail(mentorEmail, "Attendance shortage: " + mentees.size() + " mentee(s) need attention", html,
+                CATEGORY_ATTENDANCE);
     }
 }
@@ -0,0 +1,206 @@
+package com.academic.platform.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * HTML email templates from classpath:email-templates/{name}.{lang}.html.
+ *
+ * Scalability: every template is parsed once at startup into alternating
+ * static segments and {{placeholder}} slots, so rendering is a single pass of
+ * appends into a per-thread StringBuilder that is reused across calls — no
+ * re-parsing, regex or repeated concatenation of the multi-kilobyte markup.
+ * Placeholder values are HTML-escaped as they are written. The language comes
+ * from the defaultLanguage setting (a name such as "English" or a code such
+ * as "ta"), falling back to English when a template has no translation.
+ */
+@Service
+public class EmailTemplateService {
+
+    private static final Logger logger = Logger.getLogger(EmailTemplateService.class.getName());
+
+    private static final String LOCATION = "classpath:email-templates/*.html";
+    private static final String FALLBACK_LANGUAGE = "en";
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    @Autowired
+    private SystemSettingService systemSettingService;
+
+    /** Parsed template: statics[i] is followed by the value of slots[i]; statics has one extra tail entry. */
+    static final class CompiledTemplate {
+        final String[] statics;
+        final String[] slots;
+        final int staticLength;
+
+        CompiledTemplate(String[] statics, String[] slots) {
+            this.statics = statics;
+            this.slots = slots;
+            int length = 0;
+            for (String s : statics)
+                length += s.length();
+            this.staticLength = length;
+        }
+
+        void renderInto(StringBuilder out, Map<String, ?> values) {
+            renderInto(out, values, null, null, List.of());
+        }
+
+        /** As above, but listSlot is filled by rendering item once per entry of items. */
+        void renderInto(StringBuilder out, Map<String, ?> values, String listSlot, CompiledTemplate item,
+                List<? extends Map<String, ?>> items) {
+            for (int i = 0; i < slots.length; i++) {
+                out.append(statics[i]);
+                if (slots[i].equals(listSlot)) {
+                    for (Map<String, ?> itemValues : items)
+                        item.renderInto(out, itemValues);
+                    continue;
+                }
+                Object value = values.get(slots[i]);
+                if (value != null)
+                    escapeInto(out, value.toString());
+            }
+            out.append(statics[slots.length]);
+        }
+    }
+
+    // key: name + "." + language
+    private final Map<String, CompiledTemplate> templates = new HashMap<>();
+
+    // {setting, code}, swapped as one reference
+    private volatile String[] resolvedLanguage;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(8192));
+
+    @PostConstruct
+    public void load() {
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(LOCATION)) {
+                String file = resource.getFilename();
+                if (file == null)
+                    continue;
+                try (InputStream in = resource.getInputStream()) {
+                    String source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                    templates.put(file.substring(0, file.length() - ".html".length()), compile(source));
+                }
+            }
+            logger.info("Loaded " + templates.size() + " email templates");
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load email templates: " + e.getMessage());
+        }
+    }
+
+    /** Renders a template in the configured language with HTML-escaped values. */
+    public String render(String name, Map<String, ?> values) {
+        return render(name, values, null, null, List.of());
+    }
+
+    /**
+     * Renders a template whose listSlot placeholder repeats the itemName
+     * template once per entry of items (table rows and the like); item values
+     * are escaped like any other.
+     */
+    public String renderList(String name, Map<String, ?> values, String listSlot, String itemName,
+            List<? extends Map<String, ?>> items) {
+        return render(name, values, listSlot, template(itemName), items);
+    }
+
+    private String render(String name, Map<String, ?> values, String listSlot, CompiledTemplate item,
+            List<? extends Map<String, ?>> items) {
+        CompiledTemplate template = template(name);
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        out.ensureCapacity(template.staticLength + (item != null ? item.staticLength * items.size() : 0) + 256);
+        template.renderInto(out, values, listSlot, item, items);
+        String html = out.toString();
+        if (out.capacity() > MAX_RETAINED_BUFFER)
+            BUFFER.remove(); // don't pin an oversized buffer to the thread
+        return html;
+    }
+
+    private CompiledTemplate template(String name) {
+        CompiledTemplate template = templates.get(name + "." + language());
+        if (template == null)
+            template = templates.get(name + "." + FALLBACK_LANGUAGE);
+        if (template == null)
+            throw new RuntimeException("Email template not found: " + name);
+        return template;
+    }
+
+    /** Placeholder values from alternating name / value arguments; null values render as empty. */
+    public static Map<String, Object> values(Object... namesAndValues) {
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+            values.put((String) namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return values;
+    }
+
+    static CompiledTemplate compile(String source) {
+        List<String> statics = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        int pos = 0;
+        while (true) {
+            int open = source.indexOf("{{", pos);
+            int close = open < 0 ? -1 : source.indexOf("}}", open + 2);
+            if (close < 0) {
+                statics.add(source.substring(pos));
+                break;
+            }
+            statics.add(source.substring(pos, open));
+            slots.add(source.substring(open + 2, close).trim());
+            pos = close + 2;
+        }
+        return new CompiledTemplate(statics.toArray(new String[0]), slots.toArray(new String[0]));
+    }
+
+    /** The defaultLanguage setting as a language code; resolved again only when the setting changes. */
+    private String language() {
+        String setting = systemSettingService.getSetting("defaultLanguage").trim();
+        String[] cached = resolvedLanguage;
+        if (cached != null && cached[0].equals(setting))
+            return cached[1];
+        String code = toLanguageCode(setting);
+        resolvedLanguage = new String[] { setting, code };
+        return code;
+    }
+
+    /** "English", "Tamil", "en", … to a language code. */
+    static String toLanguageCode(String setting) {
+        if (setting.isEmpty())
+            return FALLBACK_LANGUAGE;
+        if (setting.length() <= 3)
+            return setting.toLowerCase(Locale.ROOT);
+        for (String code : Locale.getISOLanguages()) {
+            if (new Locale(code).getDisplayLanguage(Locale.ENGLISH).equalsIgnoreCase(setting))
+                return code;
+        }
+        return FALLBACK_LANGUAGE;
+    }
+
+    static void escapeInto(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> out.append("&amp;");
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
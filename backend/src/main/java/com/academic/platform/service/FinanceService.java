@@ -10,6 +10,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.*;
 
 @Service
@@ -24,6 +25,9 @@ public class FinanceService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private MonthlyRollupService monthlyRollupService;
+
     // ──────────────── FEE RECORDS ────────────────
 
     public List<FeeRecord> getAllFeeRecords() {
@@ -41,18 +45,26 @@ public class FinanceService {
     public FeeRecord createFeeRecord(Map<String, Object> data) {
         FeeRecord record = new FeeRecord();
         applyFeeData(record, data);
-        return feeRecordRepository.save(record);
+        FeeRecord saved = feeRecordRepository.save(record);
+        monthlyRollupService.applyFeeChange(null, MonthlyRollupService.contributionOf(saved));
+        return saved;
     }
 
     public FeeRecord updateFeeRecord(Long id, Map<String, Object> data) {
         FeeRecord record = feeRecordRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Fee record not found: " + id));
+        MonthlyRollupService.FeeContribution before = MonthlyRollupService.contributionOf(record);
         applyFeeData(record, data);
-        return feeRecordRepository.save(record);
+        FeeRecord saved = feeRecordRepository.save(record);
+        monthlyRollupService.applyFeeChange(before, MonthlyRollupService.contributionOf(saved));
+        return saved;
     }
 
     public void deleteFeeRecord(Long id) {
+        MonthlyRollupService.FeeContribution before = feeRecordRepository.findById(id)
+                .map(MonthlyRollupService::contributionOf).orElse(null);
         feeRecordRepository.deleteById(id);
+        monthlyRollupService.applyFeeChange(before, null);
     }
 
     private void applyFeeData(FeeRecord record, Map<String, Object> data) {
@@ -92,30 +104,30 @@ public class FinanceService {
 
     // ──────────────── MONTHLY CHART DATA ────────────────
 
-    /** Returns list of {month, totalCollected} for the chart */
+    /**
+     * Returns list of {month, amount} for the chart: the last 12 months, read
+     * from the fee rollup so months of different years are never merged.
+     */
     public List<Map<String, Object>> getMonthlyCollectionData() {
-        String[] MONTHS = { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
-        Map<Integer, Double> monthMap = new LinkedHashMap<>();
-        for (int i = 1; i <= 12; i++)
-            monthMap.put(i, 0.0);
-
-        List<Object[]> rows = feeRecordRepository.getMonthlyCollectionTotals();
-        for (Object[] row : rows) {
-            int month = ((Number) row[0]).intValue();
-            double total = row[1] != null ? ((Number) row[1]).doubleValue() : 0.0;
-            monthMap.put(month, total);
-        }
-
+        YearMonth end = YearMonth.now();
         List<Map<String, Object>> result = new ArrayList<>();
-        for (Map.Entry<Integer, Double> e : monthMap.entrySet()) {
-            Map<String, Object> point = new LinkedHashMap<>();
-            point.put("month", MONTHS[e.getKey() - 1]);
-            point.put("amount", e.getValue());
-            result.add(point);
+        for (Map<String, Object> point : monthlyRollupService.getSeries(MonthlyRollupService.FEE_COLLECTED, null,
+                MonthlyRollupService.defaultFrom(end), end)) {
+            Map<String, Object> chartPoint = new LinkedHashMap<>();
+            chartPoint.put("month", point.get("label"));
+            chartPoint.put("amount", point.get("amount"));
+            result.add(chartPoint);
         }
         return result;
     }
 
+    /** Year-month fee collection series from the rollup table; department optional. */
+    public List<Map<String, Object>> getCollectionTrend(String department, String from, String to) {
+        YearMonth end = MonthlyRollupService.parseMonth(to, YearMonth.now());
+        YearMonth start = MonthlyRollupService.parseMonth(from, MonthlyRollupService.defaultFrom(end));
+        return monthlyRollupService.getSeries(MonthlyRollupService.FEE_COLLECTED, department, start, end);
+    }
+
     // ──────────────── COLLEGE EXPENSES ────────────────
 
     public List<CollegeExpense> getAllExpenses() {
@@ -0,0 +1,394 @@
+package com.academic.platform.service;
+
+import com.academic.platform.model.Role;
+import com.academic.platform.model.User;
+import com.academic.platform.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Imports daily check-in dumps from the campus gates / biometric devices
+ * into student_attendance.
+ *
+ * Expected lines: {@code deviceId,timestamp[,direction]} or
+ * {@code deviceId,date,time[,direction]}; the device id is the student's roll
+ * number as enrolled on the gate readers. OUT punches and unknown ids are
+ * skipped, and a header line is ignored.
+ *
+ * Scalability: the upload is spooled to a temp file and read line by line
+ * through a buffered channel reader, so a multi-hundred-MB dump never sits in
+ * memory. Large dumps are sent as a raw request body and streamed straight to
+ * the spool file (capped at gate.import.max-bytes), so the application-wide
+ * multipart limit stays small; multipart uploads are still accepted within
+ * that limit. Progress is measured in bytes actually read from the spool. Device ids are resolved through a roll-number index loaded once,
+ * only the earliest check-in per (student, day) is kept, and the result is
+ * written as batched INSERT ... ON DUPLICATE KEY UPDATE statements that
+ * preserve an earlier check-in already on record. Imports run on the
+ * importExecutor and report progress while running.
+ */
+@Service
+public class GateLogImportService {
+
+    private static final Logger logger = Logger.getLogger(GateLogImportService.class.getName());
+
+    private static final int READ_BUFFER_CHARS = 1 << 20;
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_TRACKED_JOBS = 20;
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    private static final String UPSERT_SQL = "INSERT INTO student_attendance (student_id, date, check_in_time, status) "
+            + "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+            + "status = IF(VALUES(check_in_time) < check_in_time, VALUES(status), status), "
+            + "check_in_time = LEAST(check_in_time, VALUES(check_in_time))";
+
+    private static final List<DateTimeFormatter> TIMESTAMP_FORMATS = List.of(
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm[:ss]"),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm[:ss]"),
+            DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm[:ss]"),
+            DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm[:ss]"));
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    @Qualifier("importExecutor")
+    private Executor importExecutor;
+
+    @Value("${gate.import.max-bytes:536870912}")
+    private long maxUploadBytes;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public static final class ImportJob {
+        final String id = UUID.randomUUID().toString();
+        final String fileName;
+        final long totalBytes;
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final AtomicLong bytesRead = new AtomicLong();
+        final AtomicLong lines = new AtomicLong();
+        final AtomicLong accepted = new AtomicLong();
+        final AtomicLong unknownDevice = new AtomicLong();
+        final AtomicLong malformed = new AtomicLong();
+        final AtomicLong skippedOut = new AtomicLong();
+        final AtomicLong upserted = new AtomicLong();
+        volatile String status = "QUEUED";
+        volatile String error;
+        volatile LocalDateTime finishedAt;
+
+        ImportJob(String fileName, long totalBytes) {
+            this.fileName = fileName;
+            this.totalBytes = totalBytes;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("jobId", id);
+            m.put("fileName", fileName);
+            m.put("status", status);
+            m.put("percent", totalBytes > 0 ? Math.min(100.0,
+                    Math.round(bytesRead.get() * 1000.0 / totalBytes) / 10.0) : 0.0);
+            m.put("lines", lines.get());
+            m.put("accepted", accepted.get());
+            m.put("unknownDevice", unknownDevice.get());
+            m.put("malformed", malformed.get());
+            m.put("skippedOut", skippedOut.get());
+            m.put("upserted", upserted.get());
+            m.put("startedAt", startedAt);
+            m.put("finishedAt", finishedAt);
+            m.put("error", error);
+            return m;
+        }
+    }
+
+    /** Multipart upload, bounded by the application-wide multipart limit. */
+    public Map<String, Object> startImport(MultipartFile file, String uploaderUid) {
+        checkUploader(uploaderUid);
+        if (file.isEmpty()) {
+            throw new RuntimeException("Uploaded file is empty");
+        }
+
+        Path spool;
+        try {
+            // The multipart temp file is removed when the request ends, so keep our own copy
+            spool = Files.createTempFile("gate-log-", ".csv");
+            file.transferTo(spool);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not store uploaded file: " + e.getMessage());
+        }
+        return submit(spool, file.getOriginalFilename(), file.getSize());
+    }
+
+    /** Raw request body (text/csv or octet-stream), streamed to disk up to gate.import.max-bytes. */
+    public Map<String, Object> startImport(InputStream body, String fileName, String uploaderUid) {
+        checkUploader(uploaderUid);
+
+        Path spool;
+        long size = 0;
+        try {
+            spool = Files.createTempFile("gate-log-", ".csv");
+        } catch (IOException e) {
+            throw new RuntimeException("Could not store uploaded file: " + e.getMessage());
+        }
+        try (OutputStream out = Files.newOutputStream(spool)) {
+            byte[] buffer = new byte[COPY_BUFFER_BYTES];
+            int n;
+            while ((n = body.read(buffer)) != -1) {
+                size += n;
+                if (size > maxUploadBytes) {
+                    throw new RuntimeException("Gate log exceeds the " + (maxUploadBytes >> 20) + " MB import limit");
+                }
+                out.write(buffer, 0, n);
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(spool);
+            throw new RuntimeException(e instanceof IOException ? "Could not store uploaded file: " + e.getMessage()
+                    : e.getMessage());
+        }
+        if (size == 0) {
+            deleteQuietly(spool);
+            throw new RuntimeException("Uploaded file is empty");
+        }
+        return submit(spool, fileName != null ? fileName : "gate-log.csv", size);
+    }
+
+    private void checkUploader(String uploaderUid) {
+        User uploader = userRepository.findByFirebaseUid(uploaderUid)
+                .orElseThrow(() -> new RuntimeException("Uploader not found"));
+        if (uploader.getRole() != Role.ADMIN && uploader.getRole() != Role.HOD
+                && uploader.getRole() != Role.GATE_SECURITY) {
+            throw new RuntimeException("Unauthorized: Only admin, HOD or gate security can import gate logs.");
+        }
+    }
+
+    private Map<String, Object> submit(Path spool, String fileName, long size) {
+        ImportJob job = new ImportJob(fileName, size);
+        trimFinishedJobs();
+        jobs.put(job.id, job);
+        try {
+            importExecutor.execute(() -> run(job, spool));
+        } catch (RuntimeException e) {
+            jobs.remove(job.id);
+            deleteQuietly(spool);
+            throw new RuntimeException("Another import is already running, try again shortly");
+        }
+        return job.toMap();
+    }
+
+    public Map<String, Object> getProgress(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new RuntimeException("Import job not found");
+        }
+        return job.toMap();
+    }
+
+    private void run(ImportJob job, Path spool) {
+        job.status = "RUNNING";
+        try {
+            Map<String, Long> deviceIndex = loadDeviceIndex();
+            Map<Long, Integer> firstCheckIn = scan(job, spool, deviceIndex);
+            job.status = "WRITING";
+            write(job, firstCheckIn);
+            job.bytesRead.set(job.totalBytes);
+            job.status = "COMPLETED";
+        } catch (Exception e) {
+            job.status = "FAILED";
+            job.error = e.getMessage();
+            logger.warning("Gate log import " + job.id + " failed: " + e.getMessage());
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            deleteQuietly(spool);
+        }
+    }
+
+    private Map<String, Long> loadDeviceIndex() {
+        Map<String, Long> index = new HashMap<>();
+        for (Object[] row : userRepository.findRollNumberIndex(Role.STUDENT)) {
+            index.put(((String) row[0]).trim().toUpperCase(), (Long) row[1]);
+        }
+        return index;
+    }
+
+    /**
+     * Single pass over the file. Returns the earliest check-in (second of day)
+     * keyed by studentId << 32 | epochDay.
+     */
+    private Map<Long, Integer> scan(ImportJob job, Path spool, Map<String, Long> deviceIndex) throws IOException {
+        Map<Long, Integer> firstCheckIn = new HashMap<>();
+        DateTimeFormatter format = TIMESTAMP_FORMATS.get(0);
+
+        try (FileChannel channel = FileChannel.open(spool, StandardOpenOption.READ);
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(new CountingInputStream(Channels.newInputStream(channel), job.bytesRead),
+                                StandardCharsets.UTF_8),
+                        READ_BUFFER_CHARS)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                job.lines.incrementAndGet();
+                if (line.isBlank())
+                    continue;
+
+                String[] fields = line.split(",", -1);
+                if (fields.length < 2) {
+                    job.malformed.incrementAndGet();
+                    continue;
+                }
+                String deviceId = unquote(fields[0]).toUpperCase();
+
+                // Either "deviceId,timestamp[,dir]" or "deviceId,date,time[,dir]"
+                String stamp = unquote(fields[1]);
+                int directionIdx = 2;
+                if (stamp.length() <= 10 && fields.length >= 3) {
+                    stamp = stamp + " " + unquote(fields[2]);
+                    directionIdx = 3;
+                }
+                if (fields.length > directionIdx && "OUT".equalsIgnoreCase(unquote(fields[directionIdx]))) {
+                    job.skippedOut.incrementAndGet();
+                    continue;
+                }
+
+                LocalDateTime at = null;
+                try {
+                    at = LocalDateTime.parse(stamp, format);
+                } catch (DateTimeParseException e) {
+                    for (DateTimeFormatter candidate : TIMESTAMP_FORMATS) {
+                        try {
+                            at = LocalDateTime.parse(stamp, candidate);
+                            format = candidate; // dumps use one format throughout
+                            break;
+                        } catch (DateTimeParseException ignored) {
+                        }
+                    }
+                }
+                if (at == null) {
+                    // Typically the header row
+                    job.malformed.incrementAndGet();
+                    continue;
+                }
+
+                Long studentId = deviceIndex.get(deviceId);
+                if (studentId == null) {
+                    job.unknownDevice.incrementAndGet();
+                    continue;
+                }
+
+                job.accepted.incrementAndGet();
+                long key = (studentId << 32) | at.toLocalDate().toEpochDay();
+                int secondOfDay = at.toLocalTime().toSecondOfDay();
+                firstCheckIn.merge(key, secondOfDay, Math::min);
+            }
+        }
+        return firstCheckIn;
+    }
+
+    private void write(ImportJob job, Map<Long, Integer> firstCheckIn) {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (Map.Entry<Long, Integer> entry : firstCheckIn.entrySet()) {
+            long studentId = entry.getKey() >>> 32;
+            LocalDate date = LocalDate.ofEpochDay(entry.getKey() & 0xFFFFFFFFL);
+            LocalTime checkIn = LocalTime.ofSecondOfDay(entry.getValue());
+            batch.add(new Object[] { studentId, Date.valueOf(date), Time.valueOf(checkIn),
+                    AttendanceService.statusFor(checkIn) });
+            if (batch.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+                job.upserted.addAndGet(batch.size());
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+            job.upserted.addAndGet(batch.size());
+        }
+    }
+
+    /** Adds every byte read to a counter, so progress is exact whatever the line endings or encoding. */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final AtomicLong count;
+
+        CountingInputStream(InputStream in, AtomicLong count) {
+            super(in);
+            this.count = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1)
+                count.incrementAndGet();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0)
+                count.addAndGet(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count.addAndGet(skipped);
+            return skipped;
+        }
+    }
+
+    private static String unquote(String field) {
+        String f = field.trim();
+        if (f.length() >= 2 && f.charAt(0) == '"' && f.charAt(f.length() - 1) == '"') {
+            f = f.substring(1, f.length() - 1).trim();
+        }
+        return f;
+    }
+
+    private void trimFinishedJobs() {
+        if (jobs.size() < MAX_TRACKED_JOBS)
+            return;
+        jobs.values().removeIf(j -> j.finishedAt != null);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.academic.platform.service;
+
+import com.academic.platform.model.LeaveRequest;
+import com.academic.platform.model.User;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Signed offline gate passes.
+ *
+ * A fully approved leave gets a compact pass for its QR code:
+ * {@code base64url(GP2|leaveId|studentId|roll|fromDate|toDate|toTime) "." base64url(signature)}
+ * where signature is Ed25519 over the payload. Gate devices hold only the
+ * public key (see {@link #getGateKey()}) and verify passes locally, so a scan
+ * needs no server round-trip; exit / return events are queued on the device
+ * and synced in batches. A device that is lost or cloned can check passes but
+ * never mint one. The key pair is configured (gate.pass.private-key as
+ * base64 PKCS#8, gate.pass.public-key as base64 X.509) so every instance signs
+ * with the same key; without it the rest of the application runs and only
+ * gate passes are unavailable.
+ */
+@Service
+public class GatePassService {
+
+    private static final Logger logger = Logger.getLogger(GatePassService.class.getName());
+
+    private static final String VERSION = "GP2";
+    private static final String ALGORITHM = "Ed25519";
+    private static final DateTimeFormatter DATE = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HHmm");
+
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder B64_DECODER = Base64.getUrlDecoder();
+
+    @Value("${gate.pass.private-key:}")
+    private String privateKey;
+
+    @Value("${gate.pass.public-key:}")
+    private String publicKey;
+
+    private PrivateKey signingKey;
+    private PublicKey verifyKey;
+
+    @PostConstruct
+    public void init() {
+        if (isBlank(privateKey) || isBlank(publicKey)) {
+            logger.warning("gate.pass.private-key / gate.pass.public-key are not set; gate passes are disabled");
+            return;
+        }
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(ALGORITHM);
+            signingKey = keyFactory
+                    .generatePrivate(new PKCS8EncodedKeySpec(Base64.getMimeDecoder().decode(privateKey.trim())));
+            verifyKey = keyFactory
+                    .generatePublic(new X509EncodedKeySpec(Base64.getMimeDecoder().decode(publicKey.trim())));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid gate pass key pair: " + e.getMessage());
+        }
+        // A mismatched pair would issue passes no gate device can verify
+        byte[] probe = "gate-pass-key-check".getBytes(StandardCharsets.UTF_8);
+        if (!isValidSignature(probe, sign(probe))) {
+            throw new IllegalStateException("gate.pass.public-key does not match gate.pass.private-key");
+        }
+    }
+
+    public static boolean isFullyApproved(LeaveRequest leave) {
+        return "APPROVED".equals(leave.getMentorStatus()) && "APPROVED".equals(leave.getParentStatus());
+    }
+
+    /** The QR payload for a fully approved leave. */
+    public Map<String, Object> issue(LeaveRequest leave) {
+        if (!isFullyApproved(leave)) {
+            throw new RuntimeException("Gate pass is only issued for fully approved leaves.");
+        }
+        requireKeys();
+        User student = leave.getStudent();
+        String roll = student.getStudentDetails() != null && student.getStudentDetails().getRollNumber() != null
+                ? student.getStudentDetails().getRollNumber()
+                : "";
+        String body = String.join("|", VERSION,
+                String.valueOf(leave.getId()),
+                String.valueOf(student.getId()),
+                roll.replace("|", ""),
+                leave.getFromDate().format(DATE),
+                leave.getToDate().format(DATE),
+                leave.getToTime() != null ? leave.getToTime().format(TIME) : "");
+        byte[] payload = body.getBytes(StandardCharsets.UTF_8);
+
+        Map<String, Object> pass = new LinkedHashMap<>();
+        pass.put("leaveId", leave.getId());
+        pass.put("pass", B64.encodeToString(payload) + "." + B64.encodeToString(sign(payload)));
+        pass.put("validFrom", leave.getFromDate());
+        pass.put("validTo", leave.getToDate());
+        return pass;
+    }
+
+    /**
+     * Checks a pass's signature and returns its fields; throws if it was
+     * tampered with or is malformed. Validity dates are left to the caller.
+     */
+    public Map<String, Object> verify(String pass) {
+        requireKeys();
+        int dot = pass == null ? -1 : pass.indexOf('.');
+        if (dot <= 0) {
+            throw new RuntimeException("Malformed gate pass");
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = B64_DECODER.decode(pass.substring(0, dot));
+            signature = B64_DECODER.decode(pass.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Malformed gate pass");
+        }
+        if (!isValidSignature(payload, signature)) {
+            throw new RuntimeException("Invalid gate pass signature");
+        }
+
+        String[] f = new String(payload, StandardCharsets.UTF_8).split("\\|", -1);
+        if (f.length != 7 || !VERSION.equals(f[0])) {
+            throw new RuntimeException("Unsupported gate pass version");
+        }
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("leaveId", Long.parseLong(f[1]));
+        fields.put("studentId", Long.parseLong(f[2]));
+        fields.put("rollNumber", f[3]);
+        fields.put("fromDate", LocalDate.parse(f[4], DATE));
+        fields.put("toDate", LocalDate.parse(f[5], DATE));
+        fields.put("toTime", f[6].isEmpty() ? null : LocalTime.parse(f[6], TIME));
+        return fields;
+    }
+
+    /** Verify-only key for gate devices: the Ed25519 public key, X.509 encoded. */
+    public Map<String, Object> getGateKey() {
+        requireKeys();
+        Map<String, Object> key = new LinkedHashMap<>();
+        key.put("version", VERSION);
+        key.put("algorithm", ALGORITHM);
+        key.put("format", verifyKey.getFormat());
+        key.put("publicKey", B64.encodeToString(verifyKey.getEncoded()));
+        return key;
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            Signature signer = Signature.getInstance(ALGORITHM);
+            signer.initSign(signingKey);
+            signer.update(payload);
+            return signer.sign();
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Gate pass signing unavailable: " + e.getMessage());
+        }
+    }
+
+    private boolean isValidSignature(byte[] payload, byte[] signature) {
+        try {
+            Signature verifier = Signature.getInstance(ALGORITHM);
+            verifier.initVerify(verifyKey);
+            verifier.update(payload);
+            return verifier.verify(signature);
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    private void requireKeys() {
+        if (signingKey == null || verifyKey == null) {
+            throw new RuntimeException("Gate passes are not configured (gate.pass.private-key / gate.pass.public-key)");
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,194 @@
+package com.academic.platform.service;
+
+import com.academic.platform.model.LeaveRequest;
+import com.academic.platform.model.StudentGateState;
+import com.academic.platform.model.User;
+import com.academic.platform.repository.LeaveRequestRepository;
+import com.academic.platform.repository.StudentGateStateRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains student_gate_states, the per-student "where is this student"
+ * projection used by the gate desk.
+ *
+ * Scalability: a gate scan used to load every leave the student ever had and
+ * rank them in Java. The ranking now runs only when a leave changes (approval,
+ * rejection, exit, return), inside the same transaction, over the student's
+ * few open leaves; scans are one lookup by roll number and the outside list
+ * is one index range on (state, expected_return_at). Overdue flags are
+ * flipped per student by {@link OverdueReturnMonitor} when the deadline
+ * passes, and a nightly rebuild handles date rollover (upcoming leaves
+ * becoming active, unexited leaves ending).
+ */
+@Service
+public class GateStateService {
+
+    private static final Logger logger = Logger.getLogger(GateStateService.class.getName());
+
+    // Whole seconds: a DATETIME column would round LocalTime.MAX up to the next day
+    private static final LocalTime END_OF_DAY = LocalTime.of(23, 59, 59);
+
+    private static final List<String> OUTSIDE_STATES = List.of(StudentGateState.OUT, StudentGateState.OVERDUE);
+
+    @Autowired
+    private StudentGateStateRepository gateStateRepository;
+
+    @Autowired
+    private LeaveRequestRepository leaveRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * The leave the gate should act on, in priority order:
+     * 1. exited but not returned (outside / overdue)
+     * 2. active today and not yet exited
+     * 3. the nearest upcoming leave
+     * Input must be the student's approved, not-returned leaves.
+     */
+    public static LeaveRequest pickGateLeave(List<LeaveRequest> openLeaves, LocalDate today) {
+        LeaveRequest activeToday = null;
+        LeaveRequest upcoming = null;
+        for (LeaveRequest l : openLeaves) {
+            if (l.getActualExitTime() != null)
+                return l;
+            if (l.getFromDate() == null || l.getToDate() == null)
+                continue;
+            if (!today.isBefore(l.getFromDate()) && !today.isAfter(l.getToDate())) {
+                if (activeToday == null)
+                    activeToday = l;
+            } else if (today.isBefore(l.getFromDate())) {
+                if (upcoming == null || l.getFromDate().isBefore(upcoming.getFromDate()))
+                    upcoming = l;
+            }
+        }
+        return activeToday != null ? activeToday : upcoming;
+    }
+
+    /** Recomputes one student's gate state; joins the caller's transaction. */
+    @Transactional
+    public void refresh(Long studentId) {
+        LocalDate today = LocalDate.now();
+        LeaveRequest leave = pickGateLeave(leaveRepository.findOpenApprovedLeavesByStudentId(studentId, today), today);
+        if (leave == null) {
+            if (gateStateRepository.existsById(studentId))
+                gateStateRepository.deleteById(studentId);
+            return;
+        }
+        gateStateRepository.save(toState(leave, LocalDateTime.now()));
+    }
+
+    public void refresh(LeaveRequest leave) {
+        if (leave != null && leave.getStudent() != null)
+            refresh(leave.getStudent().getId());
+    }
+
+    /** Gate scan: the leave to act on for a roll number, or null. */
+    public LeaveRequest getActiveLeave(String rollNumber) {
+        StudentGateState state = gateStateRepository.findFirstByRollNumber(rollNumber).orElse(null);
+        if (state == null)
+            return null;
+        if (StudentGateState.APPROVED.equals(state.getState()) && state.getToDate() != null
+                && state.getToDate().isBefore(LocalDate.now())) {
+            // Leave ended without an exit since the last rebuild
+            refresh(state.getStudentId());
+            state = gateStateRepository.findById(state.getStudentId()).orElse(null);
+            if (state == null)
+                return null;
+        }
+        return leaveRepository.findById(state.getLeaveId()).orElse(null);
+    }
+
+    /** Students currently outside campus on a leave, earliest expected return first. */
+    public List<StudentGateState> getOutside() {
+        return gateStateRepository.findByStateInOrderByExpectedReturnAtAsc(OUTSIDE_STATES);
+    }
+
+    /** Marks the student out on this leave as OVERDUE; no-op if they returned meanwhile. */
+    public boolean markOverdue(Long studentId, Long leaveId) {
+        return gateStateRepository.markOverdue(studentId, leaveId, LocalDateTime.now()) > 0;
+    }
+
+    @Scheduled(cron = "0 5 0 * * *")
+    public void nightlyRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.warning("Gate state rebuild failed: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> rebuild() {
+        long start = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, List<LeaveRequest>> byStudent = leaveRepository.findOpenApprovedLeaves(today).stream()
+                .filter(l -> l.getStudent() != null)
+                .collect(Collectors.groupingBy(l -> l.getStudent().getId()));
+
+        List<StudentGateState> states = new ArrayList<>(byStudent.size());
+        byStudent.forEach((studentId, leaves) -> {
+            LeaveRequest leave = pickGateLeave(leaves, today);
+            if (leave != null)
+                states.add(toState(leave, now));
+        });
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            gateStateRepository.deleteAllInBatch();
+            gateStateRepository.saveAll(states);
+        });
+        logger.info("Gate states rebuilt for " + states.size() + " students in "
+                + (System.currentTimeMillis() - start) + " ms");
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("students", states.size());
+        result.put("millis", System.currentTimeMillis() - start);
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return gateStateRepository.count() == 0;
+    }
+
+    private static StudentGateState toState(LeaveRequest leave, LocalDateTime now) {
+        User student = leave.getStudent();
+        LocalDateTime expectedReturn = leave.getToDate() == null ? null
+                : leave.getToDate().atTime(leave.getToTime() != null ? leave.getToTime() : END_OF_DAY);
+        String state;
+        if (leave.getActualExitTime() == null)
+            state = StudentGateState.APPROVED;
+        else if (expectedReturn != null && expectedReturn.isBefore(now))
+            state = StudentGateState.OVERDUE;
+        else
+            state = StudentGateState.OUT;
+
+        return StudentGateState.builder()
+                .studentId(student.getId())
+                .rollNumber(student.getStudentDetails() != null ? student.getStudentDetails().getRollNumber() : null)
+                .studentName(student.getFullName())
+                .department(student.getStudentDetails() != null ? student.getStudentDetails().getDepartment() : null)
+                .leaveId(leave.getId())
+                .state(state)
+                .fromDate(leave.getFromDate())
+                .toDate(leave.getToDate())
+                .exitedAt(leave.getActualExitTime())
+                .expectedReturnAt(expectedReturn)
+                .updatedAt(now)
+                .build();
+    }
+}
@@ -0,0 +1,234 @@
+package com.academic.platform.service;
+
+import com.academic.platform.model.LeaveDayLedger;
+import com.academic.platform.model.LeaveRequest;
+import com.academic.platform.model.User;
+import com.academic.platform.repository.LeaveDayLedgerRepository;
+import com.academic.platform.repository.LeaveRequestRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Per-student, per-semester ledger of pending and approved leave days, and
+ * the apply-time checks that use it.
+ *
+ * Scalability: leave_day_ledgers holds one row per (student, semester).
+ * Applying, editing, deciding or cancelling a leave moves its days between
+ * the pending and approved columns with a single upsert, so the
+ * policy.leave.maxDays check reads one row instead of loading every leave the
+ * student ever took. Overlaps are found by an index range on (student_id,
+ * to_date) limited to one row. The ledger row is locked for the duration of
+ * the apply / edit transaction so two concurrent requests cannot both pass
+ * the limit. A nightly rebuild from leave_requests corrects any drift.
+ */
+@Service
+public class LeaveLedgerService {
+
+    private static final Logger logger = Logger.getLogger(LeaveLedgerService.class.getName());
+
+    private static final String MAX_DAYS_SETTING = "policy.leave.maxDays";
+
+    private static final String APPLY_DELTA_SQL = "INSERT INTO leave_day_ledgers "
+            + "(student_id, semester, pending_days, approved_days, updated_at) "
+            + "VALUES (?, ?, ?, ?, NOW()) ON DUPLICATE KEY UPDATE "
+            + "pending_days = pending_days + VALUES(pending_days), "
+            + "approved_days = approved_days + VALUES(approved_days), updated_at = NOW()";
+
+    private static final String ENSURE_ROW_SQL = "INSERT IGNORE INTO leave_day_ledgers "
+            + "(student_id, semester, pending_days, approved_days, updated_at) VALUES (?, ?, 0, 0, NOW())";
+
+    private static final String LOCK_ROW_SQL = "SELECT pending_days + approved_days FROM leave_day_ledgers "
+            + "WHERE student_id = ? AND semester = ? FOR UPDATE";
+
+    private static final String DAYS = "(DATEDIFF(l.to_date, l.from_date) + 1)";
+
+    private static final String REBUILD_SQL = "INSERT INTO leave_day_ledgers "
+            + "(student_id, semester, pending_days, approved_days, updated_at) "
+            + "SELECT l.student_id, COALESCE(l.ledger_semester, 0), "
+            + "SUM(CASE WHEN l.mentor_status = 'PENDING' THEN " + DAYS + " ELSE 0 END), "
+            + "SUM(CASE WHEN l.mentor_status = 'APPROVED' THEN " + DAYS + " ELSE 0 END), NOW() "
+            + "FROM leave_requests l WHERE l.mentor_status IN ('PENDING', 'APPROVED') "
+            + "AND l.from_date IS NOT NULL AND l.to_date IS NOT NULL AND l.to_date >= l.from_date "
+            + "GROUP BY l.student_id, COALESCE(l.ledger_semester, 0)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LeaveDayLedgerRepository ledgerRepository;
+
+    @Autowired
+    private LeaveRequestRepository leaveRepository;
+
+    @Autowired
+    private SystemSettingService settingService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /** The days a leave currently holds in the ledger; null when it holds none (rejected). */
+    public static final class LeaveContribution {
+        final long studentId;
+        final int semester;
+        final int pendingDays;
+        final int approvedDays;
+
+        private LeaveContribution(long studentId, int semester, int pendingDays, int approvedDays) {
+            this.studentId = studentId;
+            this.semester = semester;
+            this.pendingDays = pendingDays;
+            this.approvedDays = approvedDays;
+        }
+
+        boolean sameAs(LeaveContribution other) {
+            return other != null && studentId == other.studentId && semester == other.semester
+                    && pendingDays == other.pendingDays && approvedDays == other.approvedDays;
+        }
+    }
+
+    public static LeaveContribution contributionOf(LeaveRequest leave) {
+        if (leave == null || leave.getStudent() == null || leave.getStudent().getId() == null)
+            return null;
+        int days = daysOf(leave.getFromDate(), leave.getToDate());
+        if (days <= 0)
+            return null;
+        int semester = leave.getLedgerSemester() != null ? leave.getLedgerSemester() : 0;
+        if ("PENDING".equals(leave.getMentorStatus()))
+            return new LeaveContribution(leave.getStudent().getId(), semester, days, 0);
+        if ("APPROVED".equals(leave.getMentorStatus()))
+            return new LeaveContribution(leave.getStudent().getId(), semester, 0, days);
+        return null;
+    }
+
+    /** Calendar days from..to inclusive; 0 when either is missing or to is before from. */
+    public static int daysOf(LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from))
+            return 0;
+        return (int) ChronoUnit.DAYS.between(from, to) + 1;
+    }
+
+    /** The semester a new leave is charged to: the student's current one, or 0 if unset. */
+    public static int semesterOf(User student) {
+        if (student.getStudentDetails() == null || student.getStudentDetails().getSemester() == null)
+            return 0;
+        return student.getStudentDetails().getSemester();
+    }
+
+    /**
+     * Rejects a new or edited leave that overlaps another open leave of the
+     * student or would take the semester past policy.leave.maxDays. Must run
+     * inside the transaction that saves the leave: it locks the student's
+     * ledger row until commit. Pass the leave as stored before the edit, or
+     * null for a new application.
+     */
+    public void validate(User student, int semester, LocalDate from, LocalDate to, LeaveRequest existing) {
+        int days = daysOf(from, to);
+        if (days <= 0) {
+            throw new RuntimeException("Leave end date must be on or after the start date.");
+        }
+
+        jdbcTemplate.update(ENSURE_ROW_SQL, student.getId(), semester);
+        Integer used = jdbcTemplate.queryForObject(LOCK_ROW_SQL, Integer.class, student.getId(), semester);
+
+        List<Long> overlapping = leaveRepository.findOverlappingLeaveIds(student.getId(),
+                existing != null ? existing.getId() : -1L, from, to, PageRequest.of(0, 1));
+        if (!overlapping.isEmpty()) {
+            throw new RuntimeException("Leave dates overlap an existing request (#" + overlapping.get(0) + ").");
+        }
+
+        Integer maxDays = maxDays();
+        if (maxDays == null)
+            return;
+        int total = (used != null ? used : 0) + days;
+        LeaveContribution current = contributionOf(existing);
+        if (current != null && current.semester == semester)
+            total -= current.pendingDays + current.approvedDays;
+        if (total > maxDays) {
+            throw new RuntimeException("Leave limit exceeded: " + total + " of " + maxDays
+                    + " days this semester including this request.");
+        }
+    }
+
+    /** Moves a leave's days from its previous state to its saved state. */
+    public void applyChange(LeaveContribution before, LeaveContribution after) {
+        if (before == null && after == null)
+            return;
+        if (before != null && before.sameAs(after))
+            return;
+        if (before != null)
+            applyDelta(before.studentId, before.semester, -before.pendingDays, -before.approvedDays);
+        if (after != null)
+            applyDelta(after.studentId, after.semester, after.pendingDays, after.approvedDays);
+    }
+
+    private void applyDelta(long studentId, int semester, int pendingDays, int approvedDays) {
+        jdbcTemplate.update(APPLY_DELTA_SQL, studentId, semester, pendingDays, approvedDays);
+    }
+
+    /** Leave balance for the student's current semester. */
+    public Map<String, Object> getBalance(User student) {
+        int semester = semesterOf(student);
+        LeaveDayLedger row = ledgerRepository.findByStudentIdAndSemester(student.getId(), semester).orElse(null);
+        int pending = row != null ? row.getPendingDays() : 0;
+        int approved = row != null ? row.getApprovedDays() : 0;
+        Integer maxDays = maxDays();
+
+        Map<String, Object> balance = new LinkedHashMap<>();
+        balance.put("semester", semester);
+        balance.put("pendingDays", pending);
+        balance.put("approvedDays", approved);
+        balance.put("maxDays", maxDays);
+        balance.put("remainingDays", maxDays != null ? Math.max(0, maxDays - pending - approved) : null);
+        return balance;
+    }
+
+    private Integer maxDays() {
+        String value = settingService.getSetting(MAX_DAYS_SETTING);
+        try {
+            int max = Integer.parseInt(value.trim());
+            return max > 0 ? max : null;
+        } catch (NumberFormatException e) {
+            return null; // unset or invalid: no limit
+        }
+    }
+
+    /** Nightly rebuild from leave_requests. */
+    @Scheduled(cron = "0 25 2 * * *")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.warning("Leave ledger rebuild failed: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> rebuild() {
+        long start = System.currentTimeMillis();
+        Integer rows = new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.update("DELETE FROM leave_day_ledgers");
+            return jdbcTemplate.update(REBUILD_SQL);
+        });
+        long millis = System.currentTimeMillis() - start;
+        logger.info("Leave ledger rebuilt (" + rows + " rows) in " + millis + " ms");
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rows", rows);
+        result.put("millis", millis);
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return ledgerRepository.count() == 0;
+    }
+}
@@ -0,0 +1,269 @@
+package com.academic.platform.service;
+
+import com.academic.platform.model.LeaveRequest;
+import com.academic.platform.repository.LeaveRequestRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * In-memory substring index over the leaves gate security can act on:
+ * approved leaves not yet exited (until their end date), students currently
+ * out, and returns from the last 24 hours.
+ *
+ * Scalability: the gate desk searches on every keystroke, and a leading
+ * wildcard LIKE on roll number / name cannot use an index. Here every 1-, 2-
+ * and 3-character gram of the lowercased roll number and name maps to the
+ * leave ids containing it. A query intersects the posting sets of its
+ * trigrams (smallest first) and confirms the few candidates with a plain
+ * contains(), so lookups touch only matching leaves and never the database.
+ * Writers are serialized; readers never lock. The index is updated on
+ * approval, exit and return, swept every 10 minutes, and reloaded nightly
+ * from the database to pick up anything missed — the reload builds a fresh
+ * index and publishes it with one volatile swap, so searches never see a
+ * half-built one.
+ */
+@Service
+public class LeaveSearchIndex {
+
+    private static final Logger logger = Logger.getLogger(LeaveSearchIndex.class.getName());
+
+    private static final int GRAM = 3;
+
+    @Autowired
+    private LeaveRequestRepository leaveRepository;
+
+    private static final class Entry {
+        final LeaveRequest leave;
+        final String roll;
+        final String name;
+
+        Entry(LeaveRequest leave) {
+            this.leave = leave;
+            this.roll = normalize(leave.getStudent() != null && leave.getStudent().getStudentDetails() != null
+                    ? leave.getStudent().getStudentDetails().getRollNumber()
+                    : null);
+            this.name = normalize(leave.getStudent() != null ? leave.getStudent().getFullName() : null);
+        }
+    }
+
+    private static final class Index {
+        final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+        final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    }
+
+    // Null until the first load; replaced wholesale by reload(), patched in place by update()
+    private volatile Index index;
+
+    /**
+     * Gate-security visibility rules:
+     * 1. PENDING (never exited): hidden once toDate has passed
+     * 2. OUT (exited, not returned): always visible
+     * 3. RETURNED: visible for 24 hours after the actual return time
+     */
+    public static boolean isRelevant(LeaveRequest l, LocalDate today, LocalDateTime returnCutoff) {
+        if (!"APPROVED".equals(l.getMentorStatus()))
+            return false;
+        boolean hasExited = l.getActualExitTime() != null;
+        boolean hasReturned = l.getActualReturnTime() != null;
+        if (!hasExited && !hasReturned)
+            return l.getToDate() != null && !l.getToDate().isBefore(today);
+        if (hasExited && !hasReturned)
+            return true;
+        return l.getActualReturnTime().isAfter(returnCutoff);
+    }
+
+    /** Roll-number matches first, then name matches; most recent leave first within each. */
+    public List<LeaveRequest> search(String query) {
+        if (query == null || query.isBlank())
+            return Collections.emptyList();
+        Index current = ensureLoaded();
+        if (current == null)
+            return Collections.emptyList();
+        String q = normalize(query);
+
+        LocalDate today = LocalDate.now();
+        LocalDateTime returnCutoff = LocalDateTime.now().minusHours(24);
+        List<Entry> byRoll = new ArrayList<>();
+        List<Entry> byName = new ArrayList<>();
+        for (Long id : candidates(current, q)) {
+            Entry e = current.entries.get(id);
+            if (e == null || !isRelevant(e.leave, today, returnCutoff))
+                continue;
+            if (e.roll.contains(q))
+                byRoll.add(e);
+            else if (e.name.contains(q))
+                byName.add(e);
+        }
+        Comparator<Entry> recentFirst = Comparator.comparing((Entry e) -> e.leave.getFromDate(),
+                Comparator.nullsLast(Comparator.reverseOrder()));
+        byRoll.sort(recentFirst);
+        byName.sort(recentFirst);
+
+        List<LeaveRequest> result = new ArrayList<>(byRoll.size() + byName.size());
+        byRoll.forEach(e -> result.add(e.leave));
+        byName.forEach(e -> result.add(e.leave));
+        return result;
+    }
+
+    /**
+     * Call after any change to an approved leave; indexes or drops it by
+     * relevance. Inside a transaction this waits for the commit, so a
+     * rolled-back exit or approval never shows up at the gate.
+     */
+    public void update(LeaveRequest leave) {
+        if (leave == null || leave.getId() == null)
+            return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(leave);
+                }
+            });
+        } else {
+            apply(leave);
+        }
+    }
+
+    private synchronized void apply(LeaveRequest leave) {
+        Index current = index;
+        if (current == null)
+            return; // the first search loads the current state
+        remove(current, leave.getId());
+        if (isRelevant(leave, LocalDate.now(), LocalDateTime.now().minusHours(24))) {
+            add(current, leave);
+        }
+    }
+
+    public synchronized void remove(Long leaveId) {
+        Index current = index;
+        if (current != null)
+            remove(current, leaveId);
+    }
+
+    private static void remove(Index index, Long leaveId) {
+        Entry old = index.entries.remove(leaveId);
+        if (old == null)
+            return;
+        for (String gram : grams(old)) {
+            index.postings.computeIfPresent(gram, (g, ids) -> {
+                ids.remove(leaveId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /** Drops leaves that aged out (end date passed, or returned over 24h ago). */
+    @Scheduled(fixedDelay = 600000)
+    public synchronized void sweep() {
+        Index current = index;
+        if (current == null)
+            return;
+        LocalDate today = LocalDate.now();
+        LocalDateTime returnCutoff = LocalDateTime.now().minusHours(24);
+        for (Entry e : current.entries.values()) {
+            if (!isRelevant(e.leave, today, returnCutoff))
+                remove(current, e.leave.getId());
+        }
+    }
+
+    @Scheduled(cron = "0 45 3 * * *")
+    public synchronized void reload() {
+        try {
+            long start = System.currentTimeMillis();
+            LocalDate today = LocalDate.now();
+            LocalDateTime returnCutoff = LocalDateTime.now().minusHours(24);
+            List<LeaveRequest> relevant = leaveRepository.findGateRelevantLeaves(today, returnCutoff);
+            Index fresh = new Index();
+            for (LeaveRequest leave : relevant) {
+                add(fresh, leave);
+            }
+            index = fresh;
+            logger.info("Leave search index loaded " + relevant.size() + " leaves in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+            logger.warning("Leave search index reload failed: " + e.getMessage());
+        }
+    }
+
+    /** The current index, loading it on first use; null if that load failed. */
+    private Index ensureLoaded() {
+        Index current = index;
+        if (current == null) {
+            synchronized (this) {
+                if (index == null)
+                    reload();
+                current = index;
+            }
+        }
+        return current;
+    }
+
+    private static void add(Index index, LeaveRequest leave) {
+        Entry entry = new Entry(leave);
+        index.entries.put(leave.getId(), entry);
+        for (String gram : grams(entry)) {
+            index.postings.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(leave.getId());
+        }
+    }
+
+    private static Iterable<Long> candidates(Index index, String q) {
+        if (q.length() <= GRAM) {
+            Set<Long> ids = index.postings.get(q);
+            return ids != null ? ids : Collections.emptySet();
+        }
+        // Rarest trigram first, then keep only ids present in every other trigram
+        List<Set<Long>> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= q.length(); i++) {
+            Set<Long> ids = index.postings.get(q.substring(i, i + GRAM));
+            if (ids == null)
+                return Collections.emptySet();
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        List<Long> result = new ArrayList<>();
+        outer: for (Long id : lists.get(0)) {
+            for (int i = 1; i < lists.size(); i++) {
+                if (!lists.get(i).contains(id))
+                    continue outer;
+            }
+            result.add(id);
+        }
+        return result;
+    }
+
+    private static Set<String> grams(Entry entry) {
+        Set<String> grams = new HashSet<>();
+        addGrams(entry.roll, grams);
+        addGrams(entry.name, grams);
+        return grams;
+    }
+
+    private static void addGrams(String text, Set<String> grams) {
+        for (int n = 1; n <= GRAM; n++) {
+            for (int i = 0; i + n <= text.length(); i++) {
+                grams.add(text.substring(i, i + n));
+            }
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -6,6 +6,7 @@ import com.academic.platform.repository.LeaveRequestRepository;
 import com.academic.platform.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.UUID;
 import java.time.LocalDate;
@@ -23,14 +24,41 @@ public class LeaveService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private LeaveSearchIndex leaveSearchIndex;
+
+    @Autowired
+    private GateStateService gateStateService;
+
+    @Autowired
+    private GatePassService gatePassService;
+
+    @Autowired
+    private OverdueReturnMonitor overdueReturnMonitor;
+
+    @Autowired
+    private MentorLeaveQueue mentorLeaveQueue;
+
+    @Autowired
+    private LeaveLedgerService leaveLedgerService;
+
+    /** Gate device clocks may run slightly ahead of the server. */
+    private static final long MAX_CLOCK_SKEW_MINUTES = 5;
+
     // Hardcoded for now, should be from properties or env
     private static final String FRONTEND_URL = "http://10.10.188.128:5173";
 
+    @Transactional
     public LeaveRequest applyLeave(String studentUid, LeaveRequest request) {
         User student = userRepository.findByFirebaseUid(studentUid)
                 .orElseThrow(() -> new RuntimeException("Student not found"));
 
+        int semester = LeaveLedgerService.semesterOf(student);
+        leaveLedgerService.validate(student, semester, request.getFromDate(), request.getToDate(), null);
+
         request.setStudent(student);
+        request.setLedgerSemester(semester);
+        request.setMentorId(MentorLeaveQueue.mentorIdOf(student));
         request.setParentStatus("PENDING");
         request.setMentorStatus("PENDING");
         request.setParentActionToken(UUID.randomUUID().toString());
@@ -41,6 +69,8 @@ public class LeaveService {
         request.setApprovalOtpExpiry(java.time.LocalDateTime.now().plusDays(7));
 
         LeaveRequest saved = leaveRepository.save(request);
+        mentorLeaveQueue.adjustPending(saved.getMentorId(), 1);
+        leaveLedgerService.applyChange(null, LeaveLedgerService.contributionOf(saved));
 
         // Send Email to Parent with OTP
         String approvalLink = FRONTEND_URL + "/parent-response/" + saved.getParentActionToken();
@@ -65,15 +95,19 @@ public class LeaveService {
                 .orElseThrow(() -> new RuntimeException("Invalid or expired token"));
     }
 
+    @Transactional
     public LeaveRequest parentAction(String token, String status) {
         LeaveRequest leave = getLeaveByToken(token);
         if (!leave.getParentStatus().equals("PENDING")) {
             throw new RuntimeException("Request already processed by parent");
         }
+        LeaveLedgerService.LeaveContribution before = LeaveLedgerService.contributionOf(leave);
 
         leave.setParentStatus(status); // APPROVED or REJECTED
 
         if ("REJECTED".equals(status)) {
+            if ("PENDING".equals(leave.getMentorStatus()))
+                mentorLeaveQueue.adjustPending(leave.getMentorId(), -1);
             leave.setMentorStatus("REJECTED_BY_PARENT");
             emailService.sendStudentLeaveStatus(leave.getStudent().getEmail(), "REJECTED (By Parent)",
                     "Your parent has declined this request.");
@@ -81,19 +115,46 @@ public class LeaveService {
         // If Approved, we don't need to generate OTP again, it was already sent.
         // We just save the status.
 
-        return leaveRepository.save(leave);
+        LeaveRequest saved = leaveRepository.save(leave);
+        leaveLedgerService.applyChange(before, LeaveLedgerService.contributionOf(saved));
+        gateStateService.refresh(saved);
+        leaveSearchIndex.update(saved);
+        overdueReturnMonitor.update(saved);
+        return saved;
+    }
+
+    /** Keyset-paged mentor queue; pass the last id of the previous page as beforeId. */
+    public List<LeaveRequest> getPendingLeavesForMentor(String mentorUid, Long beforeId, Integer limit) {
+        return mentorLeaveQueue.getPage(mentorUid, beforeId, limit);
+    }
+
+    /** Pending / approved / remaining leave days for the student's current semester. */
+    public java.util.Map<String, Object> getLeaveBalance(String studentUid) {
+        User student = userRepository.findByFirebaseUid(studentUid)
+                .orElseThrow(() -> new RuntimeException("Student not found"));
+        return leaveLedgerService.getBalance(student);
     }
 
-    public List<LeaveRequest> getPendingLeavesForMentor(String mentorUid) {
-        return leaveRepository.findByStudentMentorFirebaseUidAndParentStatus(mentorUid);
+    /** Sidebar badge: leaves still awaiting this mentor's decision. */
+    public long getPendingCountForMentor(String mentorUid) {
+        return mentorLeaveQueue.getPendingCount(mentorUid);
     }
 
+    @Transactional
     public LeaveRequest mentorAction(Long leaveId, String status, String remarks) {
         LeaveRequest leave = leaveRepository.findById(leaveId)
                 .orElseThrow(() -> new RuntimeException("Leave not found"));
 
+        boolean wasPending = "PENDING".equals(leave.getMentorStatus());
+        LeaveLedgerService.LeaveContribution before = LeaveLedgerService.contributionOf(leave);
         leave.setMentorStatus(status);
         LeaveRequest saved = leaveRepository.save(leave);
+        leaveLedgerService.applyChange(before, LeaveLedgerService.contributionOf(saved));
+        if (wasPending != "PENDING".equals(status))
+            mentorLeaveQueue.adjustPending(saved.getMentorId(), wasPending ? -1 : 1);
+        gateStateService.refresh(saved);
+        leaveSearchIndex.update(saved);
+        overdueReturnMonitor.update(saved);
 
         // Notify Student
         emailService.sendStudentLeaveStatus(leave.getStudent().getEmail(), status, remarks);
@@ -101,6 +162,7 @@ public class LeaveService {
         return saved;
     }
 
+    @Transactional
     public void deleteLeave(Long leaveId, String studentUid) {
         LeaveRequest leave = leaveRepository.findById(leaveId)
                 .orElseThrow(() -> new RuntimeException("Leave not found"));
@@ -114,8 +176,13 @@ public class LeaveService {
         }
 
         leaveRepository.delete(leave);
+        leaveLedgerService.applyChange(LeaveLedgerService.contributionOf(leave), null);
+        leaveSearchIndex.remove(leaveId);
+        if ("PENDING".equals(leave.getMentorStatus()))
+            mentorLeaveQueue.adjustPending(leave.getMentorId(), -1);
     }
 
+    @Transactional
     public LeaveRequest updateLeave(Long leaveId, String studentUid, LeaveRequest updatedData) {
         LeaveRequest leave = leaveRepository.findById(leaveId)
                 .orElseThrow(() -> new RuntimeException("Leave not found"));
@@ -128,13 +195,22 @@ public class LeaveService {
             throw new RuntimeException("Cannot edit leave: Parent has already processed it.");
         }
 
+        LeaveLedgerService.LeaveContribution before = LeaveLedgerService.contributionOf(leave);
+        int semester = leave.getLedgerSemester() != null ? leave.getLedgerSemester()
+                : LeaveLedgerService.semesterOf(leave.getStudent());
+        leaveLedgerService.validate(leave.getStudent(), semester, updatedData.getFromDate(), updatedData.getToDate(),
+                leave);
+
+        leave.setLedgerSemester(semester);
         leave.setLeaveType(updatedData.getLeaveType());
         leave.setFromDate(updatedData.getFromDate());
         leave.setToDate(updatedData.getToDate());
         leave.setReason(updatedData.getReason());
         // If parent email changed, maybe resend email? keeping simple for now
 
-        return leaveRepository.save(leave);
+        LeaveRequest saved = leaveRepository.save(leave);
+        leaveLedgerService.applyChange(before, LeaveLedgerService.contributionOf(saved));
+        return saved;
     }
 
     public void generateOtpForApproval(Long leaveId, String mentorUid) {
@@ -194,82 +270,21 @@ public class LeaveService {
         emailService.sendActionOtp(toEmail, otp, "Test Email Verification");
     }
 
+    /** Gate scan: one lookup in the gate-state table instead of ranking every leave. */
     public LeaveRequest getActiveLeaveForStudent(String rollNumber) {
-        List<LeaveRequest> leaves = leaveRepository.findByStudentStudentDetails_RollNumber(rollNumber);
-        java.time.LocalDate today = java.time.LocalDate.now();
-
-        // Priority 1: Student has exited but NOT yet returned (most urgent — overdue /
-        // in transit)
-        java.util.Optional<LeaveRequest> notReturned = leaves.stream()
-                .filter(l -> "APPROVED".equals(l.getMentorStatus()))
-                .filter(l -> l.getActualExitTime() != null && l.getActualReturnTime() == null)
-                .findFirst();
-        if (notReturned.isPresent())
-            return notReturned.get();
-
-        // Priority 2: Leave is active today and student hasn't exited yet
-        java.util.Optional<LeaveRequest> activeToday = leaves.stream()
-                .filter(l -> "APPROVED".equals(l.getMentorStatus()))
-                .filter(l -> l.getActualReturnTime() == null)
-                .filter(l -> !today.isBefore(l.getFromDate()) && !today.isAfter(l.getToDate()))
-                .findFirst();
-        if (activeToday.isPresent())
-            return activeToday.get();
-
-        // Priority 3: Upcoming approved leave (from date in the future, not yet
-        // completed)
-        java.util.Optional<LeaveRequest> upcoming = leaves.stream()
-                .filter(l -> "APPROVED".equals(l.getMentorStatus()))
-                .filter(l -> l.getActualReturnTime() == null)
-                .filter(l -> today.isBefore(l.getFromDate()))
-                .min(java.util.Comparator.comparing(LeaveRequest::getFromDate)); // nearest upcoming
-        return upcoming.orElse(null);
+        return gateStateService.getActiveLeave(rollNumber);
     }
 
     public List<LeaveRequest> getLeavesByDate(java.time.LocalDate date) {
         return leaveRepository.findApprovedLeavesByDate(date);
     }
 
+    /** Gate desk search; served from the in-memory index, no database access per keystroke. */
     public List<LeaveRequest> searchLeavesByRollOrName(String query) {
-        if (query == null || query.trim().isEmpty())
-            return java.util.Collections.emptyList();
-        String q = query.trim();
-
-        // Run both queries separately to avoid complex JPQL join issues
-        List<LeaveRequest> byRoll = leaveRepository.findApprovedLeavesByRoll(q);
-        List<LeaveRequest> byName = leaveRepository.findApprovedLeavesByName(q);
-
-        // Merge + deduplicate by leave ID, preserve order (most recent first)
-        java.util.LinkedHashMap<Long, LeaveRequest> merged = new java.util.LinkedHashMap<>();
-        for (LeaveRequest l : byRoll)
-            merged.put(l.getId(), l);
-        for (LeaveRequest l : byName)
-            merged.putIfAbsent(l.getId(), l);
-
-        LocalDate today = LocalDate.now();
-        LocalDateTime cutoff24h = LocalDateTime.now().minusHours(24);
-
-        // Gate-security visibility rules:
-        // 1. PENDING (never exited): hide if toDate has already passed (leave expired)
-        // 2. OUT (exited, not returned): always visible — student is outside
-        // 3. RETURNED: hide after 24 hours of actual return time
-        return merged.values().stream().filter(l -> {
-            boolean hasExited = l.getActualExitTime() != null;
-            boolean hasReturned = l.getActualReturnTime() != null;
-
-            if (!hasExited && !hasReturned) {
-                // PENDING: only show if leave period hasn't ended yet
-                return !l.getToDate().isBefore(today);
-            }
-            if (hasExited && !hasReturned) {
-                // OUT: always show
-                return true;
-            }
-            // RETURNED: show only within 24 hours of return
-            return l.getActualReturnTime().isAfter(cutoff24h);
-        }).collect(java.util.stream.Collectors.toList());
+        return leaveSearchIndex.search(query);
     }
 
+    @Transactional
     public LeaveRequest updateSecurityExitEntry(Long leaveId, String action) {
         LeaveRequest leave = leaveRepository.findById(leaveId)
                 .orElseThrow(() -> new RuntimeException("Leave not found"));
@@ -295,6 +310,137 @@ public class LeaveService {
             throw new RuntimeException("Invalid security action: " + action);
         }
 
-        return leaveRepository.save(leave);
+        LeaveRequest saved = leaveRepository.save(leave);
+        gateStateService.refresh(saved);
+        leaveSearchIndex.update(saved);
+        overdueReturnMonitor.update(saved);
+        return saved;
+    }
+
+    /** QR gate pass for the student's own fully approved leave. */
+    public java.util.Map<String, Object> getGatePass(Long leaveId, String studentUid) {
+        LeaveRequest leave = leaveRepository.findById(leaveId)
+                .orElseThrow(() -> new RuntimeException("Leave not found"));
+        if (studentUid == null || !studentUid.equals(leave.getStudent().getFirebaseUid())) {
+            throw new RuntimeException("Unauthorized to view this gate pass");
+        }
+        return gatePassService.issue(leave);
+    }
+
+    /** Verify-only key for gate devices; the controller restricts it to gate security and admins. */
+    public java.util.Map<String, Object> getGatePassKey() {
+        return gatePassService.getGateKey();
+    }
+
+    /**
+     * Applies exit / return events queued by gate devices while offline.
+     * Each event is {eventId, leaveId, action: EXIT|RETURN, at: ISO time, pass?}.
+     * Idempotent: an exit or return already recorded is reported as DUPLICATE
+     * and left unchanged, so devices can resend a batch safely. Events are
+     * applied per leave in time order, so an EXIT and RETURN in the same batch
+     * land correctly whatever order they were sent in.
+     */
+    @Transactional
+    public List<java.util.Map<String, Object>> syncGateEvents(List<java.util.Map<String, Object>> events) {
+        LocalDateTime latestAllowed = LocalDateTime.now().plusMinutes(MAX_CLOCK_SKEW_MINUTES);
+        List<java.util.Map<String, Object>> results = new java.util.ArrayList<>(events.size());
+        java.util.Map<Long, List<java.util.Map<String, Object>>> byLeave = new java.util.HashMap<>();
+
+        for (java.util.Map<String, Object> event : events) {
+            java.util.Map<String, Object> result = new java.util.LinkedHashMap<>();
+            result.put("eventId", event.get("eventId"));
+            results.add(result);
+            try {
+                Long leaveId = Long.valueOf(String.valueOf(event.get("leaveId")));
+                String action = String.valueOf(event.get("action")).toUpperCase();
+                if (!"EXIT".equals(action) && !"RETURN".equals(action)) {
+                    throw new RuntimeException("Invalid security action: " + action);
+                }
+                LocalDateTime at = event.get("at") != null ? LocalDateTime.parse(String.valueOf(event.get("at")))
+                        : LocalDateTime.now();
+                if (at.isAfter(latestAllowed)) {
+                    throw new RuntimeException("Event time is in the future");
+                }
+                if (event.get("pass") != null) {
+                    Object passLeave = gatePassService.verify(String.valueOf(event.get("pass"))).get("leaveId");
+                    if (!leaveId.equals(passLeave)) {
+                        throw new RuntimeException("Gate pass does not belong to this leave");
+                    }
+                }
+                result.put("leaveId", leaveId);
+                result.put("action", action);
+                result.put("at", at);
+                byLeave.computeIfAbsent(leaveId, id -> new java.util.ArrayList<>()).add(result);
+            } catch (Exception e) {
+                result.put("result", "REJECTED");
+                result.put("message", e.getMessage());
+            }
+        }
+
+        List<LeaveRequest> touched = new java.util.ArrayList<>();
+        for (LeaveRequest leave : leaveRepository.findAllById(byLeave.keySet())) {
+            List<java.util.Map<String, Object>> leaveEvents = byLeave.remove(leave.getId());
+            leaveEvents.sort(java.util.Comparator.comparing(r -> (LocalDateTime) r.get("at")));
+            boolean changed = false;
+            for (java.util.Map<String, Object> r : leaveEvents) {
+                changed |= applyGateEvent(leave, (String) r.get("action"), (LocalDateTime) r.get("at"), r);
+            }
+            if (changed)
+                touched.add(leave);
+        }
+        // Whatever is left referenced leaves that do not exist
+        byLeave.values().forEach(list -> list.forEach(r -> {
+            r.put("result", "REJECTED");
+            r.put("message", "Leave not found");
+        }));
+
+        if (!touched.isEmpty()) {
+            for (LeaveRequest saved : leaveRepository.saveAll(touched)) {
+                gateStateService.refresh(saved);
+                leaveSearchIndex.update(saved);
+                overdueReturnMonitor.update(saved);
+            }
+        }
+        return results;
+    }
+
+    private boolean applyGateEvent(LeaveRequest leave, String action, LocalDateTime at,
+            java.util.Map<String, Object> result) {
+        if (!"APPROVED".equals(leave.getMentorStatus())) {
+            result.put("result", "REJECTED");
+            result.put("message", "Leave is not approved by mentor.");
+            return false;
+        }
+        // Offline devices may lag, but never by more than the leave itself: no backdating before it starts
+        if (leave.getFromDate() != null && at.isBefore(leave.getFromDate().atStartOfDay())) {
+            result.put("result", "REJECTED");
+            result.put("message", "Event time is before the leave starts.");
+            return false;
+        }
+        if ("EXIT".equals(action)) {
+            if (leave.getActualExitTime() != null) {
+                result.put("result", "DUPLICATE");
+                return false;
+            }
+            leave.setActualExitTime(at);
+        } else {
+            if (leave.getActualReturnTime() != null) {
+                result.put("result", "DUPLICATE");
+                return false;
+            }
+            if (leave.getActualExitTime() == null) {
+                result.put("result", "REJECTED");
+                result.put("message", "Cannot return without exiting first.");
+                return false;
+            }
+            leave.setActualReturnTime(at.isBefore(leave.getActualExitTime()) ? leave.getActualExitTime() : at);
+        }
+        result.put("result", "APPLIED");
+        return true;
+    }
+
+    /** Students currently outside on a leave, from the gate-state table. */
+    public List<com.academic.platform.model.StudentGateState> getStudentsOutside() {
+        return gateStateService.getOutside();
     }
 }
@@ -101,7 +101,8 @@ public class MeetingService {
                                                 + "</strong> scheduled for "
                                                 +
                                                 meeting.getStartTime()
-                                                + " has been <strong>cancelled</strong> by the mentor.</p></body></html>");
+                                                + " has been <strong>cancelled</strong> by the mentor.</p></body></html>",
+                                EmailService.CATEGORY_MEETING);
 
                 meetingRepository.delete(meeting);
         }
@@ -125,7 +126,8 @@ public class MeetingService {
                                                 "<p>The meeting <strong>" + saved.getTitle()
                                                 + "</strong> has been rescheduled to: " +
                                                 saved.getStartTime() + "</p>" +
-                                                "<p>Location: " + saved.getLocation() + "</p></body></html>");
+                                                "<p>Location: " + saved.getLocation() + "</p></body></html>",
+                                EmailService.CATEGORY_MEETING);
 
                 return saved;
         }
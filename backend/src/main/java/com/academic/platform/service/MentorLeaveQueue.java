@@ -0,0 +1,90 @@
+package com.academic.platform.service;
+
+import com.academic.platform.model.LeaveRequest;
+import com.academic.platform.model.User;
+import com.academic.platform.repository.LeaveRequestRepository;
+import com.academic.platform.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A mentor's leave queue and the pending-approval badge count.
+ *
+ * Scalability: leave_requests carries a copy of the student's mentor id, so
+ * the queue is a range on idx_leave_mentor_queue (mentor_id, id) instead of a
+ * leave → student → details → mentor join on the mentor's UID, and it is
+ * paged by id (keyset) rather than returned whole. The badge count is read
+ * once per mentor from the same index and then kept in memory, adjusted by
+ * applyLeave / parentAction / mentorAction; entries are re-read from the
+ * database every {@link #RECOUNT_AFTER_MINUTES} minutes so any drift (e.g. a
+ * rolled-back transaction) heals on its own.
+ */
+@Service
+public class MentorLeaveQueue {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final long RECOUNT_AFTER_MINUTES = 10;
+
+    @Autowired
+    private LeaveRequestRepository leaveRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final LoadingCache<Long, AtomicLong> pendingCounts = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(RECOUNT_AFTER_MINUTES, TimeUnit.MINUTES)
+            .build(mentorId -> new AtomicLong(leaveRepository.countByMentorIdAndMentorStatus(mentorId, "PENDING")));
+
+    /** Leaves awaiting or past parent approval for this mentor, newest first, ids below beforeId. */
+    public List<LeaveRequest> getPage(String mentorUid, Long beforeId, Integer limit) {
+        User mentor = userRepository.findByFirebaseUid(mentorUid)
+                .orElseThrow(() -> new RuntimeException("Mentor not found"));
+        int size = limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        return leaveRepository.findMentorQueuePage(mentor.getId(),
+                beforeId != null ? beforeId : Long.MAX_VALUE, PageRequest.of(0, size));
+    }
+
+    public long getPendingCount(String mentorUid) {
+        User mentor = userRepository.findByFirebaseUid(mentorUid)
+                .orElseThrow(() -> new RuntimeException("Mentor not found"));
+        return pendingCounts.get(mentor.getId()).get();
+    }
+
+    /** The mentor a new leave should be routed to, or null if the student has none. */
+    public static Long mentorIdOf(User student) {
+        if (student.getStudentDetails() == null || student.getStudentDetails().getMentor() == null)
+            return null;
+        return student.getStudentDetails().getMentor().getId();
+    }
+
+    /** Call when a leave enters (+1) or leaves (-1) the mentor's PENDING state. */
+    public void adjustPending(Long mentorId, int delta) {
+        if (mentorId == null)
+            return;
+        // Only counts already loaded are adjusted; others are read fresh on the next badge request
+        AtomicLong count = pendingCounts.getIfPresent(mentorId);
+        if (count != null)
+            count.updateAndGet(c -> Math.max(0, c + delta));
+    }
+
+    /** Moves a student's leaves to their new mentor's queue. */
+    public void reassign(Long studentId, Long oldMentorId, Long newMentorId) {
+        if (Objects.equals(oldMentorId, newMentorId))
+            return;
+        leaveRepository.updateMentorForStudent(studentId, newMentorId);
+        if (oldMentorId != null)
+            pendingCounts.invalidate(oldMentorId);
+        if (newMentorId != null)
+            pendingCounts.invalidate(newMentorId);
+    }
+}
@@ -0,0 +1,232 @@
+package com.academic.platform.service;
+
+import com.academic.platform.model.FeeRecord;
+import com.academic.platform.model.Role;
+import com.academic.platform.model.User;
+import com.academic.platform.repository.MonthlyRollupRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Logger;
+
+/**
+ * Year-month trend rollups for enrollments and fee collection.
+ *
+ * Scalability: monthly_rollups holds one row per (metric, year, month,
+ * department). Student registrations and fee writes apply a +/- delta to that
+ * row with a single upsert, so a trend chart reads at most a few rows per
+ * month instead of grouping the whole users or fee_records table — and, unlike
+ * grouping by month name, never mixes years. A nightly rebuild from the source
+ * tables corrects drift from writes that bypass the services (seeding, direct
+ * SQL, department changes).
+ */
+@Service
+public class MonthlyRollupService {
+
+    private static final Logger logger = Logger.getLogger(MonthlyRollupService.class.getName());
+
+    public static final String ENROLLMENT = "ENROLLMENT";
+    public static final String FEE_COLLECTED = "FEE_COLLECTED";
+
+    private static final String NO_DEPARTMENT = "";
+    private static final int MAX_RANGE_MONTHS = 240;
+
+    private static final String APPLY_DELTA_SQL = "INSERT INTO monthly_rollups "
+            + "(metric, period_year, period_month, department, item_count, amount, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, NOW()) ON DUPLICATE KEY UPDATE "
+            + "item_count = item_count + VALUES(item_count), amount = amount + VALUES(amount), updated_at = NOW()";
+
+    private static final String REBUILD_ENROLLMENT_SQL = "INSERT INTO monthly_rollups "
+            + "(metric, period_year, period_month, department, item_count, amount, updated_at) "
+            + "SELECT '" + ENROLLMENT + "', YEAR(u.created_at), MONTH(u.created_at), COALESCE(sd.department, ''), "
+            + "COUNT(*), 0, NOW() FROM users u LEFT JOIN student_details sd ON sd.user_id = u.id "
+            + "WHERE u.role = 'STUDENT' AND u.created_at IS NOT NULL "
+            + "GROUP BY YEAR(u.created_at), MONTH(u.created_at), COALESCE(sd.department, '')";
+
+    private static final String REBUILD_FEES_SQL = "INSERT INTO monthly_rollups "
+            + "(metric, period_year, period_month, department, item_count, amount, updated_at) "
+            + "SELECT '" + FEE_COLLECTED + "', YEAR(f.payment_date), MONTH(f.payment_date), "
+            + "COALESCE(sd.department, ''), COUNT(*), COALESCE(SUM(f.total_amount), 0), NOW() "
+            + "FROM fee_records f LEFT JOIN student_details sd ON sd.user_id = f.student_id "
+            + "WHERE f.payment_status = 'Paid' AND f.payment_date IS NOT NULL "
+            + "GROUP BY YEAR(f.payment_date), MONTH(f.payment_date), COALESCE(sd.department, '')";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MonthlyRollupRepository rollupRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /** What a fee record currently adds to the FEE_COLLECTED rollup; null when it adds nothing. */
+    public static final class FeeContribution {
+        final YearMonth month;
+        final String department;
+        final double amount;
+
+        private FeeContribution(YearMonth month, String department, double amount) {
+            this.month = month;
+            this.department = department;
+            this.amount = amount;
+        }
+
+        boolean sameAs(FeeContribution other) {
+            return other != null && month.equals(other.month) && department.equals(other.department)
+                    && amount == other.amount;
+        }
+    }
+
+    public static FeeContribution contributionOf(FeeRecord record) {
+        if (record == null || !"Paid".equals(record.getPaymentStatus()) || record.getPaymentDate() == null)
+            return null;
+        double amount = record.getTotalAmount() != null ? record.getTotalAmount() : 0.0;
+        return new FeeContribution(YearMonth.from(record.getPaymentDate()), departmentOf(record.getStudent()), amount);
+    }
+
+    /** Moves a fee record's contribution from its previous state to its saved state. */
+    public void applyFeeChange(FeeContribution before, FeeContribution after) {
+        if (before == null && after == null)
+            return;
+        if (before != null && before.sameAs(after))
+            return;
+        try {
+            if (before != null)
+                applyDelta(FEE_COLLECTED, before.month, before.department, -1, -before.amount);
+            if (after != null)
+                applyDelta(FEE_COLLECTED, after.month, after.department, 1, after.amount);
+        } catch (Exception e) {
+            // The nightly rebuild will correct the rollup
+            logger.warning("Fee rollup update failed: " + e.getMessage());
+        }
+    }
+
+    public void recordEnrollment(User user) {
+        enrollmentDelta(user, 1);
+    }
+
+    public void retractEnrollment(User user) {
+        enrollmentDelta(user, -1);
+    }
+
+    private void enrollmentDelta(User user, int delta) {
+        if (user == null || user.getRole() != Role.STUDENT)
+            return;
+        LocalDateTime createdAt = user.getCreatedAt() != null ? user.getCreatedAt() : LocalDateTime.now();
+        try {
+            applyDelta(ENROLLMENT, YearMonth.from(createdAt), departmentOf(user), delta, 0);
+        } catch (Exception e) {
+            logger.warning("Enrollment rollup update failed: " + e.getMessage());
+        }
+    }
+
+    private void applyDelta(String metric, YearMonth month, String department, long count, double amount) {
+        jdbcTemplate.update(APPLY_DELTA_SQL, metric, month.getYear(), month.getMonthValue(), department, count,
+                amount);
+    }
+
+    /** Nightly rebuild from users and fee_records. */
+    @Scheduled(cron = "0 15 2 * * *")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.warning("Monthly rollup rebuild failed: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> rebuild() {
+        long start = System.currentTimeMillis();
+        int[] rows = new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.update("DELETE FROM monthly_rollups");
+            return new int[] { jdbcTemplate.update(REBUILD_ENROLLMENT_SQL), jdbcTemplate.update(REBUILD_FEES_SQL) };
+        });
+        long millis = System.currentTimeMillis() - start;
+        logger.info("Monthly rollups rebuilt (" + rows[0] + " enrollment, " + rows[1] + " fee rows) in " + millis
+                + " ms");
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enrollmentRows", rows[0]);
+        result.put("feeRows", rows[1]);
+        result.put("millis", millis);
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return rollupRepository.count() == 0;
+    }
+
+    /**
+     * Month-by-month series between two months inclusive, with empty months
+     * filled in. A null or blank department covers the whole campus.
+     */
+    public List<Map<String, Object>> getSeries(String metric, String department, YearMonth from, YearMonth to) {
+        if (from.isAfter(to)) {
+            throw new RuntimeException("'from' must not be after 'to'");
+        }
+        if (from.plusMonths(MAX_RANGE_MONTHS).isBefore(to)) {
+            throw new RuntimeException("Range is limited to " + MAX_RANGE_MONTHS + " months");
+        }
+        String dept = department == null || department.isBlank() ? null : department;
+        Map<YearMonth, Object[]> totals = new HashMap<>();
+        for (Object[] row : rollupRepository.sumByPeriod(metric, dept, from.getYear(), to.getYear(),
+                period(from), period(to))) {
+            totals.put(YearMonth.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue()), row);
+        }
+
+        List<Map<String, Object>> series = new ArrayList<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            Object[] row = totals.get(month);
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("period", month.toString());
+            point.put("label", month.getMonth().getDisplayName(TextStyle.SHORT, Locale.ENGLISH) + " "
+                    + month.getYear());
+            point.put("count", row != null ? ((Number) row[2]).longValue() : 0L);
+            if (FEE_COLLECTED.equals(metric)) {
+                point.put("amount", row != null ? Math.round(((Number) row[3]).doubleValue() * 100.0) / 100.0 : 0.0);
+            }
+            series.add(point);
+        }
+        return series;
+    }
+
+    /** Parses "yyyy-MM"; a blank value yields the fallback. */
+    public static YearMonth parseMonth(String value, YearMonth fallback) {
+        if (value == null || value.isBlank())
+            return fallback;
+        try {
+            return YearMonth.parse(value.trim());
+        } catch (Exception e) {
+            throw new RuntimeException("Invalid month '" + value + "', expected yyyy-MM");
+        }
+    }
+
+    /** Start of the default window: the 12 months ending with (and including) end. */
+    public static YearMonth defaultFrom(YearMonth end) {
+        return end.minusMonths(11);
+    }
+
+    private static int period(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    private static String departmentOf(User user) {
+        if (user == null || user.getStudentDetails() == null)
+            return NO_DEPARTMENT;
+        return Objects.requireNonNullElse(user.getStudentDetails().getDepartment(), NO_DEPARTMENT);
+    }
+}
@@ -0,0 +1,210 @@
+package com.academic.platform.service;
+
+import com.academic.platform.model.LeaveRequest;
+import com.academic.platform.model.User;
+import com.academic.platform.repository.LeaveRequestRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Flags students who exited on a leave and have not returned by the planned
+ * return time.
+ *
+ * Scalability: expected-return deadlines of everyone currently out sit in a
+ * hashed timing wheel of one-minute slots, loaded once at startup from an
+ * indexed query and then maintained as leaves are approved, exited and
+ * returned. Each minute only the current slot is visited — no table scan —
+ * and scheduling or cancelling a deadline is O(1). When a deadline passes the
+ * student's gate state becomes OVERDUE and an "overdue" event is pushed to
+ * the gate dashboard and the student's mentor over the live feed.
+ */
+@Service
+public class OverdueReturnMonitor {
+
+    private static final Logger logger = Logger.getLogger(OverdueReturnMonitor.class.getName());
+
+    private static final long TICK_MS = 60_000;
+    private static final int WHEEL_SIZE = 512; // slots; one revolution is about 8.5 hours
+    private static final int MASK = WHEEL_SIZE - 1;
+    private static final LocalTime END_OF_DAY = LocalTime.of(23, 59, 59);
+
+    @Autowired
+    private LeaveRequestRepository leaveRepository;
+
+    @Autowired
+    private GateStateService gateStateService;
+
+    @Autowired
+    private AttendanceFeedService feedService;
+
+    private static final class Deadline {
+        final long leaveId;
+        final long studentId;
+        final long tick;
+        final Map<String, Object> payload;
+        final String mentorUid;
+
+        Deadline(long leaveId, long studentId, long tick, Map<String, Object> payload, String mentorUid) {
+            this.leaveId = leaveId;
+            this.studentId = studentId;
+            this.tick = tick;
+            this.payload = payload;
+            this.mentorUid = mentorUid;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private final Set<Deadline>[] wheel = new Set[WHEEL_SIZE];
+    private final Map<Long, Deadline> byLeave = new HashMap<>();
+    private long currentTick = tickOf(System.currentTimeMillis());
+
+    {
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new HashSet<>();
+        }
+    }
+
+    @PostConstruct
+    public void load() {
+        try {
+            List<LeaveRequest> out = leaveRepository.findStudentsOutLeaves();
+            for (LeaveRequest leave : out) {
+                update(leave);
+            }
+            logger.info("Overdue monitor tracking " + byLeave.size() + " students currently out");
+        } catch (Exception e) {
+            logger.warning("Overdue monitor load failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Call after approval, rejection, exit or return; (re)schedules or cancels
+     * the leave's deadline. Inside a transaction this waits for the commit, so
+     * a rolled-back exit never raises an overdue alert.
+     */
+    public void update(LeaveRequest leave) {
+        if (leave == null || leave.getId() == null)
+            return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    schedule(leave);
+                }
+            });
+        } else {
+            schedule(leave);
+        }
+    }
+
+    private void schedule(LeaveRequest leave) {
+        List<Deadline> due = new ArrayList<>(1);
+        synchronized (this) {
+            cancel(leave.getId());
+            if (!"APPROVED".equals(leave.getMentorStatus()) || leave.getActualExitTime() == null
+                    || leave.getActualReturnTime() != null || leave.getToDate() == null
+                    || leave.getStudent() == null)
+                return;
+
+            LocalDateTime expected = leave.getToDate()
+                    .atTime(leave.getToTime() != null ? leave.getToTime() : END_OF_DAY);
+            // Due on the first tick strictly after the expected return
+            long tick = tickOf(expected.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()) + 1;
+            Deadline deadline = new Deadline(leave.getId(), leave.getStudent().getId(), tick,
+                    payload(leave, expected), mentorUid(leave));
+            if (tick <= currentTick) {
+                due.add(deadline); // already overdue
+            } else {
+                wheel[(int) (tick & MASK)].add(deadline);
+                byLeave.put(leave.getId(), deadline);
+            }
+        }
+        due.forEach(this::fire);
+    }
+
+    @Scheduled(fixedRate = TICK_MS)
+    public void tick() {
+        List<Deadline> due = new ArrayList<>();
+        synchronized (this) {
+            long target = tickOf(System.currentTimeMillis());
+            // Catch up slot by slot if the scheduler fell behind (at most one revolution matters)
+            long from = Math.max(currentTick + 1, target - WHEEL_SIZE + 1);
+            for (long t = from; t <= target; t++) {
+                Set<Deadline> slot = wheel[(int) (t & MASK)];
+                for (var it = slot.iterator(); it.hasNext();) {
+                    Deadline d = it.next();
+                    if (d.tick <= target) {
+                        it.remove();
+                        byLeave.remove(d.leaveId);
+                        due.add(d);
+                    }
+                }
+            }
+            currentTick = Math.max(currentTick, target);
+        }
+        due.forEach(this::fire);
+    }
+
+    /** Number of students with a pending return deadline. */
+    public synchronized int trackedCount() {
+        return byLeave.size();
+    }
+
+    private void cancel(Long leaveId) {
+        Deadline old = byLeave.remove(leaveId);
+        if (old != null)
+            wheel[(int) (old.tick & MASK)].remove(old);
+    }
+
+    private void fire(Deadline d) {
+        try {
+            gateStateService.markOverdue(d.studentId, d.leaveId);
+            feedService.publish(AttendanceFeedService.gateTopic(), "overdue", d.payload);
+            if (d.mentorUid != null)
+                feedService.publish(AttendanceFeedService.mentorTopic(d.mentorUid), "overdue", d.payload);
+            logger.info("Leave " + d.leaveId + " overdue: " + d.payload.get("studentName"));
+        } catch (Exception e) {
+            logger.warning("Overdue alert for leave " + d.leaveId + " failed: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> payload(LeaveRequest leave, LocalDateTime expected) {
+        User student = leave.getStudent();
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("leaveId", leave.getId());
+        payload.put("studentName", student != null ? student.getFullName() : null);
+        payload.put("rollNumber", student != null && student.getStudentDetails() != null
+                ? student.getStudentDetails().getRollNumber()
+                : null);
+        payload.put("exitedAt", leave.getActualExitTime());
+        payload.put("expectedReturnAt", expected);
+        return payload;
+    }
+
+    private static String mentorUid(LeaveRequest leave) {
+        User student = leave.getStudent();
+        if (student == null || student.getStudentDetails() == null || student.getStudentDetails().getMentor() == null)
+            return null;
+        return student.getStudentDetails().getMentor().getFirebaseUid();
+    }
+
+    private static long tickOf(long epochMillis) {
+        return epochMillis / TICK_MS;
+    }
+}
@@ -3,27 +3,40 @@ package com.academic.platform.service;
 import com.academic.platform.model.Result;
 import com.academic.platform.model.User;
 import com.academic.platform.model.Course;
-import com.academic.platform.model.Section;
 import com.academic.platform.repository.ResultRepository;
 import com.academic.platform.repository.UserRepository;
 import com.academic.platform.repository.CourseRepository;
 import com.academic.platform.repository.SectionRepository;
+import com.academic.platform.dto.StudentRosterRow;
+import com.academic.platform.model.Role;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
+import com.opencsv.CSVWriter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.TreeMap;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ResultService {
@@ -40,71 +53,104 @@ public class ResultService {
     @Autowired
     private SectionRepository sectionRepository;
 
-    public byte[] generateTemplate(String dept, Integer sem) {
-        StringBuilder csv = new StringBuilder();
-
-        // 1. Base Headers
-        csv.append("StudentEmail,RegisterNumber,StudentName,Department,Semester");
-
-        // 2. Fetch Dynamic Subjects for this Batch
-        List<String> subjectCodes = new ArrayList<>();
-        if (sem != null) {
-            // Fetch Sections for this Semester
-            // Assuming simplified exact match first since we control the UI values
-            List<Section> sections = sectionRepository.findBySemester(String.valueOf(sem));
-
-            // Filter by Dept if provided
-            if (dept != null) {
-                sections = sections.stream()
-                        .filter(s -> s.getFaculty().getStudentDetails().getDepartment() != null
-                                && s.getFaculty().getStudentDetails().getDepartment().equalsIgnoreCase(dept))
-                        .collect(Collectors.toList());
-            }
-
-            subjectCodes = sections.stream()
-                    .map(s -> s.getCourse().getCode())
-                    .distinct()
-                    .sorted()
-                    .collect(Collectors.toList());
+    @Autowired
+    private CohortStatisticsService cohortStatisticsService;
+
+    private static final String[] BASE_TEMPLATE_HEADERS = {
+            "StudentEmail", "RegisterNumber", "StudentName", "Department", "Semester" };
+
+    private static final List<String> PLACEHOLDER_SUBJECTS = List.of(
+            "SubjectCode1", "SubjectCode2", "SubjectCode3", "SubjectCode4", "SubjectCode5");
+
+    /**
+     * Subject columns for the template: the distinct course codes of the
+     * semester's sections (filtered by faculty department), resolved in a
+     * single join query. Falls back to placeholders when nothing matches.
+     */
+    private List<String> resolveTemplateSubjects(String dept, Integer sem) {
+        if (sem == null) {
+            return PLACEHOLDER_SUBJECTS;
         }
+        List<String> codes = sectionRepository.findDistinctCourseCodesBySemester(String.valueOf(sem), dept);
+        return codes.isEmpty() ? PLACEHOLDER_SUBJECTS : codes;
+    }
 
-        // 3. Append Subject Headers
-        if (subjectCodes.isEmpty()) {
-            csv.append(",SubjectCode1,SubjectCode2,SubjectCode3,SubjectCode4,SubjectCode5");
-        } else {
-            for (String code : subjectCodes) {
-                csv.append(",").append(code);
-            }
+    private String[] templateHeader(List<String> subjectCodes) {
+        String[] header = new String[BASE_TEMPLATE_HEADERS.length + subjectCodes.size()];
+        System.arraycopy(BASE_TEMPLATE_HEADERS, 0, header, 0, BASE_TEMPLATE_HEADERS.length);
+        for (int i = 0; i < subjectCodes.size(); i++) {
+            header[BASE_TEMPLATE_HEADERS.length + i] = subjectCodes.get(i);
         }
-        csv.append("\n");
-
-        // 4. Fetch Students
-        List<User> students;
-        if (dept != null && sem != null) {
-            students = userRepository.findByStudentDetails_DepartmentAndStudentDetails_Semester(dept, sem);
-        } else if (dept != null) {
-            students = userRepository.findByStudentDetails_Department(dept);
-        } else {
-            students = userRepository.findByRole(com.academic.platform.model.Role.STUDENT);
+        return header;
+    }
+
+    /**
+     * Streams the CSV result entry template straight to {@code out}.
+     *
+     * Scalability: students are read through a forward-only roster projection,
+     * so a full-campus template (dept unset) never materialises the user table
+     * in memory — each row is written as soon as it is fetched.
+     */
+    @Transactional(readOnly = true)
+    public void writeTemplateCsv(String dept, Integer sem, OutputStream out) throws IOException {
+        List<String> subjectCodes = resolveTemplateSubjects(dept, sem);
+        String[] header = templateHeader(subjectCodes);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        CSVWriter csv = new CSVWriter(writer);
+        csv.writeNext(header, false);
+
+        String[] row = new String[header.length];
+        try (Stream<StudentRosterRow> roster = userRepository.streamRoster(Role.STUDENT, dept, sem)) {
+            roster.forEach(s -> {
+                row[0] = s.getEmail();
+                row[1] = s.getRollNumber() != null ? s.getRollNumber() : "";
+                row[2] = s.getFullName();
+                row[3] = s.getDepartment() != null ? s.getDepartment() : "";
+                row[4] = String.valueOf(s.getSemester() != null ? s.getSemester() : 0);
+                // Subject columns are left blank for marks entry
+                Arrays.fill(row, BASE_TEMPLATE_HEADERS.length, row.length, "");
+                csv.writeNext(row, false);
+            });
         }
+        csv.flush();
+    }
+
+    /**
+     * Streams the XLSX variant of the result entry template. Uses POI's
+     * SXSSF writer, which keeps only a small window of rows in memory and
+     * spills the rest to a temp file while the sheet is being built.
+     */
+    @Transactional(readOnly = true)
+    public void writeTemplateXlsx(String dept, Integer sem, OutputStream out) throws IOException {
+        List<String> subjectCodes = resolveTemplateSubjects(dept, sem);
+        String[] header = templateHeader(subjectCodes);
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+        try {
+            Sheet sheet = workbook.createSheet("Results");
+            Row headerRow = sheet.createRow(0);
+            for (int i = 0; i < header.length; i++) {
+                headerRow.createCell(i).setCellValue(header[i]);
+            }
 
-        // 5. Append Rows
-        for (User s : students) {
-            csv.append(String.format("%s,%s,%s,%s,%d",
-                    s.getEmail(),
-                    s.getStudentDetails().getRollNumber() != null ? s.getStudentDetails().getRollNumber() : "",
-                    s.getFullName(),
-                    s.getStudentDetails().getDepartment() != null ? s.getStudentDetails().getDepartment() : "",
-                    s.getStudentDetails().getSemester() != null ? s.getStudentDetails().getSemester() : 0));
-
-            // Add empty commas for subjects to match header count
-            int count = subjectCodes.isEmpty() ? 5 : subjectCodes.size();
-            for (int i = 0; i < count; i++)
-                csv.append(",");
-
-            csv.append("\n");
+            int[] rowIndex = { 1 };
+            try (Stream<StudentRosterRow> roster = userRepository.streamRoster(Role.STUDENT, dept, sem)) {
+                roster.forEach(s -> {
+                    Row row = sheet.createRow(rowIndex[0]++);
+                    row.createCell(0).setCellValue(s.getEmail());
+                    row.createCell(1).setCellValue(s.getRollNumber() != null ? s.getRollNumber() : "");
+                    row.createCell(2).setCellValue(s.getFullName());
+                    row.createCell(3).setCellValue(s.getDepartment() != null ? s.getDepartment() : "");
+                    row.createCell(4).setCellValue(s.getSemester() != null ? s.getSemester() : 0);
+                });
+            }
+            workbook.write(out);
+            out.flush();
+        } finally {
+            workbook.dispose();
+            workbook.close();
         }
-        return csv.toString().getBytes();
     }
 
     @Transactional
@@ -203,6 +249,7 @@ public class ResultService {
                                 .subjectCode(subCode)
                                 .subjectName(courseOpt.map(Course::getName).orElse(subCode))
                                 .grade(grade)
+                                .marks(marks)
                                 .credits(credits)
                                 .semester(student.getStudentDetails().getSemester())
                                 .examType("SEMESTER")
@@ -225,6 +272,9 @@ public class ResultService {
                 }
             }
 
+            // Published marks change subject cohorts — drop their cached statistics
+            cohortStatisticsService.invalidateSubjects(subjectCodes);
+
         } catch (Exception e) {
             logs.add("❗ File Error: " + e.getMessage());
             e.printStackTrace();
@@ -0,0 +1,210 @@
+package com.academic.platform.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Keeps authenticated SMTP connections open and reuses them across messages.
+ *
+ * Scalability: JavaMailSender.send(message) connects, runs STARTTLS and AUTH,
+ * sends one message and disconnects — several round trips per email, which
+ * bounds a bulk send at a few messages per second. Here up to
+ * mail.pool.size sessions stay open; each send borrows one, so the handshake
+ * is paid once per connection rather than once per message. A connection idle
+ * for more than {@link #VALIDATE_AFTER_IDLE_MS} is checked with NOOP before
+ * reuse, is replaced after mail.pool.max-messages-per-connection messages or
+ * {@link #MAX_CONNECTION_AGE_MS}, and is closed after
+ * {@link #CLOSE_AFTER_IDLE_MS} without traffic. Each connection is also paced
+ * to mail.pool.max-per-second-per-connection messages so provider rate limits
+ * are not tripped. A connection that fails a send is discarded.
+ */
+@Service
+public class SmtpTransportPool {
+
+    private static final Logger logger = Logger.getLogger(SmtpTransportPool.class.getName());
+
+    private static final long VALIDATE_AFTER_IDLE_MS = 10_000;
+    private static final long CLOSE_AFTER_IDLE_MS = 60_000;
+    private static final long MAX_CONNECTION_AGE_MS = 10 * 60_000;
+    private static final long BORROW_TIMEOUT_SECONDS = 60;
+
+    @Autowired
+    private JavaMailSenderImpl mailSender;
+
+    @Value("${mail.pool.size:4}")
+    private int poolSize;
+
+    @Value("${mail.pool.max-messages-per-connection:100}")
+    private int maxMessagesPerConnection;
+
+    @Value("${mail.pool.max-per-second-per-connection:5}")
+    private double maxPerSecondPerConnection;
+
+    private static final class PooledConnection {
+        final Transport transport;
+        final long openedAt = System.currentTimeMillis();
+        long lastUsedAt = openedAt;
+        long nextSendAt;
+        int messagesSent;
+
+        PooledConnection(Transport transport) {
+            this.transport = transport;
+        }
+    }
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private Semaphore permits;
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(Math.max(1, poolSize), true);
+    }
+
+    /** Sends one message over a pooled connection; throws if it could not be delivered. */
+    public void send(MimeMessage message) throws MessagingException {
+        try {
+            if (!permits.tryAcquire(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new MessagingException("No SMTP connection available");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted waiting for an SMTP connection");
+        }
+
+        PooledConnection connection = null;
+        try {
+            connection = borrow();
+            pace(connection);
+            message.saveChanges();
+            connection.transport.sendMessage(message, message.getAllRecipients());
+            connection.messagesSent++;
+            connection.lastUsedAt = System.currentTimeMillis();
+            sent.incrementAndGet();
+            release(connection);
+        } catch (MessagingException | RuntimeException e) {
+            if (connection != null)
+                discard(connection);
+            throw e;
+        } finally {
+            permits.release();
+        }
+    }
+
+    /** An idle connection that is still healthy, or a new one. Caller holds a permit. */
+    private PooledConnection borrow() throws MessagingException {
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            long now = System.currentTimeMillis();
+            if (now - connection.openedAt > MAX_CONNECTION_AGE_MS) {
+                discard(connection);
+                continue;
+            }
+            // isConnected() on an SMTP transport sends NOOP
+            if (now - connection.lastUsedAt > VALIDATE_AFTER_IDLE_MS && !connection.transport.isConnected()) {
+                discard(connection);
+                continue;
+            }
+            return connection;
+        }
+        return open();
+    }
+
+    private PooledConnection open() throws MessagingException {
+        Transport transport = mailSender.getSession().getTransport(mailSender.getProtocol());
+        transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(),
+                mailSender.getPassword());
+        opened.incrementAndGet();
+        return new PooledConnection(transport);
+    }
+
+    private void release(PooledConnection connection) {
+        if (connection.messagesSent >= maxMessagesPerConnection) {
+            discard(connection);
+        } else {
+            idle.offerFirst(connection); // most recently used first, so surplus connections age out
+        }
+    }
+
+    private void discard(PooledConnection connection) {
+        discarded.incrementAndGet();
+        try {
+            connection.transport.close();
+        } catch (Exception ignored) {
+            // already broken
+        }
+    }
+
+    /** Waits until this connection may send again under the per-connection rate limit. */
+    private void pace(PooledConnection connection) {
+        if (maxPerSecondPerConnection <= 0)
+            return;
+        long interval = (long) (1000 / maxPerSecondPerConnection);
+        long wait = connection.nextSendAt - System.currentTimeMillis();
+        if (wait > 0) {
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        connection.nextSendAt = System.currentTimeMillis() + interval;
+    }
+
+    @Scheduled(fixedDelay = 30000)
+    public void closeIdle() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection> keep = new ArrayList<>();
+        PooledConnection connection;
+        while ((connection = idle.pollLast()) != null) {
+            if (now - connection.lastUsedAt > CLOSE_AFTER_IDLE_MS)
+                discard(connection);
+            else
+                keep.add(connection);
+        }
+        // pollLast drained oldest first; restore most recent at the head
+        for (int i = keep.size() - 1; i >= 0; i--) {
+            idle.offerLast(keep.get(i));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("poolSize", poolSize);
+        stats.put("idleConnections", idle.size());
+        stats.put("busyConnections", poolSize - permits.availablePermits());
+        stats.put("connectionsOpened", opened.get());
+        stats.put("connectionsClosed", discarded.get());
+        stats.put("messagesSent", sent.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            discard(connection);
+        }
+        logger.info("SMTP pool closed after " + sent.get() + " messages over " + opened.get() + " connections");
+    }
+}
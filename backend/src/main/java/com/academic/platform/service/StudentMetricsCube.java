@@ -0,0 +1,359 @@
+package com.academic.platform.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * In-memory columnar snapshot of every student for ad-hoc group-by analytics
+ * (department x semester x section x batch x quota).
+ *
+ * Scalability: the snapshot is a struct of arrays — each dimension is
+ * dictionary-encoded into an int[] of codes and each measure is a double[]
+ * (NaN = not recorded), so a campus of 100k students is a few MB and a query
+ * is one tight loop over primitive columns with no entity loading or SQL.
+ * Filters become per-dimension boolean[] lookups on the codes, and group keys
+ * are mixed-radix longs over the dictionary sizes. The snapshot is rebuilt in
+ * the background from one streamed query and swapped in with a single
+ * volatile write, so readers always see a complete, consistent snapshot.
+ */
+@Service
+public class StudentMetricsCube {
+
+    private static final Logger logger = Logger.getLogger(StudentMetricsCube.class.getName());
+
+    public static final List<String> DIMENSIONS = List.of("department", "semester", "section", "batch", "quota");
+    public static final List<String> MEASURES = List.of("gpa", "attendance", "arrears", "feesDue");
+    public static final List<String> AGGREGATES = List.of("count", "sum", "avg", "min", "max");
+
+    private static final String UNKNOWN = "UNKNOWN";
+
+    // Attendance prefers the live course-wise counters over the profile value
+    private static final String SNAPSHOT_SQL = "SELECT sd.department, sd.semester, sd.section, sd.batch, sd.quota, "
+            + "sd.gpa, COALESCE(ac.pct, sd.attendance) AS attendance, sd.arrear_count, sd.fees_due "
+            + "FROM users u JOIN student_details sd ON sd.user_id = u.id "
+            + "LEFT JOIN (SELECT student_id, LEAST(SUM(present), SUM(total)) * 100.0 / SUM(total) AS pct "
+            + "FROM attendance_counters GROUP BY student_id HAVING SUM(total) > 0) ac ON ac.student_id = u.id "
+            + "WHERE u.role = 'STUDENT'";
+
+    @Autowired
+    private DataSource dataSource;
+
+    private volatile Snapshot snapshot;
+
+    /** Immutable once built; replaced wholesale on rebuild. */
+    private static final class Snapshot {
+        final int rows;
+        final String[][] dictionaries; // [dimension][code] -> value
+        final int[][] codes; // [dimension][row] -> code
+        final double[][] measures; // [measure][row] -> value or NaN
+        final LocalDateTime builtAt;
+        final long buildMillis;
+
+        Snapshot(int rows, String[][] dictionaries, int[][] codes, double[][] measures, long buildMillis) {
+            this.rows = rows;
+            this.dictionaries = dictionaries;
+            this.codes = codes;
+            this.measures = measures;
+            this.builtAt = LocalDateTime.now();
+            this.buildMillis = buildMillis;
+        }
+    }
+
+    /** Growable column buffers used only while streaming a rebuild. */
+    private static final class Builder {
+        final List<Map<String, Integer>> dictionaries = new ArrayList<>();
+        int[][] codes = new int[DIMENSIONS.size()][1024];
+        double[][] measures = new double[MEASURES.size()][1024];
+        int rows;
+
+        Builder() {
+            for (int d = 0; d < DIMENSIONS.size(); d++) {
+                dictionaries.add(new HashMap<>());
+            }
+        }
+
+        void add(String[] dims, double[] values) {
+            if (rows == codes[0].length) {
+                int capacity = rows * 2;
+                for (int d = 0; d < codes.length; d++)
+                    codes[d] = Arrays.copyOf(codes[d], capacity);
+                for (int m = 0; m < measures.length; m++)
+                    measures[m] = Arrays.copyOf(measures[m], capacity);
+            }
+            for (int d = 0; d < dims.length; d++) {
+                Map<String, Integer> dict = dictionaries.get(d);
+                codes[d][rows] = dict.computeIfAbsent(dims[d], k -> dict.size());
+            }
+            for (int m = 0; m < values.length; m++) {
+                measures[m][rows] = values[m];
+            }
+            rows++;
+        }
+
+        Snapshot build(long buildMillis) {
+            String[][] dicts = new String[DIMENSIONS.size()][];
+            for (int d = 0; d < dicts.length; d++) {
+                dicts[d] = new String[dictionaries.get(d).size()];
+                for (Map.Entry<String, Integer> e : dictionaries.get(d).entrySet()) {
+                    dicts[d][e.getValue()] = e.getKey();
+                }
+                codes[d] = Arrays.copyOf(codes[d], rows);
+            }
+            for (int m = 0; m < measures.length; m++) {
+                measures[m] = Arrays.copyOf(measures[m], rows);
+            }
+            return new Snapshot(rows, dicts, codes, measures, buildMillis);
+        }
+    }
+
+    /** Rebuilt every 10 minutes; the first build runs shortly after startup. */
+    @Scheduled(initialDelay = 30000, fixedDelay = 600000)
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.warning("Student metrics cube rebuild failed: " + e.getMessage());
+        }
+    }
+
+    public synchronized Map<String, Object> rebuild() {
+        long start = System.currentTimeMillis();
+        Builder builder = new Builder();
+        String[] dims = new String[DIMENSIONS.size()];
+        double[] values = new double[MEASURES.size()];
+
+        JdbcTemplate streaming = new JdbcTemplate(dataSource);
+        streaming.setFetchSize(Integer.MIN_VALUE);
+        streaming.query(SNAPSHOT_SQL, rs -> {
+            dims[0] = dimension(rs.getString("department"));
+            int semester = rs.getInt("semester");
+            dims[1] = rs.wasNull() ? UNKNOWN : String.valueOf(semester);
+            dims[2] = dimension(rs.getString("section"));
+            dims[3] = dimension(rs.getString("batch"));
+            dims[4] = dimension(rs.getString("quota"));
+            values[0] = measure(rs, "gpa");
+            values[1] = measure(rs, "attendance");
+            values[2] = measure(rs, "arrear_count");
+            values[3] = measure(rs, "fees_due");
+            builder.add(dims, values);
+        });
+
+        Snapshot built = builder.build(System.currentTimeMillis() - start);
+        snapshot = built;
+        logger.info("Student metrics cube rebuilt: " + built.rows + " students in " + built.buildMillis + " ms");
+        return status();
+    }
+
+    public Map<String, Object> status() {
+        Snapshot s = current();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("students", s.rows);
+        status.put("builtAt", s.builtAt);
+        status.put("buildMillis", s.buildMillis);
+        Map<String, Integer> cardinality = new LinkedHashMap<>();
+        for (int d = 0; d < DIMENSIONS.size(); d++) {
+            cardinality.put(DIMENSIONS.get(d), s.dictionaries[d].length);
+        }
+        status.put("dimensions", cardinality);
+        status.put("measures", MEASURES);
+        return status;
+    }
+
+    /**
+     * Group-by query over the snapshot.
+     *
+     * @param groupBy  dimensions to group on, in output order (may be empty for a single total row)
+     * @param filters  dimension -> accepted values; rows must match every filter
+     * @param metrics  "count" or "aggregate:measure", e.g. "avg:gpa", "sum:feesDue"
+     * @return one row per group with the dimension values followed by the metrics
+     */
+    public List<Map<String, Object>> query(List<String> groupBy, Map<String, List<String>> filters,
+            List<String> metrics) {
+        Snapshot s = current();
+
+        int[] groupDims = new int[groupBy.size()];
+        long[] radix = new long[groupBy.size()];
+        long keySpace = 1;
+        for (int i = 0; i < groupDims.length; i++) {
+            groupDims[i] = dimensionIndex(groupBy.get(i));
+            radix[i] = keySpace;
+            keySpace *= Math.max(1, s.dictionaries[groupDims[i]].length);
+        }
+
+        // Filters as code -> accepted lookups; unknown values simply match nothing
+        boolean[][] accept = new boolean[DIMENSIONS.size()][];
+        for (Map.Entry<String, List<String>> filter : filters.entrySet()) {
+            int d = dimensionIndex(filter.getKey());
+            String[] dict = s.dictionaries[d];
+            boolean[] ok = new boolean[dict.length];
+            for (int code = 0; code < dict.length; code++) {
+                for (String value : filter.getValue()) {
+                    if (dict[code].equalsIgnoreCase(value.trim())) {
+                        ok[code] = true;
+                        break;
+                    }
+                }
+            }
+            accept[d] = ok;
+        }
+
+        int[] metricAgg = new int[metrics.size()];
+        int[] metricMeasure = new int[metrics.size()];
+        for (int i = 0; i < metrics.size(); i++) {
+            parseMetric(metrics.get(i), i, metricAgg, metricMeasure);
+        }
+
+        Map<Long, double[]> groups = new HashMap<>();
+        int width = 1 + 4 * MEASURES.size(); // rows, then per measure: n, sum, min, max
+        rows: for (int r = 0; r < s.rows; r++) {
+            for (int d = 0; d < accept.length; d++) {
+                if (accept[d] != null && !accept[d][s.codes[d][r]])
+                    continue rows;
+            }
+            long key = 0;
+            for (int i = 0; i < groupDims.length; i++) {
+                key += s.codes[groupDims[i]][r] * radix[i];
+            }
+            double[] acc = groups.computeIfAbsent(key, k -> newAccumulator(width));
+            acc[0]++;
+            for (int m = 0; m < MEASURES.size(); m++) {
+                double v = s.measures[m][r];
+                if (Double.isNaN(v))
+                    continue;
+                int base = 1 + 4 * m;
+                acc[base]++;
+                acc[base + 1] += v;
+                acc[base + 2] = Math.min(acc[base + 2], v);
+                acc[base + 3] = Math.max(acc[base + 3], v);
+            }
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>(groups.size());
+        for (Map.Entry<Long, double[]> group : groups.entrySet()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            long key = group.getKey();
+            int[] groupCodes = new int[groupDims.length];
+            for (int i = groupDims.length - 1; i >= 0; i--) {
+                groupCodes[i] = (int) (key / radix[i]);
+                key %= radix[i];
+            }
+            for (int i = 0; i < groupDims.length; i++) {
+                row.put(groupBy.get(i), s.dictionaries[groupDims[i]][groupCodes[i]]);
+            }
+            double[] acc = group.getValue();
+            for (int i = 0; i < metrics.size(); i++) {
+                row.put(metrics.get(i), metricValue(acc, metricAgg[i], metricMeasure[i]));
+            }
+            result.add(row);
+        }
+        // Stable output: grouped dimensions in the order requested
+        result.sort((a, b) -> {
+            for (String dim : groupBy) {
+                int c = String.valueOf(a.get(dim)).compareTo(String.valueOf(b.get(dim)));
+                if (c != 0)
+                    return c;
+            }
+            return 0;
+        });
+        return result;
+    }
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (s == null) {
+            // First request before the scheduled build
+            synchronized (this) {
+                if (snapshot == null)
+                    rebuild();
+                s = snapshot;
+            }
+        }
+        return s;
+    }
+
+    private static double[] newAccumulator(int width) {
+        double[] acc = new double[width];
+        for (int m = 0; m < MEASURES.size(); m++) {
+            acc[1 + 4 * m + 2] = Double.POSITIVE_INFINITY;
+            acc[1 + 4 * m + 3] = Double.NEGATIVE_INFINITY;
+        }
+        return acc;
+    }
+
+    private static Object metricValue(double[] acc, int agg, int measure) {
+        if (agg == 0)
+            return (long) acc[0];
+        int base = 1 + 4 * measure;
+        double n = acc[base];
+        if (n == 0)
+            return null;
+        double value = switch (agg) {
+            case 1 -> acc[base + 1];
+            case 2 -> acc[base + 1] / n;
+            case 3 -> acc[base + 2];
+            default -> acc[base + 3];
+        };
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    private static void parseMetric(String metric, int i, int[] metricAgg, int[] metricMeasure) {
+        if ("count".equalsIgnoreCase(metric)) {
+            metricAgg[i] = 0;
+            return;
+        }
+        String[] parts = metric.split(":");
+        if (parts.length != 2) {
+            throw new RuntimeException("Invalid metric '" + metric + "', expected count or aggregate:measure");
+        }
+        int agg = AGGREGATES.indexOf(parts[0].toLowerCase(Locale.ROOT));
+        int measure = indexIgnoreCase(MEASURES, parts[1]);
+        if (agg <= 0) {
+            throw new RuntimeException("Unknown aggregate '" + parts[0] + "', expected one of " + AGGREGATES);
+        }
+        if (measure < 0) {
+            throw new RuntimeException("Unknown measure '" + parts[1] + "', expected one of " + MEASURES);
+        }
+        metricAgg[i] = agg;
+        metricMeasure[i] = measure;
+    }
+
+    private static int dimensionIndex(String name) {
+        int d = indexIgnoreCase(DIMENSIONS, name);
+        if (d < 0) {
+            throw new RuntimeException("Unknown dimension '" + name + "', expected one of " + DIMENSIONS);
+        }
+        return d;
+    }
+
+    private static int indexIgnoreCase(List<String> names, String name) {
+        for (int i = 0; i < names.size(); i++) {
+            if (names.get(i).equalsIgnoreCase(name.trim()))
+                return i;
+        }
+        return -1;
+    }
+
+    private static String dimension(String value) {
+        return value == null || value.isBlank() ? UNKNOWN : value.trim();
+    }
+
+    private static double measure(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? Double.NaN : value;
+    }
+}
@@ -37,6 +37,12 @@ public class UserService {
     @Autowired
     private AuditLogService auditLogService;
 
+    @Autowired
+    private MonthlyRollupService monthlyRollupService;
+
+    @Autowired
+    private MentorLeaveQueue mentorLeaveQueue;
+
     @Autowired
     private com.academic.platform.utils.SecurityUtils securityUtils;
 
@@ -157,6 +163,7 @@ public class UserService {
                     }
 
                     StudentDetails details = student.getStudentDetails();
+                    Long oldMentorId = MentorLeaveQueue.mentorIdOf(student);
                     details.setMentor(mentor); // Set mentor on StudentDetails
                     if (rollNo != null)
                         details.setRollNumber(rollNo);
@@ -168,6 +175,8 @@ public class UserService {
                         details.setSection(sec);
 
                     userRepository.save(student);
+                    if (student.getId() != null)
+                        mentorLeaveQueue.reassign(student.getId(), oldMentorId, mentor.getId());
                 } catch (Exception rowEx) {
                     logs.add("Row Error (" + (line.length > 1 ? line[1] : "unknown") + "): " + rowEx.getMessage());
                 }
@@ -195,8 +204,10 @@ public class UserService {
 
                 if (studentOpt.isPresent() && mentorOpt.isPresent()) {
                     User student = studentOpt.get();
+                    Long oldMentorId = MentorLeaveQueue.mentorIdOf(student);
                     student.getStudentDetails().setMentor(mentorOpt.get());
                     userRepository.save(student);
+                    mentorLeaveQueue.reassign(student.getId(), oldMentorId, mentorOpt.get().getId());
                     logs.add("Mapped " + studentEmail + " to " + mentorEmail);
                 } else {
                     logs.add("Failed: " + (studentOpt.isEmpty() ? "Student " : "Mentor ") + studentEmail
@@ -276,7 +287,7 @@ public class UserService {
                     details.setSemester(sem);
                     details.setSection(sec);
 
-                    userRepository.save(newUser);
+                    monthlyRollupService.recordEnrollment(userRepository.save(newUser));
                     logs.add("Created: " + email);
 
                 } catch (Exception rowEx) {
@@ -296,12 +307,14 @@ public class UserService {
         User mentor = userRepository.findByFirebaseUid(mentorUid)
                 .orElseThrow(() -> new RuntimeException("Mentor not found"));
 
+        Long oldMentorId = MentorLeaveQueue.mentorIdOf(student);
         student.getStudentDetails().setMentor(mentor);
         // Explicitly ensure bidirectional link is healthy
         if (student.getStudentDetails().getUser() == null) {
             student.getStudentDetails().setUser(student);
         }
         User saved = userRepository.save(student);
+        mentorLeaveQueue.reassign(saved.getId(), oldMentorId, mentor.getId());
 
         logAdminAction("ASSIGN_MENTOR", "Assigned mentor " + mentor.getEmail() + " to student " + student.getEmail());
         return saved;
@@ -367,7 +380,9 @@ public class UserService {
         user.setRole(role);
 
         logAdminAction("REGISTER_USER", "New user registration: " + email);
-        return userRepository.save(user);
+        User registered = userRepository.save(user);
+        monthlyRollupService.recordEnrollment(registered);
+        return registered;
     }
 
     @CacheEvict(value = "users", key = "#uid")
@@ -445,6 +460,7 @@ public class UserService {
         User user = userRepository.findByFirebaseUid(uid)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         userRepository.delete(user);
+        monthlyRollupService.retractEnrollment(user);
         logAdminAction("DELETE_USER", "Deleted user: " + user.getEmail());
     }
 
@@ -479,6 +495,7 @@ public class UserService {
             user.setEmail(user.getEmail().toLowerCase());
 
             User saved = userRepository.save(user);
+            monthlyRollupService.recordEnrollment(saved);
             logAdminAction("CREATE_USER", "Created new user: " + user.getEmail() + " with role " + user.getRole());
             return saved;
 
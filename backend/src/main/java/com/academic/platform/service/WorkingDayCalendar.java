@@ -0,0 +1,158 @@
+package com.academic.platform.service;
+
+import com.academic.platform.model.AcademicCalendar;
+import com.academic.platform.repository.AcademicCalendarRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Working-day arithmetic over the academic calendar.
+ *
+ * Scalability: each term in {@link AcademicCalendar} is expanded once into a
+ * prefix-sum array where prefix[i] is the number of working days (weekdays
+ * that are not declared holidays) before startDate + i. Counting working days
+ * between any two dates inside a term is then a single subtraction. Days that
+ * fall outside every term use a closed-form weekday count, so no range is
+ * ever walked day by day. Tables are rebuilt lazily after a calendar change.
+ */
+@Service
+public class WorkingDayCalendar {
+
+    @Autowired
+    private AcademicCalendarRepository calendarRepository;
+
+    private volatile List<Term> terms;
+
+    // Bumped on every invalidation; a rebuild that raced with one is not published
+    private final AtomicLong generation = new AtomicLong();
+
+    private static final class Term {
+        final LocalDate start;
+        final LocalDate end;
+        final int[] prefix;
+
+        Term(AcademicCalendar calendar) {
+            this.start = calendar.getStartDate();
+            this.end = calendar.getEndDate();
+            int days = (int) ChronoUnit.DAYS.between(start, end) + 1;
+            this.prefix = new int[Math.max(days, 0) + 1];
+            for (int i = 0; i < days; i++) {
+                LocalDate d = start.plusDays(i);
+                boolean working = isWeekday(d) && !calendar.getHolidays().contains(d);
+                prefix[i + 1] = prefix[i] + (working ? 1 : 0);
+            }
+        }
+
+        /** Working days in [from, to], both already clamped to this term. */
+        int count(LocalDate from, LocalDate to) {
+            return prefix[(int) ChronoUnit.DAYS.between(start, to) + 1]
+                    - prefix[(int) ChronoUnit.DAYS.between(start, from)];
+        }
+    }
+
+    /** Working days in the inclusive range [from, to]. */
+    public long workingDaysBetween(LocalDate from, LocalDate to) {
+        if (from.isAfter(to))
+            return 0;
+        long total = 0;
+        LocalDate cursor = from;
+        for (Term term : terms()) {
+            if (term.end.isBefore(cursor))
+                continue;
+            if (term.start.isAfter(to))
+                break;
+            if (term.start.isAfter(cursor)) {
+                total += weekdaysBetween(cursor, term.start.minusDays(1));
+                cursor = term.start;
+            }
+            LocalDate stop = term.end.isBefore(to) ? term.end : to;
+            total += term.count(cursor, stop);
+            cursor = stop.plusDays(1);
+            if (cursor.isAfter(to))
+                return total;
+        }
+        return total + weekdaysBetween(cursor, to);
+    }
+
+    /** Start of the current semester as recorded in the academic calendar. */
+    public Optional<LocalDate> currentSemesterStart() {
+        return calendarRepository.findByIsCurrentTrue().map(AcademicCalendar::getStartDate);
+    }
+
+    /**
+     * Drops the precomputed tables; call after any calendar or holiday change.
+     * Inside a transaction the drop is deferred until commit, so a concurrent
+     * reader cannot rebuild the tables from the pre-commit calendar.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    drop();
+                }
+            });
+        } else {
+            drop();
+        }
+    }
+
+    private void drop() {
+        generation.incrementAndGet();
+        terms = null;
+    }
+
+    private List<Term> terms() {
+        List<Term> cached = terms;
+        if (cached == null) {
+            synchronized (this) {
+                cached = terms;
+                if (cached == null) {
+                    long loadedAt = generation.get();
+                    cached = new ArrayList<>();
+                    LocalDate lastEnd = null;
+                    for (AcademicCalendar calendar : calendarRepository.findAllByOrderByStartDateAsc()) {
+                        if (calendar.getEndDate().isBefore(calendar.getStartDate()))
+                            continue;
+                        // Overlapping terms would double count; keep the earlier one
+                        if (lastEnd != null && !calendar.getStartDate().isAfter(lastEnd))
+                            continue;
+                        cached.add(new Term(calendar));
+                        lastEnd = calendar.getEndDate();
+                    }
+                    if (generation.get() == loadedAt)
+                        terms = cached;
+                }
+            }
+        }
+        return cached;
+    }
+
+    private static boolean isWeekday(LocalDate d) {
+        return d.getDayOfWeek() != DayOfWeek.SATURDAY && d.getDayOfWeek() != DayOfWeek.SUNDAY;
+    }
+
+    /** Closed-form Monday-Friday count in [from, to]. */
+    static long weekdaysBetween(LocalDate from, LocalDate to) {
+        if (from.isAfter(to))
+            return 0;
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        long count = (days / 7) * 5;
+        int dow = from.getDayOfWeek().getValue(); // 1 = Monday
+        for (int i = 0; i < days % 7; i++) {
+            if ((dow - 1 + i) % 7 < 5)
+                count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,110 @@
+package com.academic.platform.utils;
+
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Time-based rotating attendance codes (TOTP-style, RFC 6238 truncation).
+ *
+ * Each rotating session has its own random secret. The code shown to the
+ * class is HMAC-SHA256(secret, timeStep) truncated to 6 digits and changes
+ * every {@link #STEP_SECONDS} seconds. Verification is pure computation —
+ * the current step and {@link #ALLOWED_SKEW_STEPS} neighbouring steps are
+ * accepted to tolerate clock drift and the time it takes to scan and submit.
+ *
+ * The value students submit is "R&lt;sessionId&gt;-&lt;code&gt;", so the
+ * session is resolved from the token itself instead of a DB lookup by OTP.
+ */
+@Component
+public class RotatingCodeGenerator {
+
+    public static final String TOKEN_PREFIX = "R";
+    public static final int STEP_SECONDS = 15;
+    public static final int ALLOWED_SKEW_STEPS = 1;
+
+    private static final int DIGITS = 6;
+    private static final int MODULUS = 1_000_000;
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecureRandom random = new SecureRandom();
+
+    public String newSecret() {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    public long currentStep() {
+        return System.currentTimeMillis() / 1000 / STEP_SECONDS;
+    }
+
+    public int secondsUntilNextStep() {
+        long nowSeconds = System.currentTimeMillis() / 1000;
+        return (int) (STEP_SECONDS - nowSeconds % STEP_SECONDS);
+    }
+
+    /** Token to display (and encode in the QR) for the current time step. */
+    public String currentToken(Long sessionId, String secret) {
+        return TOKEN_PREFIX + sessionId + "-" + codeAt(secret, currentStep());
+    }
+
+    public boolean isRotatingToken(String token) {
+        return token != null && token.startsWith(TOKEN_PREFIX);
+    }
+
+    /** Extracts the session id from a rotating token, or null if malformed. */
+    public Long parseSessionId(String token) {
+        int dash = token.indexOf('-');
+        if (!isRotatingToken(token) || dash <= TOKEN_PREFIX.length()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(token.substring(TOKEN_PREFIX.length(), dash));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** Verifies the code part of a token against the current step ± skew. */
+    public boolean verify(String token, String secret) {
+        int dash = token.indexOf('-');
+        if (dash < 0 || secret == null) {
+            return false;
+        }
+        byte[] submitted = token.substring(dash + 1).getBytes(StandardCharsets.US_ASCII);
+        long step = currentStep();
+        boolean match = false;
+        for (long s = step - ALLOWED_SKEW_STEPS; s <= step + ALLOWED_SKEW_STEPS; s++) {
+            byte[] expected = codeAt(secret, s).getBytes(StandardCharsets.US_ASCII);
+            // Constant-time comparison; keep checking every step to avoid timing leaks
+            match |= MessageDigest.isEqual(expected, submitted);
+        }
+        return match;
+    }
+
+    private String codeAt(String secret, long step) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(Base64.getDecoder().decode(secret), ALGORITHM));
+            byte[] hash = mac.doFinal(ByteBuffer.allocate(Long.BYTES).putLong(step).array());
+
+            // Dynamic truncation (RFC 4226 §5.3)
+            int offset = hash[hash.length - 1] & 0x0F;
+            int binary = ((hash[offset] & 0x7F) << 24)
+                    | ((hash[offset + 1] & 0xFF) << 16)
+                    | ((hash[offset + 2] & 0xFF) << 8)
+                    | (hash[offset + 3] & 0xFF);
+            return String.format("%0" + DIGITS + "d", binary % MODULUS);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC unavailable: " + e.getMessage(), e);
+        }
+    }
+}
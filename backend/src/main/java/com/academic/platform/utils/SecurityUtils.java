@@ -1,5 +1,8 @@
 package com.academic.platform.utils;
 
+import com.academic.platform.model.Role;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
@@ -13,4 +16,18 @@ public class SecurityUtils {
         }
         return null;
     }
+
+    /** Whether the caller's token resolved to one of these roles (FirebaseTokenFilter grants ROLE_<role>). */
+    public boolean hasAnyRole(Role... roles) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null)
+            return false;
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            for (Role role : roles) {
+                if (("ROLE_" + role.name()).equals(authority.getAuthority()))
+                    return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,251 @@
+package com.academic.platform.service;
+
+import com.academic.platform.config.AsyncConfig;
+import com.academic.platform.model.EmailOutbox;
+import com.academic.platform.repository.EmailOutboxRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.BodyPart;
+import jakarta.mail.Multipart;
+import jakarta.mail.Part;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Email outbox end to end against an embedded SMTP server (GreenMail) and an
+ * in-memory database in MySQL mode: EmailService enqueues, the dispatcher
+ * claims and sends over SmtpTransportPool, and the rows and received mail
+ * are checked.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the dispatcher commits its own claims
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "mail.digest.window-minutes=10",
+        "mail.digest.categories=LEAVE_STATUS,MEETING"
+})
+@Import({ EmailOutboxDispatcher.class, EmailService.class, EmailTemplateService.class, SmtpTransportPool.class,
+        AsyncConfig.class, EmailOutboxDispatcherTest.MailConfig.class })
+class EmailOutboxDispatcherTest {
+
+    private static final String STUDENT = "student@example.com";
+
+    @RegisterExtension
+    static final GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @TestConfiguration
+    static class MailConfig {
+
+        @Bean
+        JavaMailSenderImpl mailSender() {
+            JavaMailSenderImpl sender = new JavaMailSenderImpl();
+            sender.setHost(ServerSetupTest.SMTP.getBindAddress());
+            sender.setPort(ServerSetupTest.SMTP.getPort());
+            Properties properties = sender.getJavaMailProperties();
+            properties.put("mail.smtp.connectiontimeout", "5000");
+            properties.put("mail.smtp.timeout", "5000");
+            return sender;
+        }
+    }
+
+    @MockBean
+    private SystemSettingService systemSettingService;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailOutboxDispatcher dispatcher;
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JavaMailSenderImpl mailSender;
+
+    @Autowired
+    private SmtpTransportPool transportPool;
+
+    @BeforeEach
+    void setUp() {
+        // Batches are driven from the test; the background poller would race it for rows
+        dispatcher.stop();
+        // Pooled connections point at the previous test's GreenMail instance
+        transportPool.shutdown();
+        outboxRepository.deleteAll();
+        // Notifications on, default (English) templates
+        when(systemSettingService.getSetting(anyString())).thenReturn("");
+    }
+
+    @Test
+    void sendsDueEmailAndMarksItSent() throws Exception {
+        emailService.sendHtmlEmail(STUDENT, "Welcome", "<html><body><p>Hello</p></body></html>");
+
+        assertThat(dispatcher.dispatchBatch()).isEqualTo(1);
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(1);
+        assertThat(received[0].getSubject()).isEqualTo("Welcome");
+        assertThat(received[0].getAllRecipients()[0].toString()).isEqualTo(STUDENT);
+        assertThat(html(received[0])).contains("<p>Hello</p>");
+
+        EmailOutbox row = onlyRow();
+        assertThat(row.getStatus()).isEqualTo(EmailOutbox.SENT);
+        assertThat(row.getSentAt()).isNotNull();
+        assertThat(row.getLastError()).isNull();
+    }
+
+    @Test
+    void backsOffOnFailuresThenDeadLettersAndCanBeRetried() throws Exception {
+        emailService.sendHtmlEmail(STUDENT, "Timetable change", "<p>Room 204</p>");
+        Long id = onlyRow().getId();
+
+        int smtpPort = mailSender.getPort();
+        mailSender.setPort(closedPort());
+        try {
+            for (int attempt = 1; attempt < 8; attempt++) {
+                LocalDateTime before = LocalDateTime.now();
+                assertThat(dispatcher.dispatchBatch()).isEqualTo(1);
+
+                EmailOutbox row = outboxRepository.findById(id).orElseThrow();
+                assertThat(row.getStatus()).isEqualTo(EmailOutbox.PENDING);
+                assertThat(row.getAttempts()).isEqualTo(attempt);
+                assertThat(row.getLastError()).isNotNull();
+                // 30s doubling per attempt, capped at an hour, with at most 20% jitter below
+                long minSeconds = (long) (Math.min(3600, 30L << (attempt - 1)) * 0.8) - 1;
+                assertThat(row.getNextAttemptAt()).isAfter(before.plusSeconds(minSeconds));
+
+                // Not due yet: nothing is claimed until the backoff has passed
+                assertThat(dispatcher.dispatchBatch()).isZero();
+                makeDue(id);
+            }
+
+            assertThat(dispatcher.dispatchBatch()).isEqualTo(1);
+            EmailOutbox dead = outboxRepository.findById(id).orElseThrow();
+            assertThat(dead.getStatus()).isEqualTo(EmailOutbox.DEAD);
+            assertThat(dead.getAttempts()).isEqualTo(8);
+            assertThat(dispatcher.getDeadLetters(10)).extracting(EmailOutbox::getId).containsExactly(id);
+
+            // Dead rows are never claimed again on their own
+            makeDue(id);
+            assertThat(dispatcher.dispatchBatch()).isZero();
+        } finally {
+            mailSender.setPort(smtpPort);
+        }
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+
+        // A manual retry gets a fresh budget and goes out once the server is reachable
+        EmailOutbox retried = dispatcher.retry(id);
+        assertThat(retried.getStatus()).isEqualTo(EmailOutbox.PENDING);
+        assertThat(retried.getAttempts()).isZero();
+        assertThat(dispatcher.dispatchBatch()).isEqualTo(1);
+        assertThat(outboxRepository.findById(id).orElseThrow().getStatus()).isEqualTo(EmailOutbox.SENT);
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+    }
+
+    @Test
+    void foldsPendingStatusMailsForOneRecipientIntoOneDigest() throws Exception {
+        emailService.sendStudentLeaveStatus(STUDENT, "APPROVED", "Enjoy the break");
+        emailService.sendStudentLeaveStatus(STUDENT, "REJECTED", "<b>Clashes with exams</b>");
+        emailService.sendStudentLeaveStatus(STUDENT, "APPROVED", null);
+        emailService.sendStudentLeaveStatus("other@example.com", "APPROVED", null);
+
+        // Every row waits out the digest window
+        assertThat(dispatcher.dispatchBatch()).isZero();
+
+        List<EmailOutbox> rows = outboxRepository.findAll();
+        rows.sort(Comparator.comparing(EmailOutbox::getId));
+        EmailOutbox first = rows.get(0);
+        makeDue(first.getId());
+
+        assertThat(dispatcher.dispatchBatch()).isEqualTo(1);
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(1);
+        assertThat(received[0].getAllRecipients()[0].toString()).isEqualTo(STUDENT);
+        assertThat(received[0].getSubject()).isEqualTo("Leave Request APPROVED (+2 more updates)");
+        String body = html(received[0]);
+        assertThat(body).contains("You have 3 updates", "Enjoy the break", "REJECTED");
+        // Comments are escaped by the template before they reach the digest
+        assertThat(body).contains("&lt;b&gt;Clashes with exams&lt;/b&gt;").doesNotContain("<b>Clashes");
+
+        assertThat(outboxRepository.findById(first.getId()).orElseThrow().getStatus()).isEqualTo(EmailOutbox.SENT);
+        for (EmailOutbox folded : rows.subList(1, 3)) {
+            EmailOutbox row = outboxRepository.findById(folded.getId()).orElseThrow();
+            assertThat(row.getStatus()).isEqualTo(EmailOutbox.MERGED);
+            assertThat(row.getMergedInto()).isEqualTo(first.getId());
+        }
+        // Another recipient's mail is neither folded nor sent early
+        EmailOutbox other = outboxRepository.findById(rows.get(3).getId()).orElseThrow();
+        assertThat(other.getStatus()).isEqualTo(EmailOutbox.PENDING);
+        assertThat(other.getMergedInto()).isNull();
+    }
+
+    private EmailOutbox onlyRow() {
+        List<EmailOutbox> rows = outboxRepository.findAll();
+        assertThat(rows).hasSize(1);
+        return rows.get(0);
+    }
+
+    private void makeDue(Long id) {
+        jdbcTemplate.update("UPDATE email_outbox SET next_attempt_at = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)), id);
+    }
+
+    private static int closedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /** The text/html part of a (possibly multipart) message. */
+    private static String html(Part part) throws Exception {
+        if (part.isMimeType("text/html"))
+            return (String) part.getContent();
+        if (part.isMimeType("multipart/*")) {
+            Multipart multipart = (Multipart) part.getContent();
+            for (int i = 0; i < multipart.getCount(); i++) {
+                BodyPart child = multipart.getBodyPart(i);
+                String html = html(child);
+                if (html != null)
+                    return html;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,111 @@
+package com.academic.platform.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parent-approval email: the string concatenation EmailService used before
+ * EmailTemplateService, against the precompiled template rendered into a
+ * reused buffer (the path render() takes, minus the language lookup).
+ *
+ * Run with:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.academic.platform.service.EmailTemplateBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailTemplateBenchmark {
+
+    private String studentName = "Priya Raman";
+    private String leaveReason = "Sister's wedding in Madurai";
+    private String from = "2026-11-02";
+    private String to = "2026-11-05";
+    private String otp = "482913";
+
+    private EmailTemplateService.CompiledTemplate template;
+    private Map<String, Object> values;
+    private StringBuilder buffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/email-templates/parent-approval.en.html")) {
+            if (in == null)
+                throw new IllegalStateException("parent-approval.en.html not on the classpath");
+            template = EmailTemplateService.compile(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        values = EmailTemplateService.values(
+                "studentName", studentName,
+                "from", from,
+                "to", to,
+                "leaveReason", leaveReason,
+                "otp", otp);
+        buffer = new StringBuilder(8192);
+    }
+
+    @Benchmark
+    public String concatenation() {
+        return "<!DOCTYPE html><html><head><meta charset='UTF-8'></head>"
+                + "<body style='font-family: sans-serif; background-color: #121212; margin: 0; padding: 0;'>"
+                + "  <div style='max-width: 400px; margin: 20px auto; background-color: #1a1a1a; border-radius: 12px; overflow: hidden; box-shadow: 0 4px 6px rgba(0,0,0,0.3); color: #ffffff;'>"
+                + "    <div style='background-color: #1e3a8a; padding: 30px 20px; text-align: center;'>"
+                + "      <h1 style='margin: 0; font-size: 20px; font-weight: 700; color: #ffffff; text-transform: uppercase; letter-spacing: 1px;'>ACADEMIC PORTAL</h1>"
+                + "      <p style='margin: 5px 0 0; font-size: 12px; color: #bfdbfe; font-weight: 500;'>Leave Authorization</p>"
+                + "    </div>"
+                + "    <div style='padding: 30px 20px; text-align: center;'>"
+                + "      <h2 style='font-size: 16px; margin: 0 0 10px; font-weight: 600; color: #ffffff;'>Verify Leave Request</h2>"
+                + "      <p style='font-size: 14px; color: #9ca3af; margin: 0 0 20px;'>Your child <strong>"
+                + studentName + "</strong> has requested leave.</p>"
+                + "      <div style='background-color: #262626; border-radius: 8px; padding: 15px; text-align: left; margin: 15px 0; font-size: 13px; color: #d1d5db;'>"
+                + "        <p style='margin: 5px 0;'><strong>Date:</strong> " + from + " to " + to + "</p>"
+                + "        <p style='margin: 5px 0;'><strong>Reason:</strong> " + leaveReason + "</p>"
+                + "      </div>"
+                + "      <p style='font-size: 12px; margin-top: 20px; color: #9ca3af;'>To authorize this request, please share the code below with the mentor:</p>"
+                + "      <div style='background-color: #0f1c13; border: 1px solid #14532d; border-radius: 8px; padding: 15px; margin: 20px 0; display: inline-block; width: 80%;'>"
+                + "        <p style='color: #22c55e; font-size: 32px; font-weight: 700; letter-spacing: 5px; margin: 0; font-family: monospace;'>"
+                + otp + "</p>"
+                + "      </div>"
+                + "      <p style='color: #ffffff; margin-bottom: 5px; font-weight: 600; font-size: 12px;'>Valid for 7 days.</p>"
+                + "      <p style='font-size: 12px; color: #6b7280; margin-top: 20px;'>Do not share this OTP with anyone other than the mentor.</p>"
+                + "    </div>"
+                + "    <div style='background-color: #171717; padding: 15px; text-align: center; font-size: 10px; color: #525252; border-top: 1px solid #262626;'>"
+                + "      &copy; 2026 Academic Platform System. All rights reserved."
+                + "    </div>"
+                + "  </div>"
+                + "</body></html>";
+    }
+
+    @Benchmark
+    public String precompiledTemplate() {
+        buffer.setLength(0);
+        buffer.ensureCapacity(template.staticLength + 256);
+        template.renderInto(buffer, values);
+        return buffer.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EmailTemplateBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
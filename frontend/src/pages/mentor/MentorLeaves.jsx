@@ -4,10 +4,15 @@ import api from '../../utils/api';
 import { Loader, CheckCircle, XCircle, Clock, ShieldCheck, X } from 'lucide-react';
 import "../student/StudentLeaves.css";
 
+// The queue is paged newest first; the next page starts below the last id seen
+const PAGE_SIZE = 50;
+
 const MentorLeaves = () => {
     const { currentUser } = useAuth();
     const [requests, setRequests] = useState([]);
     const [loading, setLoading] = useState(true);
+    const [hasMore, setHasMore] = useState(false);
+    const [loadingMore, setLoadingMore] = useState(false);
 
     // OTP Modal State
     const [showOtpModal, setShowOtpModal] = useState(false);
@@ -22,8 +27,9 @@ const MentorLeaves = () => {
 
     const fetchRequests = async () => {
         try {
-            const res = await api.get(`/leaves/pending/${currentUser.uid}`);
+            const res = await api.get(`/leaves/pending/${currentUser.uid}?limit=${PAGE_SIZE}`);
             setRequests(res.data);
+            setHasMore(res.data.length === PAGE_SIZE);
         } catch (err) {
             console.error(err);
         } finally {
@@ -31,6 +37,21 @@ const MentorLeaves = () => {
         }
     };
 
+    const fetchMore = async () => {
+        if (requests.length === 0) return;
+        setLoadingMore(true);
+        try {
+            const before = requests[requests.length - 1].id;
+            const res = await api.get(`/leaves/pending/${currentUser.uid}?before=${before}&limit=${PAGE_SIZE}`);
+            setRequests(prev => [...prev, ...res.data]);
+            setHasMore(res.data.length === PAGE_SIZE);
+        } catch (err) {
+            console.error(err);
+        } finally {
+            setLoadingMore(false);
+        }
+    };
+
     const initiateApproval = (id) => {
         // No longer generate OTP immediately. It should have been generated when Parent approved.
         // We just open the modal.
@@ -155,6 +176,13 @@ const MentorLeaves = () => {
                         </tbody>
                     </table>
                 </div>
+                {hasMore && (
+                    <div style={{ textAlign: 'center', padding: '16px' }}>
+                        <button className="btn-primary-action" onClick={fetchMore} disabled={loadingMore}>
+                            {loadingMore ? 'Loading...' : 'Load older requests'}
+                        </button>
+                    </div>
+                )}
             </div>
 
             {/* OTP Verification Modal */}